@@ -0,0 +1,245 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks JMH des fonctions publiques de Grid, sur les grilles de data\ et sur un jeu de grilles difficiles généré
+ * <p>
+ * Chaque benchmark est mesuré en débit (opérations par milliseconde) et en temps moyen (microsecondes par opération) ;
+ * lancé avec le profileur -prof gc (cf buildBench.bat), JMH donne aussi le débit d'allocation et le nb d'octets
+ * alloués par opération.<br>
+ * Contrairement au chronomètre de SolveResult, les mesures couvrent la totalité de l'appel : création du SolveResult,
+ * propagation, embranchements et copies de grilles.
+ * <p>
+ * Les grilles "hard-n" sont générées par HardGridGenerator avec une graine fixe : les mesures sont reproductibles
+ * d'une version du solveur à l'autre.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GridBenchmark {
+
+    /**
+     * La graine des grilles difficiles générées
+     */
+    public static final long HARD_GRIDS_SEED = 20240423L;
+
+    /**
+     * Le nb de grilles difficiles générées
+     */
+    public static final int NB_HARD_GRIDS = 3;
+
+    /**
+     * Une grille valide, lue dans data\ ou générée puis écrite dans un fichier temporaire
+     */
+    @State(Scope.Benchmark)
+    public static class GridState {
+
+        @Param({"grille_commerce_01.txt", "grille_commerce_02.txt", "grille_commerce_03.txt", "grille_inkala.txt",
+            "test_grille_10.txt", "hard-0", "hard-1", "hard-2"})
+        public String gridName;
+
+        public String fileName;
+        public int[][][] cellArray;
+        private Path generatedFile; // null pour une grille de data\
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            if (this.gridName.startsWith("hard-")) {
+                List<short[]> hardGrids = HardGridGenerator.generate(NB_HARD_GRIDS, HARD_GRIDS_SEED);
+                short[] cellMasks = hardGrids.get(Integer.parseInt(this.gridName.substring("hard-".length())));
+                this.generatedFile = Files.createTempFile("sudoku-" + this.gridName, ".txt");
+                HardGridGenerator.writeGridFile(cellMasks, this.generatedFile);
+                this.fileName = this.generatedFile.toString();
+            } else {
+                this.fileName = new File("data", this.gridName).getPath();
+            }
+            this.cellArray = loadGrid(this.fileName);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (this.generatedFile != null) {
+                Files.delete(this.generatedFile);
+            }
+        }
+    }
+
+    /**
+     * Une grille qui a de nombreuses solutions, et le nb de solutions à chercher
+     */
+    @State(Scope.Benchmark)
+    public static class MultipleSolutionsState {
+
+        @Param({"test_grille_04.txt", "test_grille_vide.txt"})
+        public String gridName;
+
+        @Param({"100", "1000"})
+        public int nbSolutions;
+
+        public int[][][] cellArray;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.cellArray = loadGrid(new File("data", this.gridName).getPath());
+        }
+    }
+
+    /**
+     * Un UniquenessChecker par thread de benchmark, réutilisé d'un appel à l'autre comme le ferait un appelant
+     */
+    @State(Scope.Thread)
+    public static class CheckerState {
+        public final UniquenessChecker checker = new UniquenessChecker();
+    }
+
+    /**
+     * Un GridFileParser par thread de benchmark, réutilisé d'un appel à l'autre comme le fait Grid.parseFileGrid
+     */
+    @State(Scope.Thread)
+    public static class ParserState {
+        public final GridFileParser parser = new GridFileParser();
+    }
+
+    /**
+     * Un GridWriter par thread de benchmark, dont la sortie est jetée : seul le rendu des grilles est mesuré
+     */
+    @State(Scope.Thread)
+    public static class WriterState {
+        public GridWriter writer;
+        public short[] cellMasks;
+
+        @Setup(Level.Trial)
+        public void setUp(GridState gridState) {
+            this.writer = new GridWriter(new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer source) {
+                    int nbBytes = source.remaining();
+                    source.position(source.limit());
+                    return nbBytes;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            }, true, StandardCharsets.US_ASCII);
+            this.cellMasks = MaskGrid.fromCellArray(gridState.cellArray);
+        }
+    }
+
+    /**
+     * Lit une grille, et arrête le benchmark si elle est invalide
+     * @param fileName
+     * @return int[][][]
+     */
+    private static int[][][] loadGrid(String fileName) {
+        Optional<int[][][]> cellArray = Grid.parseFileGrid(fileName);
+        if (cellArray.isEmpty() || Grid.hasDuplicates(cellArray.get())) {
+            throw new IllegalStateException("Grille invalide : " + fileName);
+        }
+        return cellArray.get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Optional<int[][][]> parseFileGrid(GridState state) {
+        return Grid.parseFileGrid(state.fileName);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Optional<short[]> parseFileMasks(GridState state, ParserState parserState) {
+        return parserState.parser.parseFileGrid(state.fileName);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean hasDuplicates(GridState state) {
+        return Grid.hasDuplicates(state.cellArray);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int[][][] cellArrayDeepCopy(GridState state) {
+        return Grid.cellArrayDeepCopy(state.cellArray);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String cellArrayToString(GridState state) {
+        return Grid.cellArrayToString(state.cellArray);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void gridWriter_boxed(WriterState writerState) throws IOException {
+        writerState.writer.writeGrid(writerState.cellMasks, GridWriter.Layout.BOXED);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void gridWriter_compact(WriterState writerState) throws IOException {
+        writerState.writer.writeGrid(writerState.cellMasks, GridWriter.Layout.COMPACT);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SolveResult recurseSolve_firstSolution(GridState state) {
+        SolveResult solveResult = new SolveResult(state.cellArray, 1);
+        Grid.recurseSolve(solveResult);
+        return solveResult;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SolveResult recurseSolve_uniqueness(GridState state) {
+        // deux solutions demandées : l'arbre est parcouru en entier pour une grille bien posée
+        SolveResult solveResult = new SolveResult(state.cellArray, 2);
+        Grid.recurseSolve(solveResult);
+        return solveResult;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void uniquenessChecker(GridState state, CheckerState checkerState, Blackhole blackhole) {
+        blackhole.consume(checkerState.checker.check(state.cellArray));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SolveResult recurseSolve_nSolutions(MultipleSolutionsState state) {
+        SolveResult solveResult = new SolveResult(state.cellArray, state.nbSolutions);
+        Grid.recurseSolve(solveResult);
+        return solveResult;
+    }
+}
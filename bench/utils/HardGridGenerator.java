@@ -0,0 +1,158 @@
+package utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Génère un jeu reproductible de grilles difficiles pour les benchmarks (cf GridBenchmark)
+ * <p>
+ * Chaque grille part d'une grille résolue aléatoire (une grille de base dont on permute les chiffres, les lignes,
+ * les colonnes, les bandes et les piles), dont on retire les indices un à un dans un ordre aléatoire,
+ * tant que la grille garde une solution unique (cf UniquenessChecker) : on obtient une grille minimale.<br>
+ * Parmi plusieurs grilles minimales, on garde celles qui demandent le plus d'embranchements.
+ * <p>
+ * À graine égale, les grilles générées sont toujours les mêmes.
+ * <p>
+ * Note : Cette classe ne peut pas être instanciée.
+ */
+public class HardGridGenerator {
+
+    // nb de grilles minimales générées pour chaque grille conservée
+    private static final int NB_CANDIDATES_PER_GRID = 16;
+
+    /**
+     * Génère des grilles difficiles
+     * @param nbGrids : le nb de grilles à renvoyer
+     * @param seed : la graine du générateur aléatoire
+     * @return List : des grilles de masques à solution unique, de la plus à la moins difficile
+     */
+    public static List<short[]> generate(int nbGrids, long seed) {
+        Random random = new Random(seed);
+        // embranchement et techniques par défaut de Grid.recurseSolve, pour mesurer la difficulté
+        UniquenessChecker checker = new UniquenessChecker(new FirstCellBranching(), Propagator.getDefaultTechniques());
+        List<short[]> candidateGrids = new ArrayList<>();
+        List<Long> nbRecursions = new ArrayList<>();
+        for (int gridIndex = 0; gridIndex < nbGrids * NB_CANDIDATES_PER_GRID; gridIndex++) {
+            short[] cellMasks = digMinimalGrid(randomSolvedGrid(random), random, checker);
+            checker.check(cellMasks);
+            candidateGrids.add(cellMasks);
+            nbRecursions.add(checker.getNbRecursions());
+        }
+
+        List<Integer> gridIndexes = new ArrayList<>();
+        for (int gridIndex = 0; gridIndex < candidateGrids.size(); gridIndex++) {
+            gridIndexes.add(gridIndex);
+        }
+        // tri stable : à difficulté égale, l'ordre de génération est conservé
+        gridIndexes.sort(Comparator.comparing((Integer gridIndex) -> nbRecursions.get(gridIndex)).reversed());
+        List<short[]> hardGrids = new ArrayList<>(nbGrids);
+        for (int gridIndex : gridIndexes.subList(0, nbGrids)) {
+            hardGrids.add(candidateGrids.get(gridIndex));
+        }
+        return hardGrids;
+    }
+
+    /**
+     * Écrit une grille dans un fichier au format de Grid.parseFileGrid (9 lignes de 9 caractères, . pour une case vide)
+     * @param cellMasks
+     * @param file
+     * @throws IOException
+     */
+    public static void writeGridFile(short[] cellMasks, Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.US_ASCII))) {
+            String compactGrid = MaskGrid.toCompactString(cellMasks);
+            for (int lineIndex = 0; lineIndex < 9; lineIndex++) {
+                writer.println(compactGrid.substring(lineIndex * 9, lineIndex * 9 + 9));
+            }
+        }
+    }
+
+    /**
+     * Crée une grille résolue aléatoire
+     * @param random
+     * @return short[] : une grille de masques résolue
+     */
+    private static short[] randomSolvedGrid(Random random) {
+        int[] digits = shuffledIndexes(9, random);
+        int[] lines = shuffledBandIndexes(random);
+        int[] columns = shuffledBandIndexes(random);
+        boolean isTransposed = random.nextBoolean();
+
+        short[] cellMasks = new short[MaskGrid.NB_CELLS];
+        for (int lineIndex = 0; lineIndex < 9; lineIndex++) {
+            for (int columnIndex = 0; columnIndex < 9; columnIndex++) {
+                int baseLine = isTransposed ? columns[columnIndex] : lines[lineIndex];
+                int baseColumn = isTransposed ? lines[lineIndex] : columns[columnIndex];
+                // la grille de base : chaque ligne décale la précédente de 3, et de 1 à chaque nouvelle bande
+                int baseDigitIndex = (baseLine * 3 + baseLine / 3 + baseColumn) % 9;
+                cellMasks[lineIndex * 9 + columnIndex] = (short) (1 << digits[baseDigitIndex]);
+            }
+        }
+        return cellMasks;
+    }
+
+    /**
+     * Retire les indices d'une grille un à un, dans un ordre aléatoire, tant qu'elle garde une solution unique
+     * @param solvedGrid : une grille résolue, modifiée sur place
+     * @param random
+     * @param checker
+     * @return short[] : la grille minimale
+     */
+    private static short[] digMinimalGrid(short[] solvedGrid, Random random, UniquenessChecker checker) {
+        for (int cellIndex : shuffledIndexes(MaskGrid.NB_CELLS, random)) {
+            short clue = solvedGrid[cellIndex];
+            solvedGrid[cellIndex] = MaskGrid.ALL_CANDIDATES;
+            if (checker.check(solvedGrid) != UniquenessChecker.Uniqueness.UNIQUE) {
+                solvedGrid[cellIndex] = clue;
+            }
+        }
+        return solvedGrid;
+    }
+
+    /**
+     * Renvoie une permutation aléatoire des lignes (ou des colonnes) qui conserve les bandes (ou les piles)
+     * @param random
+     * @return int[] : la ligne d'origine de chaque ligne
+     */
+    private static int[] shuffledBandIndexes(Random random) {
+        int[] bands = shuffledIndexes(3, random);
+        int[] indexes = new int[9];
+        for (int bandIndex = 0; bandIndex < 3; bandIndex++) {
+            int[] linesInBand = shuffledIndexes(3, random);
+            for (int lineInBand = 0; lineInBand < 3; lineInBand++) {
+                indexes[bandIndex * 3 + lineInBand] = bands[bandIndex] * 3 + linesInBand[lineInBand];
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Renvoie une permutation aléatoire des entiers de 0 à size - 1 (Fisher-Yates)
+     * @param size
+     * @param random
+     * @return int[]
+     */
+    private static int[] shuffledIndexes(int size, Random random) {
+        int[] indexes = new int[size];
+        for (int index = 0; index < size; index++) {
+            indexes[index] = index;
+        }
+        for (int index = size - 1; index > 0; index--) {
+            int swapIndex = random.nextInt(index + 1);
+            int swapped = indexes[index];
+            indexes[index] = indexes[swapIndex];
+            indexes[swapIndex] = swapped;
+        }
+        return indexes;
+    }
+
+    // classe utilitaire
+    private HardGridGenerator() {}
+}
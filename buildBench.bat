@@ -0,0 +1,33 @@
+:: Ce fichier batch compile puis lance les benchmarks JMH du projet (cf bench\utils\GridBenchmark.java)
+:: 1) Vérifier la présence des librairies JMH dans lib\ (elles ne sont pas fournies avec le projet)
+:: 2) Compiler les sources et les benchmarks : le processeur d'annotations de JMH génère le code des benchmarks
+:: 3) Lancer les benchmarks avec le profileur gc, les résultats étant aussi écrits dans bench_output.txt
+:: Des options JMH supplémentaires peuvent être passées au script, ex : buildBench.bat recurseSolve -p gridName=hard-0
+
+@echo off
+
+echo Verification des librairies JMH
+echo -------------------------------
+if not exist lib\jmh-core-*.jar (
+    echo Le dossier lib\ doit contenir les jars suivants, a telecharger depuis Maven Central :
+    echo   org.openjdk.jmh:jmh-core:1.37
+    echo   org.openjdk.jmh:jmh-generator-annprocess:1.37
+    echo   net.sf.jopt-simple:jopt-simple:5.0.4
+    echo   org.apache.commons:commons-math3:3.6.1
+    exit /b REM Stoppe l'execution du batch
+)
+echo.
+
+echo Compilation des benchmarks
+echo --------------------------
+javac -encoding UTF-8 -cp "lib\*" -d bin-bench src\utils\*.java bench\utils\*.java
+:: vérif que la compilation s'est bien déroulée
+if ERRORLEVEL 1 (
+    echo La commande javac ne s est pas executee comme il faut !
+    exit /b REM Stoppe l'execution du batch
+)
+echo.
+
+echo Lancement des benchmarks
+echo ------------------------
+java -Dfile.encoding=UTF-8 -cp "bin-bench;lib\*" org.openjdk.jmh.Main -prof gc -rf text -rff bench_output.txt %*
@@ -1,5 +1,8 @@
 import utils.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.Optional;
 
 /**
@@ -23,6 +26,27 @@ public class Sudoku {
         Arguments myArgs = Arguments.parseArguments(args);
         if(myArgs.shouldDisplayHelp()) {displayHelp(); return;}
 
+        // mode batch : toutes les grilles d'un dossier ou d'un fichier multi-grilles, dans la même JVM
+        if (myArgs.isBatch() || new File(myArgs.getFileName()).isDirectory()) {
+            if (myArgs.getOutputFileName() != null) {
+                System.err.println("ERREUR : L option --output n est pas disponible en mode batch, ignoree.");
+            }
+            new BatchSolver(myArgs).solvePath(myArgs.getFileName());
+            return;
+        }
+        if (myArgs.getHistogramFileName() != null) {
+            System.err.println("ERREUR : L option --histogram n est disponible qu en mode batch, ignoree.");
+        }
+        if (myArgs.getPackFileName() != null) {
+            System.err.println("ERREUR : L option --pack n est disponible qu en mode batch, ignoree.");
+        }
+        if (myArgs.getCacheSize() > 0) {
+            System.err.println("ERREUR : L option --cache n est disponible qu en mode batch, ignoree.");
+        }
+        if (myArgs.isCorpus()) {
+            System.err.println("ERREUR : L option --corpus n est disponible qu en mode batch, ignoree.");
+        }
+
         // Transforme si possible le fichier fourni en tableau d'int @see #utils.Grid
         Optional<int[][][]> cellArray = Grid.parseFileGrid(myArgs.getFileName());
         if (cellArray.isEmpty()) { return; }
@@ -41,7 +65,29 @@ public class Sudoku {
         // Solutionnement :
         // Effectue plusieurs passes successives pour tenter de trouver le nombre de solutions passé en paramètre
         SolveResult result = new SolveResult(cellArray.get(), myArgs.getNbMaxSolutions());
-        Grid.recurseSolve(result);
+        myArgs.applyTo(result);
+        // avec --output, les solutions sont écrites dans le fichier au fil de la recherche au lieu d'être conservées
+        FileSolutionSink fileSink = null;
+        if (myArgs.getOutputFileName() != null) {
+            try {
+                fileSink = new FileSolutionSink(myArgs.getOutputFileName());
+            } catch (IOException e) {
+                System.err.println(MessageFormat.format(
+                        "ERREUR : Impossible de creer le fichier {0} !", myArgs.getOutputFileName()));
+                return;
+            }
+            result.setSolutionSink(fileSink);
+        }
+        // avec plusieurs threads, l'arbre de recherche de la grille est réparti entre eux
+        Solver solver = myArgs.getNbThreads() > 1
+                ? new ParallelSolver(myArgs.getEngine(), myArgs.getNbThreads())
+                : myArgs.getEngine().createSolver();
+        new InstrumentedSolver(solver, myArgs.getEngine().name()).solve(result);
+        if (fileSink != null) {
+            fileSink.close();
+            System.out.println(MessageFormat.format(
+                    "Solutions ecrites dans le fichier {0}, une par ligne.", myArgs.getOutputFileName()));
+        }
 
         // Affichage des résultats
         result.displaySolutions();
@@ -52,11 +98,46 @@ public class Sudoku {
      */
     private static void displayHelp(){
         String helpString;
-        helpString = "Usage : java -jar monSudoku.jar <file_path> [<nb_solutions>]\n" +
+        helpString = "Usage : java -jar monSudoku.jar <file_path> [<nb_solutions>] [<options>]\n" +
                      "        java -jar monSudoku.jar -h | --help\n" +
                      "\n" + 
-                     "<file_path> : Le chemin relatif vers un fichier grille au format .txt.\n" +
-                     "<nb_solutions> : Le nombre maximal de solutions a retourner (optionnel, 2 par defaut).\n" +
+                     "<file_path> : Le chemin relatif vers un fichier grille au format .txt, ou une archive compacte.\n" +
+                     "<nb_solutions> : Le nombre maximal de solutions a retourner (optionnel, 2 par defaut), ou all.\n" +
+                     "\n" +
+                     "Options :\n" +
+                     "--engine=recursive|trail|dlx : Le moteur de resolution (optionnel, recursive par defaut).\n" +
+                     "    recursive : recherche recursive, une copie de grille par embranchement\n" +
+                     "    trail : recherche iterative sur une seule grille, avec annulation des modifications\n" +
+                     "    dlx : couverture exacte (Dancing Links), sans propagation ni techniques d inference\n" +
+                     "--branching=first|mrv : Le choix des cellules d embranchement (optionnel, first par defaut).\n" +
+                     "    first : la premiere cellule a candidats multiples, ligne par ligne\n" +
+                     "    mrv : la cellule qui a le moins de candidats\n" +
+                     "--values=natural|lcv|frequency : Une branche par candidat, dans l ordre choisi\n" +
+                     "    (optionnel, par defaut le moteur recursive cree deux branches : le plus petit candidat / les autres)\n" +
+                     "    natural : du plus petit au plus grand\n" +
+                     "    lcv : les candidats qui retirent le moins de possibilites aux cellules voisines d abord\n" +
+                     "    frequency : les chiffres deja les plus places dans la grille d abord\n" +
+                     "--count : Compte les solutions (jusqu a <nb_solutions>, ou toutes avec all) sans les conserver\n" +
+                     "    ni les afficher, seules les statistiques sont affichees\n" +
+                     "--output=<fichier> : Ecrit les solutions dans le fichier au fil de la recherche, une par ligne\n" +
+                     "    de 81 chiffres, au lieu de les afficher (memoire constante, hors mode batch)\n" +
+                     "--batch : Resout toutes les grilles de <file_path>, un dossier ou un fichier multi-grilles\n" +
+                     "    (automatique pour un dossier) et affiche une ligne par grille puis des statistiques globales\n" +
+                     "--histogram=<fichier> : En mode batch, ecrit la distribution des latences de resolution\n" +
+                     "    des grilles (en ms) dans le fichier, au format .hgrm d HdrHistogram\n" +
+                     "--pack=<fichier> : En mode batch, ecrit chaque grille valide et sa premiere solution dans le fichier,\n" +
+                     "    au format binaire compact (41 octets par grille), relisible par le mode batch\n" +
+                     "--cache=<n> : En mode batch, garde en cache les <n> dernieres grilles resolues (0 par defaut : pas de cache)\n" +
+                     "    une grille identique a une grille en cache, aux permutations et renommages des chiffres pres,\n" +
+                     "    est resolue sans recherche\n" +
+                     "--corpus : En mode batch, lit chaque fichier comme un recueil d une grille de 81 caracteres par ligne,\n" +
+                     "    projete en memoire (les grilles de 9 lignes y sont ignorees)\n" +
+                     "--threads=<n> : Le nb de threads (optionnel, 1 par defaut, 0 pour un par coeur)\n" +
+                     "    en mode batch les grilles sont reparties entre les threads, sinon l arbre de recherche de la grille\n" +
+                     "--techniques=<t1>,<t2>,...|all|none : Les techniques d inference, dans l ordre d application\n" +
+                     "    (optionnel, hidden-singles,locked-candidates par defaut)\n" +
+                     "    hidden-singles, locked-candidates, naked-pairs, naked-triples, hidden-pairs, hidden-triples,\n" +
+                     "    x-wing, swordfish, simple-coloring\n" +
                      "\n" +
                      "-h, --help : Affiche le present message d aide.";
 
@@ -14,8 +14,50 @@ public class Arguments {
          */
         public static final int MAX_SOLUTIONS_DEFAULT = 2;
 
+        /**
+         * Enum des moteurs de résolution disponibles
+         * (option --engine=recursive|trail|dlx)
+         */
+        public static enum Engine {
+            RECURSIVE, // Grid.recurseSolve
+            TRAIL, // TrailSolver
+            DLX; // DancingLinksSolver
+
+            /**
+             * Crée une nouvelle instance du moteur, réutilisable d'une grille à l'autre par un même thread
+             * @return Solver
+             */
+            public Solver createSolver() {
+                switch (this) {
+                    case TRAIL:
+                        return new TrailSolver();
+                    case DLX:
+                        return new DancingLinksSolver();
+                    default: // case RECURSIVE:
+                        return Grid::recurseSolve;
+                }
+            }
+        }
+
+        /**
+         * Moteur de résolution utilisé par défaut
+         */
+        public static final Engine ENGINE_DEFAULT = Engine.RECURSIVE;
+
         private String fileName; 
-        private int nbMaxSolutions;
+        private long nbMaxSolutions;
+        private Engine engine;
+        private BranchingPolicy branchingPolicy;
+        private ValueOrdering valueOrdering;
+        private Technique[] techniques;
+        private boolean isCountOnly = false;
+        private String outputFileName = null;
+        private String histogramFileName = null;
+        private String packFileName = null;
+        private int cacheSize = 0;
+        private boolean isBatch = false;
+        private boolean isCorpus = false;
+        private int nbThreads = 1;
         private boolean shouldDisplayHelp = false;
 
         /**
@@ -36,30 +78,222 @@ public class Arguments {
                 // le premier argument obligatoire est le nom de fichier
                 // on laisse la suite du programme vérifier si c'est un nom de fichier valide ou pas
                 myArgs.fileName = args[0];
-                if(args.length > 1) {
-                    // l'utilisateur a passé un ou plusieur paramètres optionnels
-                    // on ne s'occupe que du premier, qui doit être un int (nbMaxSoluces)
-                    try{
-                        myArgs.nbMaxSolutions = Integer.parseInt(args[1]);  
-                        if(myArgs.nbMaxSolutions == 0) { throw new NumberFormatException("");}  
-                    } catch(NumberFormatException e) {
-                        String errMsg = MessageFormat.format(
-                            "ERREUR : {0} n est pas une valeur valide ! Utilisation du defaut {1}.",
-                             args[1], Arguments.MAX_SOLUTIONS_DEFAULT);
-                        System.err.println(errMsg);
-                        myArgs.nbMaxSolutions = Arguments.MAX_SOLUTIONS_DEFAULT;
-                    }                    
+                boolean isNbSolutionsParsed = false;
+                for (int argIndex = 1; argIndex < args.length; argIndex++) {
+                    if (args[argIndex].startsWith("--")) {
+                        // les options du type --nom=valeur peuvent être placées n'importe où après le nom de fichier
+                        myArgs.parseOption(args[argIndex]);
+                    } else if (!isNbSolutionsParsed) {
+                        // on ne s'occupe que du premier paramètre positionnel, qui doit être un nombre (nbMaxSoluces) ou all
+                        isNbSolutionsParsed = true;
+                        myArgs.parseNbMaxSolutions(args[argIndex]);
+                    }
                 }
             }
             return myArgs;
         } 
 
+        /**
+         * Parse le nb maximum de solutions demandées ("all" pour toutes), ou conserve la valeur par défaut s'il est invalide
+         * @param arg
+         */
+        private void parseNbMaxSolutions(String arg) {
+            if (arg.equals("all")) {
+                this.nbMaxSolutions = SolveResult.ALL_SOLUTIONS;
+                return;
+            }
+            try{
+                this.nbMaxSolutions = Long.parseLong(arg);  
+                if(this.nbMaxSolutions <= 0) { throw new NumberFormatException("");}  
+            } catch(NumberFormatException e) {
+                String errMsg = MessageFormat.format(
+                    "ERREUR : {0} n est pas une valeur valide ! Utilisation du defaut {1}.",
+                     arg, Arguments.MAX_SOLUTIONS_DEFAULT);
+                System.err.println(errMsg);
+                this.nbMaxSolutions = Arguments.MAX_SOLUTIONS_DEFAULT;
+            }                    
+        }
+
+        /**
+         * Parse une option de la forme --nom=valeur
+         * <p>
+         * Une option inconnue ou une valeur invalide sont signalées puis ignorées.
+         * @param arg
+         */
+        private void parseOption(String arg) {
+            int separatorIndex = arg.indexOf('=');
+            String optionName = separatorIndex == -1 ? arg : arg.substring(0, separatorIndex);
+            String optionValue = separatorIndex == -1 ? "" : arg.substring(separatorIndex + 1);
+
+            switch (optionName) {
+                case "--engine":
+                    try {
+                        this.engine = Engine.valueOf(optionValue.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        String errMsg = MessageFormat.format(
+                            "ERREUR : {0} n est pas un moteur valide ! Utilisation du defaut {1}.",
+                            optionValue, Arguments.ENGINE_DEFAULT.name().toLowerCase());
+                        System.err.println(errMsg);
+                    }
+                    break;
+                case "--branching":
+                    if (optionValue.equals("first")) {
+                        this.branchingPolicy = new FirstCellBranching();
+                    } else if (optionValue.equals("mrv")) {
+                        this.branchingPolicy = new MinimumRemainingValuesBranching();
+                    } else {
+                        String errMsg = MessageFormat.format(
+                            "ERREUR : {0} n est pas une politique d embranchement valide ! Utilisation du defaut first.",
+                            optionValue);
+                        System.err.println(errMsg);
+                    }
+                    break;
+                case "--values":
+                    if (optionValue.equals("natural")) {
+                        this.valueOrdering = new NaturalValueOrdering();
+                    } else if (optionValue.equals("lcv")) {
+                        this.valueOrdering = new LeastConstrainingValueOrdering();
+                    } else if (optionValue.equals("frequency")) {
+                        this.valueOrdering = new DigitFrequencyValueOrdering();
+                    } else {
+                        String errMsg = MessageFormat.format(
+                            "ERREUR : {0} n est pas un ordre de candidats valide ! Utilisation de l embranchement binaire.",
+                            optionValue);
+                        System.err.println(errMsg);
+                    }
+                    break;
+                case "--count":
+                    this.isCountOnly = true;
+                    break;
+                case "--output":
+                    if (optionValue.isEmpty()) {
+                        System.err.println("ERREUR : L option --output attend un nom de fichier, ignoree.");
+                    } else {
+                        this.outputFileName = optionValue;
+                    }
+                    break;
+                case "--histogram":
+                    if (optionValue.isEmpty()) {
+                        System.err.println("ERREUR : L option --histogram attend un nom de fichier, ignoree.");
+                    } else {
+                        this.histogramFileName = optionValue;
+                    }
+                    break;
+                case "--pack":
+                    if (optionValue.isEmpty()) {
+                        System.err.println("ERREUR : L option --pack attend un nom de fichier, ignoree.");
+                    } else {
+                        this.packFileName = optionValue;
+                    }
+                    break;
+                case "--cache":
+                    try {
+                        int parsedCacheSize = Integer.parseInt(optionValue);
+                        if (parsedCacheSize < 0) { throw new NumberFormatException(""); }
+                        this.cacheSize = parsedCacheSize;
+                    } catch (NumberFormatException e) {
+                        String errMsg = MessageFormat.format(
+                            "ERREUR : {0} n est pas une taille de cache valide ! Cache desactive.", optionValue);
+                        System.err.println(errMsg);
+                    }
+                    break;
+                case "--batch":
+                    this.isBatch = true;
+                    break;
+                case "--corpus":
+                    this.isCorpus = true;
+                    break;
+                case "--threads":
+                    try {
+                        int parsedNbThreads = Integer.parseInt(optionValue);
+                        if (parsedNbThreads < 0) { throw new NumberFormatException(""); }
+                        // 0 : autant de threads que de coeurs
+                        this.nbThreads = parsedNbThreads == 0 ? Runtime.getRuntime().availableProcessors() : parsedNbThreads;
+                    } catch (NumberFormatException e) {
+                        String errMsg = MessageFormat.format(
+                            "ERREUR : {0} n est pas un nb de threads valide ! Utilisation du defaut 1.", optionValue);
+                        System.err.println(errMsg);
+                    }
+                    break;
+                case "--techniques":
+                    Technique[] parsedTechniques = parseTechniques(optionValue);
+                    if (parsedTechniques != null) {
+                        this.techniques = parsedTechniques;
+                    }
+                    break;
+                default:
+                    System.err.println(MessageFormat.format("ERREUR : Option {0} inconnue, ignoree.", arg));
+                    break;
+            }
+        }
+
+        /**
+         * Parse une liste de techniques d'inférence séparées par des virgules, dans leur ordre d'application
+         * <p>
+         * "none" désigne un pipeline vide (seulement les naked singles), "all" toutes les techniques de la moins
+         * à la plus coûteuse.
+         * @param optionValue
+         * @return Technique[] : le pipeline, ou null si l'un des noms est invalide
+         */
+        private static Technique[] parseTechniques(String optionValue) {
+            if (optionValue.equals("none")) {
+                return new Technique[0];
+            }
+            if (optionValue.equals("all")) {
+                optionValue = "hidden-singles,locked-candidates,naked-pairs,hidden-pairs,naked-triples,hidden-triples,"
+                        + "x-wing,swordfish,simple-coloring";
+            }
+            String[] names = optionValue.split(",");
+            Technique[] parsedTechniques = new Technique[names.length];
+            for (int nameIndex = 0; nameIndex < names.length; nameIndex++) {
+                switch (names[nameIndex]) {
+                    case "hidden-singles":
+                        parsedTechniques[nameIndex] = new HiddenSinglesTechnique();
+                        break;
+                    case "locked-candidates":
+                        parsedTechniques[nameIndex] = new LockedCandidatesTechnique();
+                        break;
+                    case "naked-pairs":
+                        parsedTechniques[nameIndex] = new NakedSubsetsTechnique(2);
+                        break;
+                    case "naked-triples":
+                        parsedTechniques[nameIndex] = new NakedSubsetsTechnique(3);
+                        break;
+                    case "hidden-pairs":
+                        parsedTechniques[nameIndex] = new HiddenSubsetsTechnique(2);
+                        break;
+                    case "hidden-triples":
+                        parsedTechniques[nameIndex] = new HiddenSubsetsTechnique(3);
+                        break;
+                    case "x-wing":
+                        parsedTechniques[nameIndex] = new FishTechnique(2);
+                        break;
+                    case "swordfish":
+                        parsedTechniques[nameIndex] = new FishTechnique(3);
+                        break;
+                    case "simple-coloring":
+                        parsedTechniques[nameIndex] = new SimpleColoringTechnique();
+                        break;
+                    default:
+                        String errMsg = MessageFormat.format(
+                            "ERREUR : {0} n est pas une technique valide ! Utilisation des techniques par defaut.",
+                            names[nameIndex]);
+                        System.err.println(errMsg);
+                        return null;
+                }
+            }
+            return parsedTechniques;
+        }
+
         /**
          * Constructeur avec les valeurs par défaut
          */
         public Arguments(){
             this.fileName = "";
             this.nbMaxSolutions = Arguments.MAX_SOLUTIONS_DEFAULT;
+            this.engine = Arguments.ENGINE_DEFAULT;
+            this.branchingPolicy = new FirstCellBranching();
+            this.techniques = Propagator.getDefaultTechniques();
         }
 
         /**
@@ -72,12 +306,120 @@ public class Arguments {
 
         /**
          * Getter de la variable privée nbMaxSolutions
-         * @return - int : le nombre de soluces souhaitées
+         * @return - long : le nombre de soluces souhaitées (SolveResult.ALL_SOLUTIONS pour toutes)
          */
-        public int getNbMaxSolutions() {
+        public long getNbMaxSolutions() {
             return this.nbMaxSolutions;
         }
 
+        /**
+         * Getter de la variable privée engine
+         * @return - Engine : le moteur de résolution choisi
+         */
+        public Engine getEngine() {
+            return this.engine;
+        }
+
+        /**
+         * Getter de la variable privée branchingPolicy
+         * @return - BranchingPolicy : la politique de choix des cellules d'embranchement
+         */
+        public BranchingPolicy getBranchingPolicy() {
+            return this.branchingPolicy;
+        }
+
+        /**
+         * Getter de la variable privée valueOrdering
+         * @return - ValueOrdering : l'ordre des candidats d'un embranchement, ou null pour un embranchement binaire
+         */
+        public ValueOrdering getValueOrdering() {
+            return this.valueOrdering;
+        }
+
+        /**
+         * Getter de la variable privée techniques
+         * @return - Technique[] : le pipeline de techniques d'inférence, dans leur ordre d'application
+         */
+        public Technique[] getTechniques() {
+            return this.techniques;
+        }
+
+        /**
+         * Getter de la variable privée isCountOnly
+         * @return - boolean : est ce qu'il faut seulement compter les solutions, sans les conserver ni les afficher
+         */
+        public boolean isCountOnly() {
+            return this.isCountOnly;
+        }
+
+        /**
+         * Getter de la variable privée outputFileName
+         * @return - String : le fichier où écrire les solutions au fil de la recherche, ou null pour les afficher à la fin
+         */
+        public String getOutputFileName() {
+            return this.outputFileName;
+        }
+
+        /**
+         * Getter de la variable privée histogramFileName
+         * @return - String : le fichier .hgrm où écrire la distribution des latences du mode batch, ou null
+         */
+        public String getHistogramFileName() {
+            return this.histogramFileName;
+        }
+
+        /**
+         * Getter de la variable privée packFileName
+         * @return - String : l'archive compacte où écrire les grilles du mode batch et leur solution, ou null
+         */
+        public String getPackFileName() {
+            return this.packFileName;
+        }
+
+        /**
+         * Getter de la variable privée cacheSize
+         * @return - int : le nb de grilles résolues gardées en cache par le mode batch (0 : pas de cache)
+         */
+        public int getCacheSize() {
+            return this.cacheSize;
+        }
+
+        /**
+         * Getter de la variable privée isBatch
+         * @return - boolean : est ce qu'il faut résoudre toutes les grilles d'un dossier ou d'un fichier multi-grilles
+         */
+        public boolean isBatch() {
+            return this.isBatch;
+        }
+
+        /**
+         * Getter de la variable privée isCorpus
+         * @return - boolean : est ce que les fichiers du mode batch sont des recueils d'une grille par ligne
+         */
+        public boolean isCorpus() {
+            return this.isCorpus;
+        }
+
+        /**
+         * Getter de la variable privée nbThreads
+         * @return - int : le nb de threads du mode batch (1 : séquentiel)
+         */
+        public int getNbThreads() {
+            return this.nbThreads;
+        }
+
+        /**
+         * Applique au SolveResult fourni les options de résolution choisies :
+         * politique d'embranchement, ordre des candidats, techniques d'inférence et mode comptage
+         * @param solveResult
+         */
+        public void applyTo(SolveResult solveResult) {
+            solveResult.setCountOnly(this.isCountOnly);
+            solveResult.setBranchingPolicy(this.branchingPolicy);
+            solveResult.setValueOrdering(this.valueOrdering);
+            solveResult.setTechniques(this.techniques);
+        }
+
         /**
          * Getter de la variable privée shouldDisplayHelp
          * @return - boolean : est ce qu'il faut afficher l'aide ou pas
@@ -0,0 +1,306 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Classe qui résout un lot de grilles dans une même JVM : toutes celles d'un dossier ou d'un fichier multi-grilles
+ * <p>
+ * Le démarrage de la JVM et la compilation JIT ne sont ainsi payés qu'une fois pour tout le lot,
+ * et le moteur de résolution est réutilisé d'une grille à l'autre.
+ * <p>
+ * Un fichier peut contenir plusieurs grilles, dans l'un ou l'autre des formats suivants (éventuellement mélangés) :
+ * <ul>
+ *  <li>le format habituel de Grid.parseFileGrid : 9 lignes valides de 9 caractères, les autres lignes étant ignorées ;
+ *      chaque groupe de 9 lignes valides forme une grille</li>
+ *  <li>une grille par ligne de 81 caractères, les cellules vides notées '.' ou '0'</li>
+ * </ul>
+ * Les fichiers sont lus octet par octet par un GridFileParser, directement en grilles de masques.<br>
+ * Avec l'option --corpus, chaque fichier texte est lu comme un recueil d'une grille par ligne, projeté en mémoire
+ * par un CompactGridCorpus : les grilles de 9 lignes y sont ignorées.
+ * Chaque grille est vérifiée (doublons) puis résolue avec les options fournies, et donne une ligne de résultat :
+ * {@code <fichier>#<n> : <nb> solution(s), <nb> embranchement(s), <durée> ms, <première solution>}.<br>
+ * Les statistiques cumulées du lot (cf BatchStats) sont affichées à la fin.
+ * <p>
+ * Avec plusieurs threads (option --threads), les grilles sont réparties sur un ForkJoinPool :
+ * <ul>
+ *  <li>chaque thread du pool a son propre moteur de résolution, et chaque grille son propre SolveResult :
+ *      aucun état de résolution n'est partagé</li>
+ *  <li>le thread qui lit les fichiers garde au plus MAX_PENDING_GRIDS_PER_THREAD grilles en cours par thread,
+ *      attend la plus ancienne au-delà, puis écrit son résultat et cumule ses statistiques :
+ *      les résultats restent dans l'ordre des fichiers, et BatchStats n'est jamais modifié que par ce thread</li>
+ * </ul>
+ * Avec l'option --pack, chaque grille valide est aussi écrite avec sa première solution dans une archive compacte
+ * (cf PackedGridWriter), dans l'ordre des résultats ; les archives compactes sont relues comme les autres fichiers.<br>
+ * Avec l'option --cache, les moteurs de tous les threads partagent un cache des grilles résolues (cf CachingSolver) :
+ * une grille équivalente à une grille déjà résolue, aux permutations et renommages des chiffres près, est résolue sans recherche.
+ * <p>
+ * Chaque résolution émet un évènement JFR et est cumulée dans les métriques JMX (cf InstrumentedSolver et SolverMetrics),
+ * ce qui permet de suivre un long traitement par lot en cours de route.
+ */
+public class BatchSolver {
+
+    /**
+     * Le nb maximum de grilles soumises au pool et pas encore écrites, par thread du pool
+     */
+    public static final int MAX_PENDING_GRIDS_PER_THREAD = 64;
+
+    private final Arguments arguments;
+    private final Solver solver; // le moteur du mode séquentiel
+    private final PrintWriter output;
+    private final GridFileParser fileParser = new GridFileParser(); // utilisé par le seul thread qui lit les fichiers
+    private final BatchStats batchStats = new BatchStats();
+    private PackedGridWriter packWriter = null; // l'archive de l'option --pack, ouverte pendant solvePath
+    private final SolutionCache solutionCache; // null sans l'option --cache
+
+    private final ForkJoinPool pool; // null en mode séquentiel
+    private final ThreadLocal<Solver> threadSolvers; // un moteur par thread du pool
+    private final ArrayDeque<ForkJoinTask<GridOutcome>> pendingGrids = new ArrayDeque<>();
+    private final int maxPendingGrids;
+
+    /**
+     * Le résultat de la vérification et de la résolution d'une grille
+     */
+    private static final class GridOutcome {
+        private final String resultLine;
+        private final short[] cellMasks; // la grille de départ
+        private final SolveResult solveResult; // null pour une grille invalide
+        private final long latencyNanoSeconds; // la durée réelle de l'appel au moteur
+
+        private GridOutcome(String resultLine, short[] cellMasks, SolveResult solveResult, long latencyNanoSeconds) {
+            this.resultLine = resultLine;
+            this.cellMasks = cellMasks;
+            this.solveResult = solveResult;
+            this.latencyNanoSeconds = latencyNanoSeconds;
+        }
+    }
+
+    /**
+     * Constructeur, les résultats étant écrits sur la sortie standard
+     * @param arguments : les options de résolution (nb de solutions, moteur, embranchement, techniques)
+     */
+    public BatchSolver(Arguments arguments) {
+        this(arguments, new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out))));
+    }
+
+    /**
+     * Constructeur
+     * @param arguments : les options de résolution (nb de solutions, moteur, embranchement, techniques)
+     * @param output : la destination des résultats, vidée à la fin du lot
+     */
+    public BatchSolver(Arguments arguments, PrintWriter output) {
+        this.arguments = arguments;
+        // enregistré ici, hors de la durée mesurée du lot
+        SolverMetrics.registerMBean();
+        this.solutionCache = arguments.getCacheSize() > 0 ? new SolutionCache(arguments.getCacheSize()) : null;
+        this.solver = this.createSolver();
+        this.output = output;
+        int nbThreads = arguments.getNbThreads();
+        if (nbThreads > 1) {
+            this.pool = new ForkJoinPool(nbThreads);
+            this.threadSolvers = ThreadLocal.withInitial(this::createSolver);
+        } else {
+            this.pool = null;
+            this.threadSolvers = null;
+        }
+        this.maxPendingGrids = nbThreads * MAX_PENDING_GRIDS_PER_THREAD;
+    }
+
+    /**
+     * Crée le moteur d'un thread : le moteur des options, précédé du cache s'il y en a un, et instrumenté
+     * @return Solver
+     */
+    private Solver createSolver() {
+        Solver engineSolver = this.arguments.getEngine().createSolver();
+        if (this.solutionCache != null) {
+            engineSolver = new CachingSolver(engineSolver, this.solutionCache);
+        }
+        return new InstrumentedSolver(engineSolver, this.arguments.getEngine().name());
+    }
+
+    /**
+     * Résout toutes les grilles d'un dossier (chaque fichier, dans l'ordre alphabétique) ou d'un fichier multi-grilles,
+     * puis affiche les statistiques cumulées
+     * @param pathName : le chemin du dossier ou du fichier
+     * @return BatchStats : les statistiques cumulées du lot
+     */
+    public BatchStats solvePath(String pathName) {
+        if (this.arguments.getPackFileName() != null) {
+            try {
+                // sans solution conservée en mode comptage, l'archive ne contient que les grilles
+                this.packWriter = new PackedGridWriter(this.arguments.getPackFileName(), !this.arguments.isCountOnly());
+            } catch (IOException e) {
+                System.err.println(MessageFormat.format(
+                        "ERREUR : Impossible de creer le fichier {0} !", this.arguments.getPackFileName()));
+                return this.batchStats;
+            }
+        }
+        long startingTime = System.nanoTime();
+        File path = new File(pathName);
+        if (path.isDirectory()) {
+            File[] files = path.listFiles(File::isFile);
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            for (File file : files) {
+                this.solveFile(file);
+            }
+        } else {
+            this.solveFile(path);
+        }
+        while (!this.pendingGrids.isEmpty()) {
+            this.record(this.pendingGrids.removeFirst().join());
+        }
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+        if (this.packWriter != null) {
+            this.packWriter.close();
+            this.packWriter = null;
+        }
+        String report = this.batchStats.getReport(System.nanoTime() - startingTime);
+        if (this.solutionCache != null) {
+            report += this.solutionCache.getReport();
+        }
+        this.output.println(report);
+        this.output.flush();
+        if (this.arguments.getHistogramFileName() != null) {
+            this.writeLatencyHistogram(this.arguments.getHistogramFileName());
+        }
+        return this.batchStats;
+    }
+
+    /**
+     * Écrit la distribution des latences de résolution du lot au format .hgrm d'HdrHistogram, en millisecondes
+     * @param fileName
+     */
+    private void writeLatencyHistogram(String fileName) {
+        try (PrintWriter histogramWriter = new PrintWriter(Files.newBufferedWriter(Paths.get(fileName)))) {
+            this.batchStats.getLatencyHistogram().outputPercentileDistribution(histogramWriter, 1000000.0);
+        } catch (IOException e) {
+            System.err.println(MessageFormat.format("ERREUR : Impossible d ecrire le fichier {0} !", fileName));
+        }
+    }
+
+    /**
+     * Lit un fichier et résout chaque grille dès qu'elle est complète
+     * <p>
+     * Un fichier introuvable, illisible, sans grille ou terminé par une grille incomplète compte comme une grille invalide
+     * (le message d'erreur étant affiché par GridFileParser).
+     * @param file
+     */
+    private void solveFile(File file) {
+        String filePath = file.getPath();
+        if (this.arguments.isCorpus() && !PackedGridFormat.isPackedFile(filePath)) {
+            this.solveCorpusFile(filePath);
+            return;
+        }
+        boolean isValidFile = this.fileParser.parseFileGrids(filePath,
+                (cellMasks, gridNumber) -> this.solveGrid(filePath + "#" + gridNumber, cellMasks));
+        if (!isValidFile) {
+            this.batchStats.addInvalidGrid();
+        }
+    }
+
+    /**
+     * Lit un recueil d'une grille par ligne (option --corpus) et résout chaque grille dès qu'elle est lue
+     * <p>
+     * Les lignes sont lues par le seul thread qui lit les fichiers, dans l'ordre du fichier : en mode parallèle,
+     * seule la résolution est répartie, comme pour les autres fichiers. Un recueil introuvable, illisible ou sans grille
+     * compte comme une grille invalide.
+     * @param filePath
+     */
+    private void solveCorpusFile(String filePath) {
+        int gridNumber = 0;
+        try (CompactGridCorpus corpus = new CompactGridCorpus(filePath)) {
+            Iterator<short[]> grids = Spliterators.iterator(corpus.spliterator());
+            while (grids.hasNext()) {
+                gridNumber++;
+                this.solveGrid(filePath + "#" + gridNumber, grids.next());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(MessageFormat.format("ERREUR : Impossible de lire le fichier {0} !", filePath));
+            this.batchStats.addInvalidGrid();
+            return;
+        }
+        if (gridNumber == 0) {
+            System.err.println(MessageFormat.format("ERREUR : Le recueil {0} ne comporte aucune grille valide !", filePath));
+            this.batchStats.addInvalidGrid();
+        }
+    }
+
+    /**
+     * Résout une grille sur le thread courant, ou bien la soumet au pool
+     * <p>
+     * En mode parallèle, attend d'abord la plus ancienne grille en cours si la limite de grilles en cours est atteinte.
+     * @param gridName : le nom de la grille dans les résultats
+     * @param cellMasks
+     */
+    private void solveGrid(String gridName, short[] cellMasks) {
+        if (this.pool == null) {
+            this.record(this.checkAndSolve(gridName, cellMasks, this.solver));
+            return;
+        }
+        if (this.pendingGrids.size() >= this.maxPendingGrids) {
+            this.record(this.pendingGrids.removeFirst().join());
+        }
+        this.pendingGrids.addLast(this.pool.submit(() -> this.checkAndSolve(gridName, cellMasks, this.threadSolvers.get())));
+    }
+
+    /**
+     * Écrit la ligne de résultat d'une grille, cumule ses statistiques et l'ajoute à l'archive de l'option --pack
+     * @param gridOutcome
+     */
+    private void record(GridOutcome gridOutcome) {
+        if (gridOutcome.solveResult == null) {
+            this.batchStats.addInvalidGrid();
+        } else {
+            this.batchStats.add(gridOutcome.solveResult, gridOutcome.latencyNanoSeconds);
+            if (this.packWriter != null) {
+                this.packWriter.write(gridOutcome.cellMasks, gridOutcome.solveResult);
+            }
+        }
+        this.output.println(gridOutcome.resultLine);
+    }
+
+    /**
+     * Vérifie puis résout une grille, sans rien modifier d'autre que son propre SolveResult
+     * @param gridName : le nom de la grille dans les résultats
+     * @param cellMasks
+     * @param gridSolver : le moteur du thread courant
+     * @return GridOutcome
+     */
+    private GridOutcome checkAndSolve(String gridName, short[] cellMasks, Solver gridSolver) {
+        // sans message par doublon : la ligne de résultat de la grille le signale déjà
+        if (Grid.hasDuplicatesSilently(cellMasks)) {
+            return new GridOutcome(gridName + " : grille invalide (doublons)", cellMasks, null, 0);
+        }
+
+        SolveResult result = new SolveResult(new PassResult(cellMasks), this.arguments.getNbMaxSolutions());
+        this.arguments.applyTo(result);
+        long startingTime = System.nanoTime();
+        gridSolver.solve(result);
+        long latencyNanoSeconds = System.nanoTime() - startingTime;
+
+        String resultLine = gridName + " : " + result.getNbSolutions() + " solution(s), "
+                + result.getNbRecursions() + " embranchement(s), "
+                + String.format("%.3f", result.getNbNanoSeconds() / 1000000.0) + " ms";
+        if (result.getSolutionMasks(0) != null) {
+            // aucune solution conservée en mode comptage
+            resultLine += ", " + MaskGrid.toCompactString(result.getSolutionMasks(0));
+        }
+        return new GridOutcome(resultLine, cellMasks, result, latencyNanoSeconds);
+    }
+}
@@ -0,0 +1,198 @@
+package utils;
+
+/**
+ * Classe qui cumule les statistiques de résolution d'un lot de grilles (cf BatchSolver)
+ * <p>
+ * Chaque grille résolue y ajoute son SolveResult ; les grilles invalides (illisibles ou avec doublons)
+ * sont seulement comptées.<br>
+ * Les statistiques de deux lots peuvent aussi être additionnées.
+ * <p>
+ * Les moyennes masquant les quelques grilles qui prennent des secondes, la latence de résolution de chaque grille
+ * (durée réelle de l'appel au moteur, et non seulement des propagations comme SolveResult.getNbNanoSeconds)
+ * et son nb d'embranchements sont aussi répartis dans des histogrammes (cf ValueHistogram),
+ * dont les percentiles sont affichés dans le rapport.
+ */
+public class BatchStats {
+
+    private long nbGrids = 0;
+    private long nbInvalidGrids = 0;
+    private long nbGridsWithoutSolution = 0;
+    private long nbGridsWithOneSolution = 0;
+    private long nbGridsWithMultipleSolutions = 0;
+
+    private long nbSolutions = 0;
+    private long nbRecursions = 0;
+    private long nbPasses = 0;
+    private long nbUnsolvableGrids = 0;
+    private long nbFailedGrids = 0;
+    private long nbExaminedCells = 0;
+    private long nbNanoSeconds = 0;
+    private long maxNanoSeconds = 0; // la durée de résolution de la grille la plus lente
+    private final ValueHistogram latencyHistogram = new ValueHistogram(); // en nanosecondes, une valeur par grille
+    private final ValueHistogram recursionsHistogram = new ValueHistogram(); // une valeur par grille
+
+    private TechniqueStats techniqueStats; // créé à la première grille résolue, toutes partagent le même pipeline
+
+    /**
+     * Ajoute les statistiques d'une grille résolue
+     * @param solveResult
+     * @param latencyNanoSeconds : la durée réelle de la résolution de la grille
+     */
+    public void add(SolveResult solveResult, long latencyNanoSeconds) {
+        this.nbGrids++;
+        long nbGridSolutions = solveResult.getNbSolutions();
+        if (nbGridSolutions == 0) {
+            this.nbGridsWithoutSolution++;
+        } else if (nbGridSolutions == 1) {
+            this.nbGridsWithOneSolution++;
+        } else {
+            this.nbGridsWithMultipleSolutions++;
+        }
+        this.nbSolutions += nbGridSolutions;
+        this.nbRecursions += solveResult.getNbRecursions();
+        this.nbPasses += solveResult.getNbPasses();
+        this.nbUnsolvableGrids += solveResult.getNbUnsolvableGrids();
+        this.nbFailedGrids += solveResult.getNbFailedGrids();
+        this.nbExaminedCells += solveResult.getNbExaminedCells();
+        this.nbNanoSeconds += solveResult.getNbNanoSeconds();
+        this.maxNanoSeconds = Math.max(this.maxNanoSeconds, solveResult.getNbNanoSeconds());
+        this.latencyHistogram.recordValue(latencyNanoSeconds);
+        this.recursionsHistogram.recordValue(solveResult.getNbRecursions());
+
+        if (this.techniqueStats == null) {
+            this.techniqueStats = new TechniqueStats(solveResult.getTechniques());
+        }
+        this.techniqueStats.add(solveResult.getTechniqueStats());
+    }
+
+    /**
+     * Compte une grille invalide : illisible ou contenant des doublons
+     */
+    public void addInvalidGrid() {
+        this.nbGrids++;
+        this.nbInvalidGrids++;
+    }
+
+    /**
+     * Cumule les statistiques d'un autre lot
+     * @param otherStats
+     */
+    public void add(BatchStats otherStats) {
+        this.nbGrids += otherStats.nbGrids;
+        this.nbInvalidGrids += otherStats.nbInvalidGrids;
+        this.nbGridsWithoutSolution += otherStats.nbGridsWithoutSolution;
+        this.nbGridsWithOneSolution += otherStats.nbGridsWithOneSolution;
+        this.nbGridsWithMultipleSolutions += otherStats.nbGridsWithMultipleSolutions;
+        this.nbSolutions += otherStats.nbSolutions;
+        this.nbRecursions += otherStats.nbRecursions;
+        this.nbPasses += otherStats.nbPasses;
+        this.nbUnsolvableGrids += otherStats.nbUnsolvableGrids;
+        this.nbFailedGrids += otherStats.nbFailedGrids;
+        this.nbExaminedCells += otherStats.nbExaminedCells;
+        this.nbNanoSeconds += otherStats.nbNanoSeconds;
+        this.maxNanoSeconds = Math.max(this.maxNanoSeconds, otherStats.maxNanoSeconds);
+        this.latencyHistogram.add(otherStats.latencyHistogram);
+        this.recursionsHistogram.add(otherStats.recursionsHistogram);
+        if (otherStats.techniqueStats != null) {
+            if (this.techniqueStats == null) {
+                this.techniqueStats = new TechniqueStats(otherStats.techniqueStats.getTechniques());
+            }
+            this.techniqueStats.add(otherStats.techniqueStats);
+        }
+    }
+
+    /**
+     * Renvoie le nb de grilles traitées, invalides comprises
+     * @return long
+     */
+    public long getNbGrids() {
+        return this.nbGrids;
+    }
+
+    /**
+     * Renvoie le nb de grilles invalides
+     * @return long
+     */
+    public long getNbInvalidGrids() {
+        return this.nbInvalidGrids;
+    }
+
+    /**
+     * Renvoie le nb total de solutions trouvées
+     * @return long
+     */
+    public long getNbSolutions() {
+        return this.nbSolutions;
+    }
+
+    /**
+     * Renvoie le nb total d'embranchements explorés
+     * @return long
+     */
+    public long getNbRecursions() {
+        return this.nbRecursions;
+    }
+
+    /**
+     * Renvoie l'histogramme des latences de résolution des grilles, en nanosecondes
+     * @return ValueHistogram
+     */
+    public ValueHistogram getLatencyHistogram() {
+        return this.latencyHistogram;
+    }
+
+    /**
+     * Renvoie l'histogramme des nb d'embranchements des grilles
+     * @return ValueHistogram
+     */
+    public ValueHistogram getRecursionsHistogram() {
+        return this.recursionsHistogram;
+    }
+
+    /**
+     * Renvoie une chaîne contenant les statistiques cumulées mises en forme pour l'utilisateur
+     * @param elapsedNanoSeconds : la durée totale du lot, lecture des fichiers et affichage compris
+     * @return String
+     */
+    public String getReport(long elapsedNanoSeconds) {
+        long nbSolvedGrids = this.nbGrids - this.nbInvalidGrids;
+        String returnString = "Statistiques globales : ";
+
+        returnString += "\n\t* " + this.nbGrids + " grille(s) traitee(s)";
+        returnString += "\n\t* dont " + this.nbInvalidGrids + " invalide(s)";
+        returnString += "\n\t* " + this.nbGridsWithoutSolution + " sans solution, "
+                + this.nbGridsWithOneSolution + " a une seule solution, "
+                + this.nbGridsWithMultipleSolutions + " a plusieurs solutions";
+        returnString += "\n\t* " + this.nbSolutions + " solution(s) trouvee(s) au total";
+        returnString += "\n\t* grace a " + this.nbPasses + " passes";
+        returnString += "\n\t* reparties sur l exploration de " + this.nbRecursions + " embranchement(s)";
+        returnString += "\n\t* dont " + this.nbUnsolvableGrids + " etaient impossible a resoudre";
+        returnString += "\n\t* et dont " + this.nbFailedGrids + " ont ete abandonnes";
+        returnString += "\n\t* en examinant " + this.nbExaminedCells + " cellule(s)";
+        returnString += "\n\t* resolution en " + String.format("%.3f", this.nbNanoSeconds / 1000000.0) + " millisecondes"
+                + " (" + String.format("%.3f", nbSolvedGrids == 0 ? 0 : this.nbNanoSeconds / 1000000.0 / nbSolvedGrids)
+                + " en moyenne, " + String.format("%.3f", this.maxNanoSeconds / 1000000.0) + " au maximum)";
+        if (this.latencyHistogram.getTotalCount() > 0) {
+            ValueHistogram latencies = this.latencyHistogram;
+            returnString += "\n\t* latence par grille en millisecondes : p50 "
+                    + String.format("%.3f", latencies.getValueAtPercentile(50) / 1000000.0)
+                    + ", p90 " + String.format("%.3f", latencies.getValueAtPercentile(90) / 1000000.0)
+                    + ", p99 " + String.format("%.3f", latencies.getValueAtPercentile(99) / 1000000.0)
+                    + ", p99.9 " + String.format("%.3f", latencies.getValueAtPercentile(99.9) / 1000000.0)
+                    + ", max " + String.format("%.3f", latencies.getMaxValue() / 1000000.0);
+            ValueHistogram recursions = this.recursionsHistogram;
+            returnString += "\n\t* embranchements par grille : p50 " + recursions.getValueAtPercentile(50)
+                    + ", p90 " + recursions.getValueAtPercentile(90)
+                    + ", p99 " + recursions.getValueAtPercentile(99)
+                    + ", p99.9 " + recursions.getValueAtPercentile(99.9)
+                    + ", max " + recursions.getMaxValue();
+        }
+        returnString += "\n\t* duree totale de " + String.format("%.3f", elapsedNanoSeconds / 1000000.0) + " millisecondes"
+                + " (" + String.format("%.1f", elapsedNanoSeconds == 0 ? 0 : this.nbGrids * 1e9 / elapsedNanoSeconds)
+                + " grilles par seconde)";
+        if (this.techniqueStats != null && this.techniqueStats.hasInvocations()) {
+            returnString += "\n\t* techniques d inference :" + this.techniqueStats;
+        }
+        return returnString;
+    }
+}
@@ -0,0 +1,18 @@
+package utils;
+
+/**
+ * Interface des politiques de choix de la cellule sur laquelle créer un embranchement
+ * <p>
+ * Une politique n'est appelée que sur une grille propagée, cohérente et non résolue :
+ * elle doit renvoyer l'index d'une cellule contenant au moins 2 candidats.<br>
+ * Les implémentations ne doivent pas conserver d'état, elles peuvent ainsi être partagées entre plusieurs résolutions.
+ */
+public interface BranchingPolicy {
+
+    /**
+     * Choisit la cellule sur laquelle créer le prochain embranchement
+     * @param cellMasks : la grille de masques courante, qui ne doit pas être modifiée
+     * @return int : l'index d'une cellule à candidats multiples (de 0 à 80)
+     */
+    int selectCell(short[] cellMasks);
+}
@@ -0,0 +1,99 @@
+package utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Moteur qui cherche d'abord la grille dans un cache de grilles déjà résolues (cf SolutionCache),
+ * et ne délègue la résolution à un autre moteur qu'en cas d'absence
+ * <p>
+ * La grille est ramenée à sa forme canonique (cf GridCanonicalizer) : deux grilles qui ne diffèrent que par
+ * un renommage des chiffres, une permutation des lignes, des colonnes, des bandes ou des piles, ou une transposition
+ * partagent la même entrée. Les solutions en cache sont ramenées dans l'espace de la grille par la transformation
+ * inverse (cf GridTransform), sans aucune recherche : le SolveResult compte alors 0 embranchement et 0 passe.<br>
+ * Les solutions d'une grille qui en a plusieurs ne sont pas forcément les premières qu'aurait trouvées le moteur.
+ * <p>
+ * La résolution est confiée directement au moteur, sans cache, pour une grille non canonisable (disposition
+ * trop symétrique...), une grille abandonnée en cours de recherche, ou des solutions transmises au fil de la recherche
+ * à un destinataire (cf SolutionSink).
+ * <p>
+ * Comme les autres moteurs, une instance ne doit pas être utilisée par plusieurs threads à la fois :
+ * chaque thread a son propre CachingSolver, et tous partagent le même cache.
+ */
+public class CachingSolver implements Solver {
+
+    private final Solver delegate;
+    private final SolutionCache cache;
+    private final GridCanonicalizer canonicalizer = new GridCanonicalizer(); // réutilisé pour chaque grille
+
+    /**
+     * Constructeur
+     * @param delegate : le moteur qui résout les grilles absentes du cache
+     * @param cache : le cache, éventuellement partagé avec d'autres CachingSolvers
+     */
+    public CachingSolver(Solver delegate, SolutionCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public void solve(SolveResult solveResult) {
+        GridTransform transform = null;
+        if (solveResult.getSolutionSink() == null) {
+            transform = this.canonicalizer.canonicalize(solveResult.getCurrentPassResult().getCellMasks());
+        }
+        if (transform == null) {
+            this.cache.countBypass();
+            this.delegate.solve(solveResult);
+            return;
+        }
+
+        ByteBuffer canonicalKey = transform.getCanonicalKey();
+        SolutionCache.Entry entry = this.cache.get(canonicalKey, solveResult.getNbMaxSolutions(), solveResult.isCountOnly());
+        if (entry != null) {
+            this.answerFromCache(solveResult, entry, transform);
+            return;
+        }
+
+        this.delegate.solve(solveResult);
+        if (solveResult.getNbFailedGrids() > 0) {
+            // la recherche abandonnée n'a pas forcément trouvé toutes les solutions
+            return;
+        }
+        long nbSolutions = solveResult.getNbSolutions();
+        byte[] packedSolutions = null;
+        if (!solveResult.isCountOnly()) {
+            if (nbSolutions > SolutionCache.MAX_SOLUTIONS_PER_ENTRY) {
+                return;
+            }
+            packedSolutions = new byte[(int) nbSolutions * PackedGridFormat.GRID_SIZE];
+            for (int solutionIndex = 0; solutionIndex < nbSolutions; solutionIndex++) {
+                PackedGridFormat.pack(transform.toCanonical(solveResult.getSolutionMasks(solutionIndex)),
+                        packedSolutions, solutionIndex * PackedGridFormat.GRID_SIZE);
+            }
+        }
+        this.cache.put(canonicalKey, new SolutionCache.Entry(nbSolutions, solveResult.getNbMaxSolutions(), packedSolutions));
+    }
+
+    /**
+     * Remplit le SolveResult avec les solutions d'une entrée du cache, ramenées dans l'espace de la grille
+     * @param solveResult
+     * @param entry
+     * @param transform : la transformation de la grille vers sa forme canonique
+     */
+    private void answerFromCache(SolveResult solveResult, SolutionCache.Entry entry, GridTransform transform) {
+        solveResult.startTimer();
+        // le noeud racine, comme pour une grille résolue sans embranchement
+        solveResult.incRecursionCounter();
+        if (solveResult.isCountOnly()) {
+            // le nb de solutions seul, en une fois quel qu'il soit
+            solveResult.addSolutionCount(entry.getNbSolutions());
+        } else {
+            short[] canonicalSolution = new short[MaskGrid.NB_CELLS];
+            for (long solutionIndex = 0; solutionIndex < entry.getNbSolutions() && !solveResult.isFull(); solutionIndex++) {
+                entry.getSolution(solutionIndex, canonicalSolution);
+                solveResult.addSolution(transform.fromCanonical(canonicalSolution));
+            }
+        }
+        solveResult.stopTimer();
+    }
+}
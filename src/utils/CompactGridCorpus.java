@@ -0,0 +1,303 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lecteur de recueils de grilles au format une grille par ligne de 81 caractères (cf GridFileParser),
+ * par projection mémoire du fichier
+ * <p>
+ * Les recueils publics comptent jusqu'à des dizaines de millions de lignes : le fichier est projeté en mémoire
+ * par fenêtres d'au plus MAPPING_SIZE octets, et chaque ligne est analysée directement dans la projection,
+ * sans String ni copie. Seule la grille de masques renvoyée pour chaque ligne valide est allouée.<br>
+ * Les lignes sont débarrassées de leurs blancs de début et de fin (dont le '\r' des fins de ligne Windows) ;
+ * celles qui ne font pas 81 chiffres ou '.' (commentaires, lignes vides...) sont ignorées et comptées
+ * (cf getNbSkippedLines).
+ * <p>
+ * Le fichier peut être découpé en plages d'octets alignées sur des débuts de ligne (cf getRangeBoundaries),
+ * chacune lue par son propre Spliterator : plusieurs threads peuvent ainsi analyser le même fichier en parallèle.
+ * grids(true) renvoie directement un stream parallèle, dont les découpages suivent ces mêmes plages.
+ * <p>
+ * Les Spliterators sont indépendants les uns des autres et peuvent être utilisés par des threads différents ;
+ * le recueil doit rester ouvert tant qu'ils sont utilisés.
+ */
+public class CompactGridCorpus implements Closeable {
+
+    /**
+     * La taille maximale d'une fenêtre de projection, en octets
+     */
+    public static final int MAPPING_SIZE = 1 << 28;
+
+    // en dessous de cette taille, trySplit ne découpe plus une plage
+    private static final long MIN_SPLIT_SIZE = 1 << 20;
+
+    // une ligne plus longue, blancs compris, ne peut pas être une grille : elle est ignorée sans être analysée
+    private static final int MAX_LINE_LENGTH = 2 * MaskGrid.NB_CELLS;
+
+    // la taille moyenne d'une ligne, fin de ligne comprise, pour l'estimation du nb de grilles
+    private static final int AVERAGE_LINE_LENGTH = MaskGrid.NB_CELLS + 1;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int mappingSize;
+    private final LongAdder nbSkippedLines = new LongAdder();
+
+    /**
+     * Ouvre un recueil
+     * @param fileName
+     * @throws IOException si le fichier est introuvable ou illisible
+     */
+    public CompactGridCorpus(String fileName) throws IOException {
+        this(fileName, MAPPING_SIZE);
+    }
+
+    /**
+     * Ouvre un recueil, avec des fenêtres de projection de la taille donnée (pour les tests)
+     * @param fileName
+     * @param mappingSize : au moins MAX_LINE_LENGTH + 1 octets
+     * @throws IOException si le fichier est introuvable ou illisible
+     */
+    CompactGridCorpus(String fileName, int mappingSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(fileName));
+        this.fileSize = this.channel.size();
+        this.mappingSize = Math.max(mappingSize, MAX_LINE_LENGTH + 1);
+    }
+
+    /**
+     * Renvoie la taille du fichier
+     * @return long : en octets
+     */
+    public long getFileSize() {
+        return this.fileSize;
+    }
+
+    /**
+     * Renvoie le nb de lignes ignorées (autres que des lignes vides) par tous les Spliterators de ce recueil
+     * @return long
+     */
+    public long getNbSkippedLines() {
+        return this.nbSkippedLines.sum();
+    }
+
+    /**
+     * Découpe le fichier en plages d'octets de tailles voisines, alignées sur des débuts de ligne
+     * <p>
+     * La plage i va de boundaries[i] inclus à boundaries[i + 1] exclu, et peut être lue par spliterator(start, end).
+     * Une plage peut être vide si le fichier contient des lignes très longues.
+     * @param nbRanges
+     * @return long[] : les nbRanges + 1 bornes, de 0 à la taille du fichier
+     * @throws IOException
+     */
+    public long[] getRangeBoundaries(int nbRanges) throws IOException {
+        long[] boundaries = new long[nbRanges + 1];
+        boundaries[nbRanges] = this.fileSize;
+        for (int rangeIndex = 1; rangeIndex < nbRanges; rangeIndex++) {
+            long boundary = this.alignOnLineStart(this.fileSize * rangeIndex / nbRanges);
+            boundaries[rangeIndex] = Math.max(boundary, boundaries[rangeIndex - 1]);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Renvoie un Spliterator de toutes les grilles du fichier
+     * @return Spliterator<short[]>
+     */
+    public Spliterator<short[]> spliterator() {
+        return new RangeSpliterator(0, this.fileSize);
+    }
+
+    /**
+     * Renvoie un Spliterator des grilles d'une plage d'octets (cf getRangeBoundaries)
+     * @param rangeStart : un début de ligne
+     * @param rangeEnd : un début de ligne, ou la taille du fichier
+     * @return Spliterator<short[]>
+     */
+    public Spliterator<short[]> spliterator(long rangeStart, long rangeEnd) {
+        return new RangeSpliterator(rangeStart, rangeEnd);
+    }
+
+    /**
+     * Renvoie un stream de toutes les grilles du fichier, dans l'ordre du fichier
+     * @param isParallel : true pour un stream parallèle, découpé en plages d'octets
+     * @return Stream<short[]>
+     */
+    public Stream<short[]> grids(boolean isParallel) {
+        return StreamSupport.stream(this.spliterator(), isParallel);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Renvoie le début de la première ligne qui commence à la position donnée ou après
+     * @param position
+     * @return long : la taille du fichier s'il n'y a plus de ligne
+     * @throws IOException
+     */
+    private long alignOnLineStart(long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        // la position est un début de ligne si l'octet qui la précède est une fin de ligne
+        long windowStart = position - 1;
+        while (windowStart < this.fileSize) {
+            int windowSize = (int) Math.min(this.mappingSize, this.fileSize - windowStart);
+            MappedByteBuffer window = this.channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            for (int byteIndex = 0; byteIndex < windowSize; byteIndex++) {
+                if (window.get(byteIndex) == '\n') {
+                    return windowStart + byteIndex + 1;
+                }
+            }
+            windowStart += windowSize;
+        }
+        return this.fileSize;
+    }
+
+    /**
+     * Spliterator des grilles d'une plage d'octets alignée sur des débuts de ligne
+     * <p>
+     * trySplit cède la première moitié de la plage restante, coupée au début de ligne qui suit son milieu.
+     */
+    private final class RangeSpliterator implements Spliterator<short[]> {
+
+        private long position; // le début de la prochaine ligne à lire
+        private final long rangeEnd;
+        private MappedByteBuffer window; // la fenêtre de projection courante, null avant la première lecture
+        private long windowStart;
+        private int windowSize;
+
+        private RangeSpliterator(long rangeStart, long rangeEnd) {
+            this.position = rangeStart;
+            this.rangeEnd = rangeEnd;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super short[]> action) {
+            try {
+                while (this.position < this.rangeEnd) {
+                    short[] cellMasks = this.readLine();
+                    if (cellMasks != null) {
+                        action.accept(cellMasks);
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return false;
+        }
+
+        /**
+         * Lit la ligne qui commence à position, et place position au début de la ligne suivante
+         * @return short[] : la grille de la ligne, ou null si la ligne est ignorée
+         * @throws IOException
+         */
+        private short[] readLine() throws IOException {
+            // la ligne, si elle est assez courte pour être une grille, doit tenir entière dans la fenêtre
+            long lineEndLimit = Math.min(this.position + MAX_LINE_LENGTH + 1, this.rangeEnd);
+            if (this.window == null || this.position < this.windowStart
+                    || lineEndLimit > this.windowStart + this.windowSize) {
+                this.mapWindow(this.position);
+            }
+            int lineStart = (int) (this.position - this.windowStart);
+            int searchEnd = (int) (lineEndLimit - this.windowStart);
+            int lineEnd = lineStart;
+            while (lineEnd < searchEnd && this.window.get(lineEnd) != '\n') { lineEnd++; }
+
+            if (lineEnd == searchEnd && lineEndLimit < this.rangeEnd) {
+                // ligne trop longue : ignorée jusqu'à sa fin
+                nbSkippedLines.increment();
+                this.position = this.skipLine(this.windowStart + lineEnd);
+                return null;
+            }
+            this.position = Math.min(this.windowStart + lineEnd + 1, this.rangeEnd);
+
+            // mêmes blancs que String.trim, dont le '\r' des fins de ligne Windows
+            while (lineStart < lineEnd && (this.window.get(lineStart) & 0xFF) <= ' ') { lineStart++; }
+            while (lineEnd > lineStart && (this.window.get(lineEnd - 1) & 0xFF) <= ' ') { lineEnd--; }
+            if (lineEnd == lineStart) {
+                return null;
+            }
+            short[] cellMasks = new short[MaskGrid.NB_CELLS];
+            if (lineEnd - lineStart != MaskGrid.NB_CELLS || !GridFileParser.parseCompactBytes(this.window, lineStart, cellMasks)) {
+                nbSkippedLines.increment();
+                return null;
+            }
+            return cellMasks;
+        }
+
+        /**
+         * Cherche la fin d'une ligne trop longue, en déplaçant la fenêtre autant que nécessaire
+         * @param searchStart
+         * @return long : le début de la ligne suivante, ou la fin de la plage
+         * @throws IOException
+         */
+        private long skipLine(long searchStart) throws IOException {
+            long searchPosition = searchStart;
+            while (searchPosition < this.rangeEnd) {
+                if (searchPosition >= this.windowStart + this.windowSize) {
+                    this.mapWindow(searchPosition);
+                }
+                if (this.window.get((int) (searchPosition - this.windowStart)) == '\n') {
+                    return searchPosition + 1;
+                }
+                searchPosition++;
+            }
+            return this.rangeEnd;
+        }
+
+        /**
+         * Projette une nouvelle fenêtre qui commence à la position donnée, sans dépasser la fin de la plage
+         * @param newWindowStart
+         * @throws IOException
+         */
+        private void mapWindow(long newWindowStart) throws IOException {
+            this.windowStart = newWindowStart;
+            this.windowSize = (int) Math.min(mappingSize, this.rangeEnd - newWindowStart);
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart, this.windowSize);
+        }
+
+        @Override
+        public Spliterator<short[]> trySplit() {
+            long remainingSize = this.rangeEnd - this.position;
+            if (remainingSize < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            long splitPosition;
+            try {
+                splitPosition = alignOnLineStart(this.position + remainingSize / 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (splitPosition >= this.rangeEnd) {
+                return null;
+            }
+            // la première moitié est cédée, cette instance garde la seconde
+            RangeSpliterator firstHalf = new RangeSpliterator(this.position, splitPosition);
+            this.position = splitPosition;
+            this.window = null;
+            return firstHalf;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (this.rangeEnd - this.position) / AVERAGE_LINE_LENGTH;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
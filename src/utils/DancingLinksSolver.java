@@ -0,0 +1,208 @@
+package utils;
+
+/**
+ * Moteur de résolution par couverture exacte (Algorithm X de Knuth, implémenté en "Dancing Links")
+ * <p>
+ * Une grille de sudoku se formule comme un problème de couverture exacte :
+ * <ul>
+ *  <li>729 lignes de matrice, une par couple (cellule, chiffre) encore possible</li>
+ *  <li>324 contraintes (colonnes de matrice), chacune devant être couverte exactement une fois :
+ *      chaque cellule contient un chiffre (81), chaque ligne, chaque colonne et chaque carré contient chaque chiffre (3 x 81)</li>
+ * </ul>
+ * La matrice creuse est représentée par des listes doublement chaînées circulaires stockées dans des tableaux d'int,
+ * ce qui permet de retirer puis de restaurer une contrainte en temps constant par noeud.<br>
+ * À chaque niveau, la contrainte qui a le moins de lignes possibles est choisie : les cellules fixes et les
+ * naked/hidden singles sont ainsi traités sans véritable embranchement.
+ * <p>
+ * Contrairement à Grid.recurseSolve et TrailSolver, ce moteur n'utilise ni le Propagator ni ses techniques :
+ * son coût par noeud est faible et régulier, ce qui le rend plus prévisible pour énumérer un grand nombre de solutions
+ * ou sur des grilles pathologiques.
+ * <p>
+ * Les solutions et les statistiques sont compilées dans le SolveResult fourni :
+ * chaque ligne de matrice essayée compte comme un embranchement (et une passe),
+ * et chaque contrainte qui n'a plus aucune ligne possible comme une grille impossible à résoudre.<br>
+ * Une instance peut être réutilisée pour plusieurs résolutions successives, mais pas par plusieurs threads à la fois.
+ */
+public class DancingLinksSolver implements Solver {
+
+    private static final int NB_CONSTRAINTS = 4 * MaskGrid.NB_CELLS;
+    private static final int NB_ROWS = 9 * MaskGrid.NB_CELLS;
+    private static final int ROOT = 0; // l'en-tête de la liste des contraintes ; la contrainte c a pour en-tête le noeud c + 1
+    private static final int NB_NODES = 1 + NB_CONSTRAINTS + 4 * NB_ROWS;
+
+    // les liens de chaque noeud
+    private final int[] left = new int[NB_NODES];
+    private final int[] right = new int[NB_NODES];
+    private final int[] up = new int[NB_NODES];
+    private final int[] down = new int[NB_NODES];
+    private final int[] headerOf = new int[NB_NODES]; // l'en-tête de la contrainte du noeud
+    private final int[] rowOf = new int[NB_NODES]; // la ligne de matrice du noeud : cellIndex * 9 + digitIndex
+    private final int[] sizes = new int[1 + NB_CONSTRAINTS]; // le nb de lignes restantes de chaque contrainte
+
+    private final int[] chosenRows = new int[MaskGrid.NB_CELLS]; // la solution partielle en cours
+    private final short[] solutionMasks = new short[MaskGrid.NB_CELLS]; // réutilisée, copiée si besoin par le SolveResult
+    private SolveResult solveResult;
+
+    @Override
+    public void solve(SolveResult solveResult) {
+        this.solveResult = solveResult;
+        solveResult.startTimer();
+        this.buildMatrix(solveResult.getCurrentPassResult().getCellMasks());
+        solveResult.incRecursionCounter();
+        solveResult.addNbPasses(1);
+        this.search(0);
+        solveResult.stopTimer();
+        this.solveResult = null;
+    }
+
+    /**
+     * Construit la matrice de couverture, avec une ligne par couple (cellule, chiffre) encore candidat dans la grille
+     * @param cellMasks
+     */
+    private void buildMatrix(short[] cellMasks) {
+        // la liste circulaire des en-têtes de contraintes
+        for (int header = 0; header <= NB_CONSTRAINTS; header++) {
+            this.left[header] = header == 0 ? NB_CONSTRAINTS : header - 1;
+            this.right[header] = header == NB_CONSTRAINTS ? 0 : header + 1;
+            this.up[header] = header;
+            this.down[header] = header;
+            this.headerOf[header] = header;
+            this.sizes[header] = 0;
+        }
+
+        int nextNode = NB_CONSTRAINTS + 1;
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int squareIndex = MaskGrid.getSquareUnit(cellIndex) - MaskGrid.SQUARE_UNITS;
+            for (int digitIndex = 0; digitIndex < 9; digitIndex++) {
+                if ((cellMasks[cellIndex] & (1 << digitIndex)) == 0) { continue; }
+                int[] constraints = {
+                    cellIndex,
+                    MaskGrid.NB_CELLS + MaskGrid.getLineUnit(cellIndex) * 9 + digitIndex,
+                    2 * MaskGrid.NB_CELLS + (cellIndex % 9) * 9 + digitIndex,
+                    3 * MaskGrid.NB_CELLS + squareIndex * 9 + digitIndex
+                };
+                int firstNode = nextNode;
+                for (int constraint : constraints) {
+                    int header = constraint + 1;
+                    int node = nextNode;
+                    nextNode++;
+                    // insertion en bas de la colonne de la contrainte
+                    this.headerOf[node] = header;
+                    this.rowOf[node] = cellIndex * 9 + digitIndex;
+                    this.up[node] = this.up[header];
+                    this.down[node] = header;
+                    this.down[this.up[header]] = node;
+                    this.up[header] = node;
+                    this.sizes[header]++;
+                    // insertion à droite dans la ligne de matrice
+                    this.left[node] = node == firstNode ? node : node - 1;
+                    this.right[node] = firstNode;
+                    this.right[this.left[node]] = node;
+                    this.left[firstNode] = node;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cherche récursivement les lignes de matrice couvrant les contraintes restantes
+     * <p>
+     * La profondeur de récursion est au plus de 81, une ligne étant choisie par cellule.
+     * @param depth : le nb de lignes déjà choisies
+     * @return boolean : true si le quota de solutions est atteint et que la recherche doit s'arrêter
+     */
+    private boolean search(int depth) {
+        if (this.solveResult.isFull()) {
+            // quota atteint par un autre thread (cf SolutionQuota)
+            return true;
+        }
+        if (this.right[ROOT] == ROOT) {
+            this.solveResult.addSolution(this.buildSolution(depth));
+            return this.solveResult.isFull();
+        }
+
+        int header = this.chooseConstraint();
+        if (this.sizes[header] == 0) {
+            this.solveResult.incNbUnsolvableGrids();
+            return false;
+        }
+
+        this.cover(header);
+        boolean isFinished = false;
+        for (int rowNode = this.down[header]; rowNode != header && !isFinished; rowNode = this.down[rowNode]) {
+            this.solveResult.incRecursionCounter();
+            this.solveResult.addNbPasses(1);
+            this.chosenRows[depth] = this.rowOf[rowNode];
+            for (int node = this.right[rowNode]; node != rowNode; node = this.right[node]) {
+                this.cover(this.headerOf[node]);
+            }
+            isFinished = this.search(depth + 1);
+            for (int node = this.left[rowNode]; node != rowNode; node = this.left[node]) {
+                this.uncover(this.headerOf[node]);
+            }
+        }
+        this.uncover(header);
+        return isFinished;
+    }
+
+    /**
+     * Choisit la contrainte restante qui a le moins de lignes possibles
+     * @return int : l'en-tête de la contrainte
+     */
+    private int chooseConstraint() {
+        int bestHeader = this.right[ROOT];
+        for (int header = this.right[bestHeader]; header != ROOT; header = this.right[header]) {
+            if (this.sizes[header] < this.sizes[bestHeader]) {
+                bestHeader = header;
+                if (this.sizes[header] <= 1) { break; } // on ne fera pas mieux
+            }
+        }
+        return bestHeader;
+    }
+
+    /**
+     * Retire une contrainte de la liste des en-têtes, ainsi que toutes les lignes de matrice qui la couvrent
+     * @param header
+     */
+    private void cover(int header) {
+        this.right[this.left[header]] = this.right[header];
+        this.left[this.right[header]] = this.left[header];
+        for (int rowNode = this.down[header]; rowNode != header; rowNode = this.down[rowNode]) {
+            for (int node = this.right[rowNode]; node != rowNode; node = this.right[node]) {
+                this.down[this.up[node]] = this.down[node];
+                this.up[this.down[node]] = this.up[node];
+                this.sizes[this.headerOf[node]]--;
+            }
+        }
+    }
+
+    /**
+     * Restaure une contrainte retirée par cover, dans l'ordre exactement inverse
+     * @param header
+     */
+    private void uncover(int header) {
+        for (int rowNode = this.up[header]; rowNode != header; rowNode = this.up[rowNode]) {
+            for (int node = this.left[rowNode]; node != rowNode; node = this.left[node]) {
+                this.sizes[this.headerOf[node]]++;
+                this.down[this.up[node]] = node;
+                this.up[this.down[node]] = node;
+            }
+        }
+        this.right[this.left[header]] = header;
+        this.left[this.right[header]] = header;
+    }
+
+    /**
+     * Convertit les lignes de matrice choisies en grille de masques
+     * @param nbChosenRows : toujours 81 pour une solution complète
+     * @return short[] : la grille résolue, réutilisée d'une solution à l'autre
+     */
+    private short[] buildSolution(int nbChosenRows) {
+        short[] cellMasks = this.solutionMasks;
+        for (int index = 0; index < nbChosenRows; index++) {
+            int row = this.chosenRows[index];
+            cellMasks[row / 9] = (short) (1 << (row % 9));
+        }
+        return cellMasks;
+    }
+}
@@ -0,0 +1,32 @@
+package utils;
+
+/**
+ * Ordonnancement par fréquence : les chiffres déjà les plus placés dans la grille en premier
+ * <p>
+ * Un chiffre placé 8 fois n'a plus qu'une seule position possible, alors qu'un chiffre encore absent en a 9 :
+ * essayer d'abord les chiffres les plus fréquents revient à essayer d'abord les plus contraints,
+ * dont les branches aboutissent ou échouent le plus vite.
+ * À égalité de fréquence, les candidats sont explorés du plus petit au plus grand.
+ */
+public class DigitFrequencyValueOrdering implements ValueOrdering {
+
+    @Override
+    public int orderCandidates(short[] cellMasks, int cellIndex, int[] orderedCandidates) {
+        int[] digitCounts = new int[9];
+        for (int otherIndex = 0; otherIndex < MaskGrid.NB_CELLS; otherIndex++) {
+            int otherMask = cellMasks[otherIndex];
+            if (MaskGrid.isSingle(otherMask)) {
+                digitCounts[MaskGrid.maskToDigit(otherMask) - 1]++;
+            }
+        }
+
+        int nbCandidates = ValueOrdering.listCandidates(cellMasks, cellIndex, orderedCandidates);
+        int[] scores = new int[9];
+        for (int candidateIndex = 0; candidateIndex < nbCandidates; candidateIndex++) {
+            // score négatif : les plus fréquents d'abord
+            scores[candidateIndex] = -digitCounts[MaskGrid.maskToDigit(orderedCandidates[candidateIndex]) - 1];
+        }
+        ValueOrdering.sortByScore(orderedCandidates, scores, nbCandidates);
+        return nbCandidates;
+    }
+}
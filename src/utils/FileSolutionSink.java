@@ -0,0 +1,68 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.MessageFormat;
+
+/**
+ * Destinataire de solutions qui les écrit dans un fichier, une solution de 81 chiffres par ligne
+ * <p>
+ * Le fichier obtenu peut être relu tel quel par le mode batch (cf BatchSolver).<br>
+ * L'écriture passe par le tampon d'un GridWriter, chaque solution y étant rendue directement en octets :
+ * la recherche n'attend le disque que lorsqu'il est plein.
+ * Une erreur d'écriture (disque plein...) est signalée puis arrête la recherche.
+ * <p>
+ * Les appels à accept sont synchronisés : une même instance peut recevoir les solutions de plusieurs threads.
+ */
+public class FileSolutionSink implements SolutionSink, Closeable {
+
+    private final String fileName;
+    private final GridWriter writer;
+    private boolean hasFailed = false;
+
+    /**
+     * Constructeur, le fichier est créé ou écrasé
+     * @param fileName
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    public FileSolutionSink(String fileName) throws IOException {
+        this.fileName = fileName;
+        this.writer = GridWriter.toFile(fileName);
+    }
+
+    @Override
+    public synchronized boolean accept(short[] cellMasks) {
+        if (this.hasFailed) {
+            return false;
+        }
+        try {
+            this.writer.writeGrid(cellMasks, GridWriter.Layout.COMPACT);
+        } catch (IOException e) {
+            this.reportWriteError();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Vide le tampon puis ferme le fichier
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            this.reportWriteError();
+        }
+    }
+
+    /**
+     * Signale la première erreur d'écriture
+     */
+    private void reportWriteError() {
+        if (!this.hasFailed) {
+            this.hasFailed = true;
+            System.err.println(MessageFormat.format("ERREUR : Impossible d ecrire dans le fichier {0} !", this.fileName));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package utils;
+
+/**
+ * Politique d'embranchement historique : la première cellule à candidats multiples, ligne par ligne
+ * <p>
+ * cf Grid.getFirstForkPoint
+ */
+public class FirstCellBranching implements BranchingPolicy {
+
+    @Override
+    public int selectCell(short[] cellMasks) {
+        return Grid.getFirstForkPoint(cellMasks);
+    }
+}
@@ -0,0 +1,126 @@
+package utils;
+
+/**
+ * Technique des "fish" (X-wing, swordfish, jellyfish) :
+ * si, sur N lignes, un chiffre n'est possible que dans les mêmes N colonnes,
+ * il occupe forcément ces colonnes sur ces lignes et peut être retiré du reste des N colonnes
+ * <p>
+ * La même recherche est faite en inversant les rôles des lignes et des colonnes.<br>
+ * Pour chaque chiffre, chaque ligne (de base) est résumée par le masque des colonnes où il est possible ;
+ * les combinaisons de N lignes sont énumérées en abandonnant dès que l'union dépasse N colonnes.
+ */
+public class FishTechnique implements Technique {
+
+    private static final String[] FISH_NAMES = { "", "", "x-wing", "swordfish", "jellyfish" };
+
+    private final int fishSize;
+
+    /**
+     * Constructeur
+     * @param fishSize : le nb de lignes (ou colonnes) du motif, de 2 (X-wing) à 4 (jellyfish)
+     */
+    public FishTechnique(int fishSize) {
+        if (fishSize < 2 || fishSize > 4) {
+            throw new IllegalArgumentException("taille de motif invalide : " + fishSize);
+        }
+        this.fishSize = fishSize;
+    }
+
+    @Override
+    public String getName() {
+        return FISH_NAMES[this.fishSize];
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        for (int digitIndex = 0; digitIndex < 9; digitIndex++) {
+            if (!this.applyDigit(propagator, 1 << digitIndex, false)
+                    || !this.applyDigit(propagator, 1 << digitIndex, true)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cherche les motifs d'un chiffre, avec les lignes comme base ou bien les colonnes
+     * @param propagator
+     * @param digitMask
+     * @param isTransposed : true si les colonnes servent de base
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private boolean applyDigit(Propagator propagator, int digitMask, boolean isTransposed) {
+        short[] cellMasks = propagator.getCellMasks();
+        int[] basePositions = new int[9]; // pour chaque base, le masque des index de couverture où le chiffre est possible
+        int[] bases = new int[9];
+        int nbBases = 0;
+        for (int base = 0; base < 9; base++) {
+            for (int cover = 0; cover < 9; cover++) {
+                if ((cellMasks[getCellIndex(base, cover, isTransposed)] & digitMask) != 0) {
+                    basePositions[base] |= 1 << cover;
+                }
+            }
+            int nbPositions = Integer.bitCount(basePositions[base]);
+            if (nbPositions >= 2 && nbPositions <= this.fishSize) {
+                bases[nbBases] = base;
+                nbBases++;
+            }
+        }
+        return nbBases < this.fishSize
+                || this.searchFish(propagator, digitMask, isTransposed, basePositions, bases, nbBases, 0, 0, 0, 0);
+    }
+
+    /**
+     * Énumère les combinaisons de bases, et applique chaque motif trouvé
+     * @param propagator
+     * @param digitMask
+     * @param isTransposed
+     * @param basePositions
+     * @param bases : les bases pouvant faire partie d'un motif
+     * @param nbBases
+     * @param start : la première base à essayer
+     * @param depth : le nb de bases déjà choisies
+     * @param coverMask : l'union des positions des bases déjà choisies
+     * @param chosenBases : le masque des bases déjà choisies
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private boolean searchFish(Propagator propagator, int digitMask, boolean isTransposed, int[] basePositions,
+            int[] bases, int nbBases, int start, int depth, int coverMask, int chosenBases) {
+        if (depth == this.fishSize) {
+            if (Integer.bitCount(coverMask) != this.fishSize) {
+                return true;
+            }
+            // le chiffre est retiré des index de couverture sur toutes les autres bases
+            for (int base = 0; base < 9; base++) {
+                if ((chosenBases & (1 << base)) != 0) { continue; }
+                for (int cover = 0; cover < 9; cover++) {
+                    if ((coverMask & (1 << cover)) != 0
+                            && !propagator.eliminate(getCellIndex(base, cover, isTransposed), digitMask)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        for (int index = start; index < nbBases; index++) {
+            int newCoverMask = coverMask | basePositions[bases[index]];
+            if (Integer.bitCount(newCoverMask) <= this.fishSize
+                    && !this.searchFish(propagator, digitMask, isTransposed, basePositions, bases, nbBases,
+                            index + 1, depth + 1, newCoverMask, chosenBases | (1 << bases[index]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renvoie l'index de la cellule à l'intersection d'une base et d'un index de couverture
+     * @param base
+     * @param cover
+     * @param isTransposed : true si les bases sont des colonnes
+     * @return int
+     */
+    private static int getCellIndex(int base, int cover, boolean isTransposed) {
+        return isTransposed ? MaskGrid.getCellIndex(cover, base) : MaskGrid.getCellIndex(base, cover);
+    }
+}
@@ -0,0 +1,36 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Évènement Java Flight Recorder émis pour chaque embranchement de l'arbre de recherche
+ * (cf Grid.recurseSolve et TrailSolver)
+ * <p>
+ * Sa durée couvre le choix de la cellule et l'ordonnancement de ses candidats ; il n'est enregistré qu'une fois
+ * l'embranchement exploré, avec le nb de branches effectivement explorées (moins que de branches si la recherche
+ * s'arrête avant, quota de solutions atteint).<br>
+ * Désactivé par défaut, comme PropagationEvent.
+ */
+@Name("sudoku.Fork")
+@Label("Embranchement")
+@Category("Sudoku")
+@Description("Creation d un embranchement de l arbre de recherche")
+@Enabled(false)
+public class ForkEvent extends jdk.jfr.Event {
+
+    @Label("Profondeur")
+    public int depth;
+
+    @Label("Cellule")
+    public int cellIndex;
+
+    @Label("Candidats")
+    public int nbCandidates;
+
+    @Label("Branches explorees")
+    public int nbBranches;
+}
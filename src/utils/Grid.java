@@ -1,13 +1,14 @@
 
 package utils;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.text.MessageFormat;
-import java.util.regex.*;
+
+import jdk.jfr.FlightRecorder;
 
 /**
  * La classe Grid est une collection de méthodes statiques qui permettent la résolution de grilles de sudoku.
@@ -15,15 +16,20 @@ import java.util.regex.*;
  * Le concept de "cellArray" est beaucoup utilisé et correspond à un tableau d'int à 3 dimensions.<br>
  * soit 2 dimensions pour la "grille" de 9x9 
  * et la dernière dimension pour symboliser une "cellule" pouvant contenir plusieurs valeurs "candidats" potentielles.<br> 
+ * Pendant la résolution en revanche, les grilles sont manipulées sous forme de "cellMasks" (cf MaskGrid),
+ * plus compactes et beaucoup moins coûteuses à copier.<br>
  * 
  * Note : Cette classe ne peut pas être instanciée.
  */
 public class Grid {
     /**
-     * Le nombre maximum de passes récursives autorisées, pour éviter un risque de boucle infinie.
+     * Le nombre maximum de passes (vagues de propagation, cf Propagator) autorisées, pour éviter un risque de boucle infinie.
      */
     public static final int MAX_RECURSION_DEPTH = 81; // arbitraire, certainement pas nécessaire et sur-évalué 
 
+    // le lecteur de fichiers grilles de chaque thread, qui réutilise son tampon d'un fichier à l'autre
+    private static final ThreadLocal<GridFileParser> FILE_PARSERS = ThreadLocal.withInitial(GridFileParser::new);
+
     /**
      * Constructeur privé pour empêcher l'instanciation
      * <p>
@@ -35,91 +41,22 @@ public class Grid {
      **         Vérification des données         **
      **********************************************/
 
-    /**
-     * Vérifie si la chaîne fournie est conforme à la regex "^[1-9.]{9}$".
-     * une ligne valide pour une grille de sudoku doit être composée de 9 caractères
-     * les caractères autorisés sont les chiffres de 1 à 9 et le point "."
-     * 
-     * @param fileLine : une ligne extraite d'un fichier
-     * @return boolean : true si la chaîne matche, false sinon
-     */
-    private static boolean isValidFileLine(String fileLine) {
-        Pattern pattern = Pattern.compile("^[1-9.]{9}$");
-        return pattern.matcher(fileLine).matches();
-    }
-
     /**
      * Parse, si possible, un fichier "grille" en tableau d'int de 9x9.
      * <p>
      * Renvoie un cellArray (int[][][]) si le fichier a bien été trouvé
      * et qu'il contient exactement 9 lignes de 9 caractères valides
      * Renvoie un empty() dans tous les autres cas.
+     * <p>
+     * Le fichier est lu octet par octet par un GridFileParser : pour éviter la conversion en cellArray,
+     * utiliser directement GridFileParser.parseFileGrid, qui renvoie une grille de masques.
      * 
      * @param fileName : le "chemin relatif + nom + extension" du fichier à parser,
      *                 ex : "data\grille_1_1.txt"
      * @return un cellArray( int[][][] ) ou empty()
      */
     public static Optional<int[][][]> parseFileGrid(String fileName) {
-        int[][][] cellArray = new int[9][9][];
-
-        try (Scanner fileScanner = new Scanner(new File(fileName))) {
-            int lineIndex = 0;
-            while (fileScanner.hasNextLine()) {
-                Optional<int[][]> gridLine = parseFileLine(fileScanner.nextLine().trim());
-                if(!gridLine.isEmpty()){
-                    cellArray[lineIndex] = gridLine.get();
-                    lineIndex++;
-                }
-            }
-            fileScanner.close();
-
-            // une grille de sudoku n'est valide que si elle contient exactement 9 lignes valides
-            if (lineIndex != 9) {
-                throw new CustomException("" + lineIndex);
-            }
-
-        } catch (FileNotFoundException e) {
-            String errMsg = MessageFormat.format("ERREUR : Impossible de trouver le fichier {0} !", fileName);
-            System.err.println(errMsg);
-            return Optional.empty();
-        } catch (CustomException e) {
-            String errMsg = MessageFormat.format(
-                    "ERREUR : Le fichier {0} ne comporte pas le bon nombre de lignes valides ({1}/9) !",
-                    fileName, e.getMessage());
-            System.err.println(errMsg);
-            return Optional.empty();
-        }
-
-        return Optional.of(cellArray);
-    }
-
-    /** 
-     * Parse une ligne extraite d'un fichier ssi cette dernière est valide
-     * <p>
-     * Le tableau renvoyé représente 9 cellules d'une ligne pouvant chacune contenir,
-     * soit la valeur parsée depuis le fichier, de [1] à [9], 
-     * soit un tableau de tous les candidats possibles si aucune valeur n'est fournie ('.')  
-     * @param fileLine
-     * @return Optional<int[][]> une ligne d'un cellArray ou empty()
-     */
-    private static Optional<int[][]> parseFileLine(String fileLine) {
-        if ( !isValidFileLine(fileLine)) { return Optional.empty();}
-        // la ligne extraite contient exactement 9 caractères valides (1 à 9 + ".")
-        // on peut la parser caractère par caractère
-        int[][] gridLine = new int[9][];
-            
-        int columnIndex = 0;
-        for (char myChar : fileLine.toCharArray()) {
-            int numericChar = Character.getNumericValue(myChar);
-            // Note : getNumericValue(".") renvoie -1
-            if (numericChar == -1) {
-                gridLine[columnIndex] = new int[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
-            } else {
-                gridLine[columnIndex] = new int[] { numericChar };
-            }
-            columnIndex++;
-        }
-        return Optional.of(gridLine);
+        return FILE_PARSERS.get().parseFileGrid(fileName).map(MaskGrid::toCellArray);
     }
 
     /**
@@ -183,6 +120,72 @@ public class Grid {
         return hasDuplicates;
     }
 
+    /**
+     * Vérifie une grille de masques à la recherche de doublons, comme hasDuplicates(int[][][])
+     * <p>
+     * Les unités sont parcourues dans le même ordre (lignes, colonnes puis carrés) et le même message est affiché
+     * pour le premier doublon, sans passer par un cellArray.
+     * 
+     * @param cellMasks : la grille a vérifier
+     * @return boolean : true si un doublon a été trouvé dans la grille fournie
+     */
+    public static boolean hasDuplicates(short[] cellMasks) {
+        Duplicate duplicate = findDuplicate(cellMasks);
+        if (duplicate == null) {
+            return false;
+        }
+        String errMsg = MessageFormat.format("ERREUR : {0} numero {1}, doublon de {2} !",
+                getFilterName(FilterType.values()[duplicate.unitIndex / 9]), duplicate.unitIndex % 9, duplicate.digit);
+        System.err.println(errMsg);
+        return true;
+    }
+
+    /**
+     * Vérifie une grille de masques à la recherche de doublons, sans rien afficher
+     * <p>
+     * Pour le mode batch, dont la ligne de résultat de chaque grille signale déjà les doublons.
+     * 
+     * @param cellMasks : la grille a vérifier
+     * @return boolean : true si un doublon a été trouvé dans la grille fournie
+     */
+    public static boolean hasDuplicatesSilently(short[] cellMasks) {
+        return findDuplicate(cellMasks) != null;
+    }
+
+    /**
+     * Un chiffre en double dans une unité
+     */
+    private static final class Duplicate {
+        private final int unitIndex; // cf MaskGrid.getUnitCells
+        private final int digit;
+
+        private Duplicate(int unitIndex, int digit) {
+            this.unitIndex = unitIndex;
+            this.digit = digit;
+        }
+    }
+
+    /**
+     * Cherche le premier doublon d'une grille de masques, unité par unité (lignes, colonnes puis carrés)
+     * 
+     * @param cellMasks
+     * @return Duplicate : l'unité et le chiffre en double, ou null s'il n'y a pas de doublon
+     */
+    private static Duplicate findDuplicate(short[] cellMasks) {
+        for (int unitIndex = 0; unitIndex < MaskGrid.NB_UNITS; unitIndex++) {
+            int placedMask = 0;
+            for (int cellIndex : MaskGrid.getUnitCells(unitIndex)) {
+                int mask = cellMasks[cellIndex];
+                if (!MaskGrid.isSingle(mask)) { continue; }
+                if ((placedMask & mask) != 0) {
+                    return new Duplicate(unitIndex, MaskGrid.maskToDigit(mask));
+                }
+                placedMask |= mask;
+            }
+        }
+        return null;
+    }
+
     /**********************************************
      **        Lignes, Colonnes et Carrés        **
      **********************************************/
@@ -384,229 +387,246 @@ public class Grid {
      **              Résolution                  **
      **********************************************/
 
-    /**
-     * Vérifie si un int est présent dans le tableau fourni
-     * 
-     * @param intToFind 
-     * @param arrayToCheck
-     * @return boolean : true si l'int recherché a été trouvé, false sinon
-     */
-    private static boolean isIn(int intToFind, int[] arrayToCheck) {
-        boolean found = false;
-        int index = 0;
-        while (!found && index <= (arrayToCheck.length - 1)) {
-            found = arrayToCheck[index] == intToFind;
-            index++;
-        }
-        return found;
-    }
-    
-    /** 
-     * Filtre le tableau de base pour ne laisser que les valeurs non présentes dans le filtre.
-     * @param baseArray
-     * @param filterArray
-     * @return int[] les valeurs du tableau de base moins celles présentes dans le filtre
-     */
-    private static int[] getDifference(int[] baseArray, int[] filterArray) {
-        int[] newArray = new int[baseArray.length];
-        int newLength = 0;
-        for (int index = 0; index <= baseArray.length - 1; index++) {
-            if (!isIn(baseArray[index], filterArray)) {
-                // la valeur n'est pas dans le filtre, on l'ajoute à notre nouvelle liste
-                newArray[newLength] = baseArray[index];
-                newLength++;
-            }
-        }
-        // renvoie un tableau qui fait exactement la bonne taille
-        return Arrays.copyOf(newArray, newLength);
-    }
-    
-    /** 
-     * Solutionne une grille donnée en faisant des passes successives en récursion
-     * <p>
-     * Chaque successive passe tente de réduire le nombre de candidats possibles pour chaque cellule
-     * La récursion se termine lorsque la grille est solutionnée, qu'elle est jugée impossible,
-     * qu'aucune réduction n'a été effectuée à ce tour ou qu'on a dépassé la profondeur de récursion maximum
-     * 
-     * @param currentCellArray
-     * @return PassResult
-     */
-    private static PassResult recursePass(PassResult currentPassResult, int recursionCounter) {
-        //
-        PassResult newPassResult = new PassResult(currentPassResult.getCellArray());
-        newPassResult.setNbPasses(recursionCounter + 1);
-        int[][][] newCellArray = newPassResult.getCellArray();
-
-        for (int lineIndex = 0; lineIndex < 9; lineIndex++) {
-            for (int columnIndex = 0; columnIndex < 9; columnIndex++) {
-                int nbCurrentCandidates = newCellArray[lineIndex][columnIndex].length;
-                // on ne vérifie que les cellules contenant de multiples candidats
-                if ( nbCurrentCandidates > 1 ) {                                    
-                    int[] newCandidates = getNewCandidates(newCellArray, lineIndex, columnIndex);
-                    if ( newCandidates.length == 0 ) {
-                        newPassResult.setIsUnsolvable();    
-                        return newPassResult;
-                    }
-                    if (newCandidates.length > 1) {
-                        // il reste encore de multiples candidats pour cette cellule
-                        newPassResult.setHasMultipleCandidates();
-                    }
-                    if (newCandidates.length != nbCurrentCandidates ) {
-                        // on indique qu'il ya eu (au moins) une modification du tableau durant cette passe
-                        newPassResult.setIsDirty();
-                        // on mets à jour la liste des candidats
-                        newCellArray[lineIndex][columnIndex] = newCandidates;                        
-                    }
-                    newCellArray[lineIndex][columnIndex] = newCandidates;
-                }
-            }
-        }
-        // une passe vient d'être terminée, on peut avoir besoin d'une nouvelle, dans la limite de récursion 
-        if (newPassResult.needsRecursion() && recursionCounter < Grid.MAX_RECURSION_DEPTH) {
-            recursionCounter++;
-            return recursePass(newPassResult, recursionCounter);
-        }
-        return newPassResult;
-    }
-    
-    /** 
-     * Renvoie toutes les valeurs possible pour la cellule aux coordonnées (lineIndex, columnIndex)
-     * <p>
-     * Trouve les nouveaux candidats en faisant la différence entre la liste actuelle et chaque filtre successif
-     * filtre de ligne, de colonne et de carré
-     * @param cellArray
-     * @param lineIndex 
-     * @param columnIndex
-     * @return int[] 
-     */
-    private static int[] getNewCandidates(int[][][] cellArray, int lineIndex, int columnIndex) {
-        int[] currentCandidates = cellArray[lineIndex][columnIndex];
-        int[] newCandidates = Arrays.copyOf(currentCandidates, currentCandidates.length);
-
-        int filterIndex = 0;
-        while (filterIndex < 3 && newCandidates.length > 0) {
-            int[] myFilter = getFilter(cellArray, lineIndex, columnIndex, FilterType.values()[filterIndex]);
-            newCandidates = getDifference(newCandidates, myFilter);
-            filterIndex++;
-        }
-
-        return newCandidates;
-    }
-    
     /** 
      * Explore différents embranchements d"une grille de façon récursive, à la recherche de solutions valides
      * <P>
-     * Effectue une passe récursive pour tenter de solutionner la grille courante,
+     * Propage les contraintes de la grille courante pour tenter de la solutionner (cf Propagator),
      * Si la grille nécessite une récursion supplémentaire, crée un embranchement
      * et explore successivement chaque branche si si nécessaire
+     * <p>
+     * L'embranchement est binaire, sauf si le solveResult a une stratégie d'ordonnancement des candidats :
+     * il y a alors une branche par candidat (cf exploreValueFork).
      * @param solveResult l'objet contenant les différentes solutions ainsi que les statistiques d'execution
      */
     public static void recurseSolve(SolveResult solveResult) {
+        recurseSolve(solveResult, 0);
+    }
+
+    /**
+     * Explore récursivement l'embranchement courant du solveResult (cf recurseSolve)
+     * @param solveResult
+     * @param depth : la profondeur de l'embranchement dans l'arbre de recherche, pour les évènements JFR
+     */
+    private static void recurseSolve(SolveResult solveResult, int depth) {
         solveResult.incRecursionCounter();
 
         solveResult.startTimer();
-        PassResult currentPassResult = recursePass(solveResult.getCurrentPassResult(), 0);
+        // les évènements JFR ne sont créés qu'une fois un enregistrement démarré (cf PropagationEvent)
+        PropagationEvent propagationEvent = null;
+        long nbEliminationsBefore = 0;
+        if (FlightRecorder.isInitialized()) {
+            propagationEvent = new PropagationEvent();
+            propagationEvent.begin();
+            nbEliminationsBefore = solveResult.getPropagator().getNbEliminations();
+        }
+        PassResult currentPassResult = solveResult.getPropagator().propagate(solveResult.getCurrentPassResult());
+        if (propagationEvent != null) {
+            propagationEvent.end();
+            if (propagationEvent.shouldCommit()) {
+                propagationEvent.depth = depth;
+                propagationEvent.nbEliminatedCandidates =
+                        solveResult.getPropagator().getNbEliminations() - nbEliminationsBefore;
+                propagationEvent.nbWaves = currentPassResult.getNbPasses();
+                propagationEvent.isConsistent = !currentPassResult.isUnsolvable();
+                propagationEvent.commit();
+            }
+        }
         solveResult.updatePassResult(currentPassResult);
         solveResult.stopTimer();
 
-        if (solveResult.needsRecursion()) {
+        if (solveResult.needsRecursion() && solveResult.getValueOrdering() != null) {
+            exploreValueFork(solveResult, depth);
+        } else if (solveResult.needsRecursion()) {
+            ForkEvent forkEvent = null;
+            if (FlightRecorder.isInitialized()) {
+                forkEvent = new ForkEvent();
+                forkEvent.begin();
+            }
             // Crée un embranchement et en explore la première branche
-            int[][][][] cellArrayFork = createFork(solveResult.getCurrentPassResult().getCellArray());
+            PassResult[] passResultFork = createFork(
+                    solveResult.getCurrentPassResult(), solveResult.getBranchingPolicy(), forkEvent);
+            if (forkEvent != null) {
+                forkEvent.end();
+            }
 
-            PassResult firstFork = new PassResult(cellArrayFork[0]);
-            solveResult.setCurrentPassResult(firstFork);
-            Grid.recurseSolve(solveResult);
+            solveResult.setCurrentPassResult(passResultFork[0]);
+            Grid.recurseSolve(solveResult, depth + 1);
+            int nbExploredBranches = 1;
             // vérif si on a notre nbre de soluces
             if (!solveResult.isFull()) {
                 // on n'a pas atteint notre quota de soluces, on explore la seconde branche
-                PassResult secondFork = new PassResult(cellArrayFork[1]);
-                solveResult.setCurrentPassResult(secondFork);
-                Grid.recurseSolve(solveResult);
+                solveResult.setCurrentPassResult(passResultFork[1]);
+                Grid.recurseSolve(solveResult, depth + 1);
+                nbExploredBranches++;
             }
+            commitForkEvent(forkEvent, depth, nbExploredBranches);
         }
         return;
     }
 
+    /**
+     * Renvoie un itérateur paresseux sur les solutions d'une grille, avec les options de résolution par défaut
+     * <p>
+     * Chaque solution n'est cherchée qu'au moment où elle est demandée (cf SolutionSpliterator) :
+     * il n'y a pas de nb de solutions à fixer à l'avance.
+     * @param cellArray : une grille valide (cf hasDuplicates)
+     * @return Iterator : les solutions, dans le même ordre que TrailSolver
+     */
+    public static Iterator<int[][][]> solutionIterator(int[][][] cellArray) {
+        return solutionStream(cellArray).iterator();
+    }
+
+    /**
+     * Renvoie un stream paresseux des solutions d'une grille, avec les options de résolution par défaut
+     * <p>
+     * Les opérations qui court-circuitent (limit, findFirst...) arrêtent la recherche,
+     * et le stream peut être rendu parallèle (cf SolutionSpliterator.trySplit).
+     * @param cellArray : une grille valide (cf hasDuplicates)
+     * @return Stream : les solutions, dans le même ordre que TrailSolver
+     */
+    public static Stream<int[][][]> solutionStream(int[][][] cellArray) {
+        SolveResult solveResult = new SolveResult(cellArray, SolveResult.ALL_SOLUTIONS);
+        return StreamSupport.stream(new SolutionSpliterator(solveResult), false).map(MaskGrid::toCellArray);
+    }
+
+    /**
+     * Enregistre l'évènement JFR d'un embranchement une fois ses branches explorées
+     * <p>
+     * La durée de l'évènement, arrêtée avant l'exploration, ne couvre que la création de l'embranchement.
+     * @param forkEvent : null si aucun enregistrement n'est démarré ; sa cellule et ses candidats déjà renseignés
+     * @param depth
+     * @param nbExploredBranches : moins que de branches si le quota de solutions a été atteint avant la dernière
+     */
+    private static void commitForkEvent(ForkEvent forkEvent, int depth, int nbExploredBranches) {
+        if (forkEvent != null && forkEvent.shouldCommit()) {
+            forkEvent.depth = depth;
+            forkEvent.nbBranches = nbExploredBranches;
+            forkEvent.commit();
+        }
+    }
+
+    /** 
+     * Crée un embranchement avec une branche par candidat et explore successivement chaque branche si nécessaire
+     * <p>
+     * Les candidats sont explorés dans l'ordre donné par la stratégie du solveResult.<br>
+     * Contrairement à l'embranchement binaire, aucune branche "reste des candidats" n'a besoin d'être propagée
+     * puis de nouveau séparée : chaque branche fixe directement la valeur de la cellule.
+     * La grille de chaque branche n'est copiée qu'au moment de l'explorer.
+     * @param solveResult
+     * @param depth : la profondeur de l'embranchement
+     */
+    private static void exploreValueFork(SolveResult solveResult, int depth) {
+        ForkEvent forkEvent = null;
+        if (FlightRecorder.isInitialized()) {
+            forkEvent = new ForkEvent();
+            forkEvent.begin();
+        }
+        PassResult passResultToSplit = solveResult.getCurrentPassResult();
+        short[] cellMasksToSplit = passResultToSplit.getCellMasks();
+        int cellIndex = solveResult.getBranchingPolicy().selectCell(cellMasksToSplit);
+        int[] orderedCandidates = new int[9];
+        int nbCandidates = solveResult.getValueOrdering().orderCandidates(cellMasksToSplit, cellIndex, orderedCandidates);
+        if (forkEvent != null) {
+            forkEvent.end();
+            forkEvent.cellIndex = cellIndex;
+            forkEvent.nbCandidates = nbCandidates;
+        }
+
+        int candidateIndex = 0;
+        while (candidateIndex < nbCandidates && !solveResult.isFull()) {
+            PassResult branch = new PassResult(passResultToSplit);
+            branch.getCellMasks()[cellIndex] = (short) orderedCandidates[candidateIndex];
+            solveResult.setCurrentPassResult(branch);
+            Grid.recurseSolve(solveResult, depth + 1);
+            candidateIndex++;
+        }
+        commitForkEvent(forkEvent, depth, candidateIndex);
+    }
+
     /** 
-     * Renvoie les deux cellArrays qui constituent le premier embranchement possible dans le tableau fourni
+     * Renvoie les deux passResults qui constituent un embranchement dans la grille fournie
      * <p>
-     * Un embranchement doit être créé lorsqu'il reste plusieurs candidats dans une cellule à la fin d'une passe récursive.
-     * @param cellArrayToSplit
-     * @return int[][][][] un tableau contenant 2 cellArrays
+     * Un embranchement doit être créé lorsqu'il reste plusieurs candidats dans une cellule à la fin d'une propagation.
+     * La cellule de l'embranchement est choisie par la politique fournie.
+     * @param passResultToSplit
+     * @param branchingPolicy
+     * @param forkEvent : l'évènement JFR de l'embranchement, qui reçoit sa cellule et ses candidats ; ou null
+     * @return PassResult[] un tableau contenant 2 passResults, chacun avec sa propre copie de la grille
      */
-    private static int[][][][] createFork(int[][][] cellArrayToSplit) {
+    private static PassResult[] createFork(PassResult passResultToSplit, BranchingPolicy branchingPolicy, ForkEvent forkEvent) {
         // création du tableau d'embranchement
-        int[][][][] cellArrayFork = new int[2][][][];
-        cellArrayFork[0] = Grid.cellArrayDeepCopy(cellArrayToSplit);
-        cellArrayFork[1] = Grid.cellArrayDeepCopy(cellArrayToSplit);
+        PassResult[] passResultFork = new PassResult[2];
+        passResultFork[0] = new PassResult(passResultToSplit);
+        passResultFork[1] = new PassResult(passResultToSplit);
 
-        // trouver la premiere case avec multiples candidats
-        int[] coords = getFirstForkPoint(cellArrayToSplit);
-        int[] forkCandidates = cellArrayToSplit[coords[0]][coords[1]];
+        // trouver la case avec multiples candidats sur laquelle créer l'embranchement
+        short[] cellMasksToSplit = passResultToSplit.getCellMasks();
+        int cellIndex = branchingPolicy.selectCell(cellMasksToSplit);
+        int forkCandidates = cellMasksToSplit[cellIndex];
+        int firstCandidate = forkCandidates & -forkCandidates; // isole le bit le plus faible
 
         // on crée l'embranchement : 
-        // le premier tableau contient la première valeur de forkCandidates
-        // le second tableau, toutes les autres valeurs
-        cellArrayFork[0][coords[0]][coords[1]] = new int[]{forkCandidates[0]};
-        int[] remainder = Arrays.copyOfRange(forkCandidates, 1, forkCandidates.length);
-        cellArrayFork[1][coords[0]][coords[1]] = remainder;
-
-        return cellArrayFork;
+        // la première grille contient le plus petit candidat de forkCandidates
+        // la seconde grille, tous les autres
+        // (si l'une des deux branches est résolue, sa propagation se fera à partir de cette seule cellule)
+        passResultFork[0].getCellMasks()[cellIndex] = (short) firstCandidate;
+        passResultFork[1].getCellMasks()[cellIndex] = (short) (forkCandidates & ~firstCandidate);
+
+        if (forkEvent != null) {
+            forkEvent.cellIndex = cellIndex;
+            forkEvent.nbCandidates = Integer.bitCount(forkCandidates);
+        }
+        return passResultFork;
     }
 
     /** 
-     * Renvoie les coordonnées (ligne, colonne) de la première cellule trouvée qui contient plusieurs candidats
-     * Cette fonction n'est utilisée que sur des tableaux "multi-candidats" d'où l'absence de vérifications qu'on a bien trouvé
-     * @param cellArray 
-     * @return int[] les coordonnées de la cellule sous la forme d'un tableau {ligne, colonne}
+     * Renvoie l'index de la première cellule trouvée (ligne par ligne) qui contient plusieurs candidats
+     * Cette fonction n'est utilisée que sur des grilles "multi-candidats" d'où l'absence de vérifications qu'on a bien trouvé
+     * (c'est la politique d'embranchement par défaut, cf FirstCellBranching)
+     * @param cellMasks 
+     * @return int l'index de la cellule dans la grille de masques (de 0 à 80)
      */
-    private static int[] getFirstForkPoint(int[][][] cellArray) {
-        int lineIndex = 0;
-        int columnIndex = 0;
-        boolean found = false;
-        
-        // sort des deux boucles dès qu'on a trouvé la première cellule "multi-candidats"
-        do {
-            columnIndex = 0;
-            do{
-                found = cellArray[lineIndex][columnIndex].length > 1;
-            }
-            while (!found && ++columnIndex <= cellArray[lineIndex].length - 1);                
-        } while (!found && ++lineIndex <= cellArray.length - 1);
-
-        return new int[] { lineIndex, columnIndex };
+    public static int getFirstForkPoint(short[] cellMasks) {
+        int cellIndex = 0;
+        // sort de la boucle dès qu'on a trouvé la première cellule "multi-candidats"
+        while (cellIndex < MaskGrid.NB_CELLS - 1 && MaskGrid.getNbCandidates(cellMasks[cellIndex]) <= 1) {
+            cellIndex++;
+        }
+        return cellIndex;
     }
     
     /** 
      * Renvoie une string contenant une grille prête à afficher
      * <p>
      * Les cellules indéterminées (contenant plusieurs candidats potentiels) sont affichées avec un "." 
+     * <p>
+     * Pour afficher ou écrire de nombreuses grilles, GridWriter produit la même mise en page sans String intermédiaire.
      * @param cellArray la grille à afficher
      * @return String
      */
     public static String cellArrayToString(int[][][] cellArray) {
-        String returnString = "";
+        // 13 lignes de 27 caractères, fins de ligne comprises
+        StringBuilder gridBuilder = new StringBuilder(13 * 27);
 
-        returnString += " -------------------------";
+        gridBuilder.append(" -------------------------");
         for (int lineIndex = 0; lineIndex < 9; lineIndex++) {
             // création d'une ligne caractère par caractère
-            String lineString = "\n |";
+            gridBuilder.append("\n |");
             for (int columnIndex = 0; columnIndex < 9; columnIndex++) {
-                String myChar = (cellArray[lineIndex][columnIndex].length == 1)
-                        ? String.valueOf(cellArray[lineIndex][columnIndex][0])
-                        : ".";
-                lineString += " " + myChar;
+                char myChar = (cellArray[lineIndex][columnIndex].length == 1)
+                        ? (char) ('0' + cellArray[lineIndex][columnIndex][0])
+                        : '.';
+                gridBuilder.append(' ').append(myChar);
                 // ajoute un pipe toutes les 3 colonnes
                 if (columnIndex % 3 == 2) {
-                    lineString += " |";
+                    gridBuilder.append(" |");
                 }
             }
-            returnString += lineString;
             // ajoute une ligne de séparation toutes les 3 lignes
             if (lineIndex % 3 == 2) {
-                returnString +="\n -------------------------";
+                gridBuilder.append("\n -------------------------");
             }
         }
-        return returnString + "\n";
+        return gridBuilder.append('\n').toString();
     }
 }
\ No newline at end of file
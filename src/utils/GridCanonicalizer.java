@@ -0,0 +1,383 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Calcule la forme canonique d'une grille : le même représentant pour toutes les grilles qui ne diffèrent
+ * que par un renommage des chiffres, une permutation des lignes dans leur bande ou des colonnes dans leur pile,
+ * une permutation des bandes ou des piles, ou une transposition
+ * <p>
+ * La forme canonique est la plus petite grille transformée, selon l'ordre suivant :
+ * <ul>
+ *  <li>d'abord la disposition des cellules données, lue ligne après ligne, une cellule vide passant avant
+ *      une cellule donnée ;</li>
+ *  <li>à disposition égale, les chiffres lus dans le même ordre, renommés dans leur ordre d'apparition
+ *      (le premier chiffre rencontré devient 1, le suivant 2...).</li>
+ * </ul>
+ * La disposition minimale se cherche sans les chiffres. Pour une disposition des colonnes (transposition, ordre
+ * des piles, ordre des colonnes dans chaque pile), le meilleur ordre des lignes s'obtient en triant les lignes
+ * de chaque bande puis les bandes ; sa première ligne est alors la plus petite des lignes. Parmi les 2 x 1296
+ * dispositions des colonnes, seules celles qui donnent à une ligne la plus petite disposition possible
+ * (cf getMinRowPattern) sont donc examinées. Seules les transformations qui donnent la disposition
+ * minimale sont ensuite comparées chiffre par chiffre.<br>
+ * Pour une disposition très symétrique (grille presque vide...), ces transformations sont trop nombreuses :
+ * au-delà de MAX_CANDIDATE_TRANSFORMS, la grille n'est pas canonisée.
+ * <p>
+ * Une instance réutilise ses tableaux d'une grille à l'autre : elle ne doit pas être utilisée par plusieurs threads
+ * à la fois.
+ */
+public class GridCanonicalizer {
+
+    /**
+     * Le nb maximum de transformations comparées chiffre par chiffre pour une grille
+     */
+    public static final int MAX_CANDIDATE_TRANSFORMS = 1 << 12;
+
+    // les 6 permutations de 3 éléments
+    private static final int[][] PERMUTATIONS = { {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0} };
+
+    // le nb de dispositions des colonnes pour une orientation : 6 ordres des piles x 6^3 ordres des colonnes
+    private static final int NB_COLUMN_ORDERS = 6 * 6 * 6 * 6;
+
+    private final int[] givens = new int[MaskGrid.NB_CELLS]; // le chiffre de chaque cellule, 0 si elle est vide
+    private final int[][] rowChunks = new int[9][18]; // les 3 bits de chaque pile d'une ligne, pour chaque ordre de la pile
+    private final int[] rowPatterns = new int[9];
+    private final int[] bandKeys = new int[3];
+    private final int[] unsortedBandKeys = new int[3];
+    private final int[] bestBandKeys = new int[3];
+    private final int[][] minRowPatterns = new int[2][9]; // cf getMinRowPattern, pour chaque orientation
+    private final int[] tiedColumnOrders = new int[2 * NB_COLUMN_ORDERS];
+    private int nbTiedColumnOrders;
+    private final int[] columnOrderMarks = new int[2 * NB_COLUMN_ORDERS]; // les ordres des colonnes déjà comparés
+    private int currentMark = 0;
+
+    // la meilleure transformation comparée, et la transformation en cours de comparaison
+    private int[] bestDigits = new int[MaskGrid.NB_CELLS];
+    private int[] bestCellMap = new int[MaskGrid.NB_CELLS];
+    private int[] bestDigitMap = new int[10];
+    private int[] candidateDigits = new int[MaskGrid.NB_CELLS];
+    private int[] candidateCellMap = new int[MaskGrid.NB_CELLS];
+    private int[] candidateDigitMap = new int[10];
+    private boolean hasBest;
+    private int nbCandidates;
+
+    private final int[] columnOrder = new int[9];
+    private final int[] rowOrder = new int[9];
+
+    /**
+     * Calcule la forme canonique d'une grille de départ
+     * @param cellMasks : une grille dont chaque cellule est soit donnée (un seul candidat), soit vide (tous les candidats)
+     * @return GridTransform : la transformation de la grille vers sa forme canonique, ou null si la grille a des cellules
+     * partiellement contraintes (un sous-arbre de recherche...) ou une disposition trop symétrique
+     */
+    public GridTransform canonicalize(short[] cellMasks) {
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int mask = cellMasks[cellIndex];
+            if (MaskGrid.isSingle(mask)) {
+                this.givens[cellIndex] = MaskGrid.maskToDigit(mask);
+            } else if (mask == MaskGrid.ALL_CANDIDATES) {
+                this.givens[cellIndex] = 0;
+            } else {
+                return null;
+            }
+        }
+
+        // 1. les dispositions des colonnes qui donnent la disposition minimale des cellules données :
+        // sa première ligne est la plus petite disposition possible d'une ligne, dans l'une ou l'autre orientation
+        int minFirstRowPattern = Integer.MAX_VALUE;
+        for (int transposition = 0; transposition < 2; transposition++) {
+            this.buildRowChunks(transposition == 1);
+            for (int row = 0; row < 9; row++) {
+                this.minRowPatterns[transposition][row] = this.getMinRowPattern(row);
+                minFirstRowPattern = Math.min(minFirstRowPattern, this.minRowPatterns[transposition][row]);
+            }
+        }
+        if (this.currentMark == Integer.MAX_VALUE) {
+            Arrays.fill(this.columnOrderMarks, 0);
+            this.currentMark = 0;
+        }
+        this.currentMark++;
+        this.nbTiedColumnOrders = 0;
+        for (int transposition = 1; transposition >= 0; transposition--) {
+            if (transposition == 0) {
+                this.buildRowChunks(false);
+            }
+            for (int row = 0; row < 9; row++) {
+                if (this.minRowPatterns[transposition][row] == minFirstRowPattern) {
+                    this.compareColumnOrders(row, transposition);
+                }
+            }
+        }
+
+        // 2. parmi les transformations qui donnent cette disposition, celle qui donne les plus petits chiffres
+        this.hasBest = false;
+        this.nbCandidates = 0;
+        for (int tieIndex = 0; tieIndex < this.nbTiedColumnOrders; tieIndex++) {
+            int tiedColumnOrder = this.tiedColumnOrders[tieIndex];
+            boolean isTransposed = tiedColumnOrder >= NB_COLUMN_ORDERS;
+            int columnOrderIndex = tiedColumnOrder % NB_COLUMN_ORDERS;
+            // les dispositions transposées sont toutes avant les autres
+            if (tieIndex == 0 || isTransposed != this.tiedColumnOrders[tieIndex - 1] >= NB_COLUMN_ORDERS) {
+                this.buildRowChunks(isTransposed);
+            }
+            this.buildRowPatterns(columnOrderIndex);
+            this.buildColumnOrder(columnOrderIndex);
+            if (!this.compareRowOrders(isTransposed)) {
+                return null;
+            }
+        }
+
+        short[] canonicalGrid = new short[MaskGrid.NB_CELLS];
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int digit = this.bestDigits[cellIndex];
+            canonicalGrid[cellIndex] = digit == 0 ? MaskGrid.ALL_CANDIDATES : MaskGrid.digitToMask(digit);
+        }
+        return new GridTransform(canonicalGrid, this.bestCellMap, this.bestDigitMap);
+    }
+
+    /**
+     * Renvoie la plus petite disposition que peut prendre une ligne, quel que soit l'ordre des colonnes :
+     * les piles rangées de la moins remplie à la plus remplie, les cellules données de chaque pile à droite
+     * @param row
+     * @return int
+     */
+    private int getMinRowPattern(int row) {
+        int[] chunks = this.rowChunks[row];
+        int[] minChunks = new int[3];
+        for (int stack = 0; stack < 3; stack++) {
+            minChunks[stack] = (1 << Integer.bitCount(chunks[stack * 6])) - 1;
+        }
+        sortThree(minChunks);
+        return (minChunks[0] << 6) | (minChunks[1] << 3) | minChunks[2];
+    }
+
+    /**
+     * Compare à la meilleure disposition tous les ordres des colonnes qui donnent à une ligne
+     * sa plus petite disposition (cf getMinRowPattern)
+     * @param row
+     * @param transposition : 0 pour la grille, 1 pour la grille transposée
+     */
+    private void compareColumnOrders(int row, int transposition) {
+        int[] chunks = this.rowChunks[row];
+        for (int stackOrderIndex = 0; stackOrderIndex < 6; stackOrderIndex++) {
+            int[] stackOrder = PERMUTATIONS[stackOrderIndex];
+            int count0 = Integer.bitCount(chunks[stackOrder[0] * 6]);
+            int count1 = Integer.bitCount(chunks[stackOrder[1] * 6]);
+            int count2 = Integer.bitCount(chunks[stackOrder[2] * 6]);
+            if (count0 > count1 || count1 > count2) {
+                continue;
+            }
+            for (int permutationIndex0 = 0; permutationIndex0 < 6; permutationIndex0++) {
+                if (chunks[stackOrder[0] * 6 + permutationIndex0] != (1 << count0) - 1) { continue; }
+                for (int permutationIndex1 = 0; permutationIndex1 < 6; permutationIndex1++) {
+                    if (chunks[stackOrder[1] * 6 + permutationIndex1] != (1 << count1) - 1) { continue; }
+                    for (int permutationIndex2 = 0; permutationIndex2 < 6; permutationIndex2++) {
+                        if (chunks[stackOrder[2] * 6 + permutationIndex2] != (1 << count2) - 1) { continue; }
+                        int columnOrderIndex = stackOrderIndex * 216 + permutationIndex0 * 36 + permutationIndex1 * 6 + permutationIndex2;
+                        int tiedColumnOrder = transposition * NB_COLUMN_ORDERS + columnOrderIndex;
+                        // plusieurs lignes peuvent prendre la plus petite disposition avec le même ordre des colonnes
+                        if (this.columnOrderMarks[tiedColumnOrder] == this.currentMark) {
+                            continue;
+                        }
+                        this.columnOrderMarks[tiedColumnOrder] = this.currentMark;
+                        this.buildRowPatterns(columnOrderIndex);
+                        this.buildBandKeys();
+                        int comparison = this.nbTiedColumnOrders == 0 ? -1 : compareBandKeys(this.bandKeys, this.bestBandKeys);
+                        if (comparison < 0) {
+                            System.arraycopy(this.bandKeys, 0, this.bestBandKeys, 0, 3);
+                            this.nbTiedColumnOrders = 0;
+                        }
+                        if (comparison <= 0) {
+                            this.tiedColumnOrders[this.nbTiedColumnOrders++] = tiedColumnOrder;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcule, pour chaque ligne et chaque pile, les 3 bits des cellules données de la pile dans chacun de ses 6 ordres
+     * @param isTransposed : true pour travailler sur la grille transposée
+     */
+    private void buildRowChunks(boolean isTransposed) {
+        for (int row = 0; row < 9; row++) {
+            for (int stack = 0; stack < 3; stack++) {
+                for (int permutationIndex = 0; permutationIndex < 6; permutationIndex++) {
+                    int chunk = 0;
+                    for (int position = 0; position < 3; position++) {
+                        int column = 3 * stack + PERMUTATIONS[permutationIndex][position];
+                        int cellIndex = isTransposed ? column * 9 + row : row * 9 + column;
+                        chunk = (chunk << 1) | (this.givens[cellIndex] != 0 ? 1 : 0);
+                    }
+                    this.rowChunks[row][stack * 6 + permutationIndex] = chunk;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcule la disposition de chaque ligne pour un ordre des colonnes : 9 bits, la première colonne
+     * dans le bit de poids fort
+     * @param columnOrderIndex : l'ordre des piles, puis l'ordre des colonnes de chacune des 3 piles ainsi placées
+     */
+    private void buildRowPatterns(int columnOrderIndex) {
+        int[] stackOrder = PERMUTATIONS[columnOrderIndex / 216];
+        int chunkIndex0 = stackOrder[0] * 6 + (columnOrderIndex / 36) % 6;
+        int chunkIndex1 = stackOrder[1] * 6 + (columnOrderIndex / 6) % 6;
+        int chunkIndex2 = stackOrder[2] * 6 + columnOrderIndex % 6;
+        for (int row = 0; row < 9; row++) {
+            int[] chunks = this.rowChunks[row];
+            this.rowPatterns[row] = (chunks[chunkIndex0] << 6) | (chunks[chunkIndex1] << 3) | chunks[chunkIndex2];
+        }
+    }
+
+    /**
+     * Calcule les clés des bandes à partir des dispositions des lignes (cf buildRowPatterns), et les trie :
+     * c'est la disposition minimale pour l'ordre des colonnes courant
+     */
+    private void buildBandKeys() {
+        for (int band = 0; band < 3; band++) {
+            this.bandKeys[band] = this.getBandKey(band);
+        }
+        sortThree(this.bandKeys);
+    }
+
+    /**
+     * Renvoie la clé d'une bande : les dispositions de ses 3 lignes (cf buildRowPatterns), triées
+     * @param band
+     * @return int : 27 bits, la plus petite disposition dans les bits de poids fort
+     */
+    private int getBandKey(int band) {
+        int pattern0 = this.rowPatterns[3 * band];
+        int pattern1 = this.rowPatterns[3 * band + 1];
+        int pattern2 = this.rowPatterns[3 * band + 2];
+        int minPattern = Math.min(pattern0, Math.min(pattern1, pattern2));
+        int maxPattern = Math.max(pattern0, Math.max(pattern1, pattern2));
+        int middlePattern = pattern0 + pattern1 + pattern2 - minPattern - maxPattern;
+        return (minPattern << 18) | (middlePattern << 9) | maxPattern;
+    }
+
+    /**
+     * Calcule l'index de la colonne d'origine de chaque colonne canonique
+     * @param columnOrderIndex
+     */
+    private void buildColumnOrder(int columnOrderIndex) {
+        int[] stackOrder = PERMUTATIONS[columnOrderIndex / 216];
+        int[] stackPermutationIndexes = { (columnOrderIndex / 36) % 6, (columnOrderIndex / 6) % 6, columnOrderIndex % 6 };
+        for (int position = 0; position < 9; position++) {
+            int[] columnPermutation = PERMUTATIONS[stackPermutationIndexes[position / 3]];
+            this.columnOrder[position] = 3 * stackOrder[position / 3] + columnPermutation[position % 3];
+        }
+    }
+
+    /**
+     * Compare chiffre par chiffre tous les ordres des lignes qui donnent la disposition minimale, pour l'ordre
+     * des colonnes courant : les bandes dans l'ordre de leurs clés, les lignes de chaque bande dans l'ordre
+     * de leur disposition, les bandes ou les lignes égales dans tous leurs ordres
+     * @param isTransposed
+     * @return boolean : false si le nb maximum de transformations comparées est dépassé
+     */
+    private boolean compareRowOrders(boolean isTransposed) {
+        for (int band = 0; band < 3; band++) {
+            this.unsortedBandKeys[band] = this.getBandKey(band);
+        }
+        for (int[] bandOrder : PERMUTATIONS) {
+            if (this.unsortedBandKeys[bandOrder[0]] > this.unsortedBandKeys[bandOrder[1]]
+                    || this.unsortedBandKeys[bandOrder[1]] > this.unsortedBandKeys[bandOrder[2]]) {
+                continue;
+            }
+            for (int[] rowPermutation0 : PERMUTATIONS) {
+                if (!this.isSortedBand(bandOrder[0], rowPermutation0)) { continue; }
+                for (int[] rowPermutation1 : PERMUTATIONS) {
+                    if (!this.isSortedBand(bandOrder[1], rowPermutation1)) { continue; }
+                    for (int[] rowPermutation2 : PERMUTATIONS) {
+                        if (!this.isSortedBand(bandOrder[2], rowPermutation2)) { continue; }
+                        if (++this.nbCandidates > MAX_CANDIDATE_TRANSFORMS) {
+                            return false;
+                        }
+                        for (int position = 0; position < 3; position++) {
+                            this.rowOrder[position] = 3 * bandOrder[0] + rowPermutation0[position];
+                            this.rowOrder[3 + position] = 3 * bandOrder[1] + rowPermutation1[position];
+                            this.rowOrder[6 + position] = 3 * bandOrder[2] + rowPermutation2[position];
+                        }
+                        this.compareCandidate(isTransposed);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vérifie si un ordre des lignes d'une bande range leurs dispositions dans l'ordre croissant
+     * @param band
+     * @param rowPermutation
+     * @return boolean
+     */
+    private boolean isSortedBand(int band, int[] rowPermutation) {
+        return this.rowPatterns[3 * band + rowPermutation[0]] <= this.rowPatterns[3 * band + rowPermutation[1]]
+                && this.rowPatterns[3 * band + rowPermutation[1]] <= this.rowPatterns[3 * band + rowPermutation[2]];
+    }
+
+    /**
+     * Renomme les chiffres de la transformation courante (rowOrder, columnOrder) dans leur ordre d'apparition,
+     * et la garde si elle donne des chiffres plus petits que la meilleure ; abandonne dès qu'elle est plus grande
+     * @param isTransposed
+     */
+    private void compareCandidate(boolean isTransposed) {
+        Arrays.fill(this.candidateDigitMap, 0);
+        int nbDigits = 0;
+        boolean isSmaller = !this.hasBest;
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int row = this.rowOrder[cellIndex / 9];
+            int column = this.columnOrder[cellIndex % 9];
+            int originalCellIndex = isTransposed ? column * 9 + row : row * 9 + column;
+            int digit = this.givens[originalCellIndex];
+            if (digit != 0 && this.candidateDigitMap[digit] == 0) {
+                this.candidateDigitMap[digit] = ++nbDigits;
+            }
+            int canonicalDigit = digit == 0 ? 0 : this.candidateDigitMap[digit];
+            if (!isSmaller) {
+                if (canonicalDigit > this.bestDigits[cellIndex]) {
+                    return;
+                }
+                isSmaller = canonicalDigit < this.bestDigits[cellIndex];
+            }
+            this.candidateDigits[cellIndex] = canonicalDigit;
+            this.candidateCellMap[cellIndex] = originalCellIndex;
+        }
+        if (!isSmaller && this.hasBest) {
+            return; // égale à la meilleure : une symétrie de la grille
+        }
+        int[] swap = this.bestDigits; this.bestDigits = this.candidateDigits; this.candidateDigits = swap;
+        swap = this.bestCellMap; this.bestCellMap = this.candidateCellMap; this.candidateCellMap = swap;
+        swap = this.bestDigitMap; this.bestDigitMap = this.candidateDigitMap; this.candidateDigitMap = swap;
+        this.hasBest = true;
+    }
+
+    /**
+     * Compare deux triplets de clés de bandes dans l'ordre lexicographique
+     * @param bandKeys
+     * @param otherBandKeys
+     * @return int : négatif, nul ou positif
+     */
+    private static int compareBandKeys(int[] bandKeys, int[] otherBandKeys) {
+        for (int band = 0; band < 3; band++) {
+            if (bandKeys[band] != otherBandKeys[band]) {
+                return Integer.compare(bandKeys[band], otherBandKeys[band]);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Trie 3 entiers dans l'ordre croissant
+     * @param values
+     */
+    private static void sortThree(int[] values) {
+        if (values[0] > values[1]) { int swap = values[0]; values[0] = values[1]; values[1] = swap; }
+        if (values[1] > values[2]) { int swap = values[1]; values[1] = values[2]; values[2] = swap; }
+        if (values[0] > values[1]) { int swap = values[0]; values[0] = values[1]; values[1] = swap; }
+    }
+}
@@ -0,0 +1,318 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.Optional;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Lecteur de fichiers grilles octet par octet, sans expression régulière, Scanner ni String
+ * <p>
+ * Le fichier est lu par blocs dans un ByteBuffer réutilisé d'un fichier à l'autre, et chaque ligne est analysée
+ * directement dans le tampon puis écrite dans une grille de masques (cf MaskGrid) :
+ * aucune allocation par ligne ni par cellule.<br>
+ * Les lignes sont reconnues ainsi :
+ * <ul>
+ *  <li>les lignes sont séparées par '\n' et/ou '\r', et débarrassées de leurs blancs de début et de fin (comme String.trim)</li>
+ *  <li>une ligne de grille fait exactement 9 caractères parmi les chiffres de 1 à 9 et le '.' (cellule vide)</li>
+ *  <li>en mode multi-grilles seulement, une grille complète peut aussi tenir sur une ligne de 81 caractères,
+ *      les cellules vides notées '.' ou '0'</li>
+ *  <li>toutes les autres lignes (commentaires '#', lignes vides, texte accentué dans n'importe quel encodage)
+ *      sont ignorées</li>
+ * </ul>
+ * Les archives au format binaire compact (cf PackedGridFormat) sont reconnues à leur signature
+ * et lues par un PackedGridReader.<br>
+ * Les erreurs sont signalées avec les mêmes messages que Grid.parseFileGrid et BatchSolver, sans exception.
+ * <p>
+ * Une instance peut être réutilisée pour plusieurs fichiers successifs, mais pas par plusieurs threads à la fois.
+ */
+public class GridFileParser {
+
+    /**
+     * La taille du tampon de lecture, en octets
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    // le masque de chaque octet dans une ligne de grille, 0 pour un octet invalide
+    private static final short[] BYTE_MASKS = buildByteMasks();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // l'état de la lecture en cours
+    private ObjIntConsumer<short[]> gridConsumer; // null pour un fichier d'une seule grille
+    private short[] gridMasks;
+    private int nbGridLines;
+    private int nbFileGrids;
+
+    /**
+     * Lit un fichier d'une seule grille : exactement 9 lignes valides, les autres lignes étant ignorées
+     * (cf Grid.parseFileGrid), ou une archive compacte d'une seule grille
+     * @param fileName
+     * @return Optional<short[]> : la grille de masques, ou empty() si le fichier est introuvable ou invalide
+     */
+    public Optional<short[]> parseFileGrid(String fileName) {
+        if (PackedGridFormat.isPackedFile(fileName)) {
+            return parsePackedGrid(fileName);
+        }
+        this.gridConsumer = null;
+        this.gridMasks = new short[MaskGrid.NB_CELLS];
+        this.nbGridLines = 0;
+        this.nbFileGrids = 0;
+        if (!this.readFile(fileName)) {
+            return Optional.empty();
+        }
+        // une grille de sudoku n'est valide que si elle contient exactement 9 lignes valides
+        if (this.nbGridLines != 9) {
+            String errMsg = MessageFormat.format(
+                    "ERREUR : Le fichier {0} ne comporte pas le bon nombre de lignes valides ({1}/9) !",
+                    fileName, this.nbGridLines);
+            System.err.println(errMsg);
+            return Optional.empty();
+        }
+        return Optional.of(this.gridMasks);
+    }
+
+    /**
+     * Lit un fichier multi-grilles (cf BatchSolver) : des groupes de 9 lignes valides et/ou des lignes de 81 caractères,
+     * ou une archive compacte
+     * <p>
+     * Chaque grille est transmise dès qu'elle est complète, dans un nouveau tableau que le destinataire peut conserver.
+     * @param fileName
+     * @param gridConsumer : reçoit chaque grille et son numéro dans le fichier, à partir de 1
+     * (pour une archive compacte, le numéro de son enregistrement à partir de 1)
+     * @return boolean : false si le fichier est introuvable, illisible, sans aucune grille
+     * ou s'il se termine par une grille incomplète
+     */
+    public boolean parseFileGrids(String fileName, ObjIntConsumer<short[]> gridConsumer) {
+        if (PackedGridFormat.isPackedFile(fileName)) {
+            return parsePackedGrids(fileName, gridConsumer);
+        }
+        this.gridConsumer = gridConsumer;
+        this.gridMasks = new short[MaskGrid.NB_CELLS];
+        this.nbGridLines = 0;
+        this.nbFileGrids = 0;
+        boolean isRead = this.readFile(fileName);
+        this.gridConsumer = null;
+        if (!isRead) {
+            return false;
+        }
+        // une grille incomplète en fin de fichier, ou un fichier sans aucune grille
+        if (this.nbGridLines != 0 || this.nbFileGrids == 0) {
+            String errMsg = MessageFormat.format(
+                    "ERREUR : Le fichier {0} ne comporte pas le bon nombre de lignes valides ({1}/9) !",
+                    fileName, this.nbGridLines);
+            System.err.println(errMsg);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lit une archive compacte qui ne doit contenir qu'une seule grille valide
+     * @param fileName
+     * @return Optional<short[]> : la grille de masques, ou empty() si l'archive est illisible ou invalide
+     */
+    private static Optional<short[]> parsePackedGrid(String fileName) {
+        try (PackedGridReader reader = new PackedGridReader(fileName)) {
+            short[] cellMasks = reader.getNbRecords() == 1 ? reader.readGrid(0) : null;
+            if (cellMasks == null) {
+                String errMsg = MessageFormat.format(
+                        "ERREUR : L archive {0} ne comporte pas une seule grille valide ({1,number,#} grilles), utiliser --batch !",
+                        fileName, reader.getNbRecords());
+                System.err.println(errMsg);
+                return Optional.empty();
+            }
+            return Optional.of(cellMasks);
+        } catch (IOException e) {
+            System.err.println(MessageFormat.format("ERREUR : Impossible de lire le fichier {0} !", fileName));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Lit toutes les grilles valides d'une archive compacte, dans l'ordre des enregistrements
+     * <p>
+     * Les enregistrements invalides sont ignorés, comme les lignes invalides d'un fichier texte.
+     * @param fileName
+     * @param gridConsumer : reçoit chaque grille et le numéro de son enregistrement, à partir de 1
+     * @return boolean : false si l'archive est illisible ou sans aucune grille valide
+     */
+    private static boolean parsePackedGrids(String fileName, ObjIntConsumer<short[]> gridConsumer) {
+        try (PackedGridReader reader = new PackedGridReader(fileName)) {
+            int nbValidGrids = 0;
+            for (long recordIndex = 0; recordIndex < reader.getNbRecords(); recordIndex++) {
+                short[] cellMasks = reader.readGrid(recordIndex);
+                if (cellMasks != null) {
+                    nbValidGrids++;
+                    gridConsumer.accept(cellMasks, (int) (recordIndex + 1));
+                }
+            }
+            if (nbValidGrids == 0) {
+                System.err.println(MessageFormat.format("ERREUR : L archive {0} ne comporte aucune grille valide !", fileName));
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println(MessageFormat.format("ERREUR : Impossible de lire le fichier {0} !", fileName));
+            return false;
+        }
+    }
+
+    /**
+     * Ouvre puis lit tout le fichier, ligne par ligne
+     * @param fileName
+     * @return boolean : false si le fichier est introuvable ou illisible, le message d'erreur ayant été affiché
+     */
+    private boolean readFile(String fileName) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Paths.get(fileName));
+        } catch (IOException | InvalidPathException e) {
+            String errMsg = MessageFormat.format("ERREUR : Impossible de trouver le fichier {0} !", fileName);
+            System.err.println(errMsg);
+            return false;
+        }
+        try (FileChannel openChannel = channel) {
+            this.readLines(openChannel);
+        } catch (IOException e) {
+            String errMsg = MessageFormat.format("ERREUR : Impossible de lire le fichier {0} !", fileName);
+            System.err.println(errMsg);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lit le fichier par blocs et analyse chaque ligne complète dans le tampon
+     * <p>
+     * La fin de ligne incomplète d'un bloc est ramenée au début du tampon avant de lire le bloc suivant.
+     * Une ligne plus longue que le tampon ne peut pas être valide : elle est ignorée jusqu'à sa fin.
+     * @param channel
+     * @throws IOException
+     */
+    private void readLines(FileChannel channel) throws IOException {
+        byte[] bytes = this.buffer.array();
+        this.buffer.clear();
+        boolean isSkippingLine = false;
+        while (true) {
+            boolean isEndOfFile = channel.read(this.buffer) == -1;
+            int nbBytes = this.buffer.position();
+            int lineStart = 0;
+            for (int byteIndex = 0; byteIndex < nbBytes; byteIndex++) {
+                byte currentByte = bytes[byteIndex];
+                if (currentByte == '\n' || currentByte == '\r') {
+                    if (!isSkippingLine) {
+                        this.parseLine(bytes, lineStart, byteIndex);
+                    }
+                    isSkippingLine = false;
+                    lineStart = byteIndex + 1;
+                }
+            }
+            if (isEndOfFile) {
+                // dernière ligne sans fin de ligne
+                if (!isSkippingLine && lineStart < nbBytes) {
+                    this.parseLine(bytes, lineStart, nbBytes);
+                }
+                return;
+            }
+            if (lineStart == 0 && nbBytes == bytes.length) {
+                isSkippingLine = true;
+                lineStart = nbBytes;
+            }
+            System.arraycopy(bytes, lineStart, bytes, 0, nbBytes - lineStart);
+            this.buffer.position(nbBytes - lineStart);
+        }
+    }
+
+    /**
+     * Analyse une ligne du tampon, sans ses blancs de début et de fin
+     * @param bytes
+     * @param lineStart : l'index du premier octet de la ligne
+     * @param lineEnd : l'index qui suit le dernier octet de la ligne
+     */
+    private void parseLine(byte[] bytes, int lineStart, int lineEnd) {
+        // mêmes blancs que String.trim : tous les caractères jusqu'à l'espace compris
+        while (lineStart < lineEnd && (bytes[lineStart] & 0xFF) <= ' ') { lineStart++; }
+        while (lineEnd > lineStart && (bytes[lineEnd - 1] & 0xFF) <= ' ') { lineEnd--; }
+
+        int lineLength = lineEnd - lineStart;
+        if (lineLength == 9 && isValidGridLine(bytes, lineStart)) {
+            if (this.nbGridLines < 9) {
+                // au-delà de 9 lignes, un fichier d'une seule grille est invalide : les lignes sont seulement comptées
+                for (int columnIndex = 0; columnIndex < 9; columnIndex++) {
+                    this.gridMasks[this.nbGridLines * 9 + columnIndex] = BYTE_MASKS[bytes[lineStart + columnIndex] & 0xFF];
+                }
+            }
+            this.nbGridLines++;
+            if (this.gridConsumer != null && this.nbGridLines == 9) {
+                this.emitGrid();
+            }
+        } else if (lineLength == MaskGrid.NB_CELLS && this.gridConsumer != null) {
+            // les lignes de grille déjà lues restent en attente de la suite de leur grille, comme dans BatchSolver
+            short[] compactMasks = new short[MaskGrid.NB_CELLS];
+            if (parseCompactBytes(this.buffer, lineStart, compactMasks)) {
+                this.nbFileGrids++;
+                this.gridConsumer.accept(compactMasks, this.nbFileGrids);
+            }
+        }
+    }
+
+    /**
+     * Analyse une grille de 81 octets lue dans un tampon, sans modifier sa position
+     * <p>
+     * Partagé avec CompactGridCorpus, dont le tampon est une projection mémoire du fichier.
+     * @param bytes
+     * @param lineStart : l'index du premier octet de la grille dans le tampon
+     * @param cellMasks : la grille à remplir, partiellement remplie si la ligne est invalide
+     * @return boolean : false si un octet n'est ni un chiffre ni un '.'
+     */
+    static boolean parseCompactBytes(ByteBuffer bytes, int lineStart, short[] cellMasks) {
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            byte currentByte = bytes.get(lineStart + cellIndex);
+            short mask = currentByte == '0' ? MaskGrid.ALL_CANDIDATES : BYTE_MASKS[currentByte & 0xFF];
+            if (mask == 0) { return false; }
+            cellMasks[cellIndex] = mask;
+        }
+        return true;
+    }
+
+    /**
+     * Transmet la grille de 9 lignes complète, et en commence une nouvelle
+     */
+    private void emitGrid() {
+        this.nbFileGrids++;
+        this.gridConsumer.accept(this.gridMasks, this.nbFileGrids);
+        this.gridMasks = new short[MaskGrid.NB_CELLS];
+        this.nbGridLines = 0;
+    }
+
+    /**
+     * Vérifie qu'une ligne de 9 octets ne contient que des chiffres de 1 à 9 et des '.'
+     * @param bytes
+     * @param lineStart
+     * @return boolean
+     */
+    private static boolean isValidGridLine(byte[] bytes, int lineStart) {
+        for (int byteIndex = lineStart; byteIndex < lineStart + 9; byteIndex++) {
+            if (BYTE_MASKS[bytes[byteIndex] & 0xFF] == 0) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Construit la table des masques de chaque octet, une seule fois au chargement de la classe
+     * @return short[] : 256 masques, 0 pour un octet qui n'est ni un chiffre de 1 à 9 ni un '.'
+     */
+    private static short[] buildByteMasks() {
+        short[] byteMasks = new short[256];
+        for (int digit = 1; digit <= 9; digit++) {
+            byteMasks['0' + digit] = MaskGrid.digitToMask(digit);
+        }
+        byteMasks['.'] = MaskGrid.ALL_CANDIDATES;
+        return byteMasks;
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Transformation d'une grille vers sa forme canonique (cf GridCanonicalizer), et retour
+ * <p>
+ * Une transformation combine un déplacement des cellules (transposition, permutation des bandes, des piles,
+ * des lignes dans chaque bande et des colonnes dans chaque pile) et un renommage des chiffres : elle conserve
+ * les règles du sudoku, donc les solutions d'une grille sont exactement les transformées de celles de sa forme canonique.
+ * <p>
+ * Les chiffres absents de la grille de départ reçoivent les noms canoniques restants, dans l'ordre croissant :
+ * le renommage est une bijection, applicable à n'importe quelle grille de masques (solutions comprises).
+ */
+public class GridTransform {
+
+    private final short[] canonicalGrid;
+    private final int[] cellMap; // la cellule d'origine de chaque cellule canonique
+    private final int[] digitMap; // le chiffre canonique de chaque chiffre d'origine, index 0 inutilisé
+    private final int[] inverseDigitMap; // le chiffre d'origine de chaque chiffre canonique, index 0 inutilisé
+
+    /**
+     * Constructeur
+     * @param canonicalGrid : la forme canonique de la grille, qui appartient désormais à la transformation
+     * @param cellMap : pour chaque cellule canonique, l'index de sa cellule dans la grille d'origine
+     * @param digitMap : pour chaque chiffre de la grille d'origine, son chiffre canonique, 0 pour un chiffre absent
+     */
+    GridTransform(short[] canonicalGrid, int[] cellMap, int[] digitMap) {
+        this.canonicalGrid = canonicalGrid;
+        this.cellMap = cellMap.clone();
+        this.digitMap = digitMap.clone();
+        this.inverseDigitMap = new int[10];
+        for (int digit = 1; digit <= 9; digit++) {
+            if (this.digitMap[digit] != 0) {
+                this.inverseDigitMap[this.digitMap[digit]] = digit;
+            }
+        }
+        // les chiffres absents de la grille reçoivent les noms canoniques restants
+        int canonicalDigit = 1;
+        for (int digit = 1; digit <= 9; digit++) {
+            if (this.digitMap[digit] == 0) {
+                while (this.inverseDigitMap[canonicalDigit] != 0) { canonicalDigit++; }
+                this.digitMap[digit] = canonicalDigit;
+                this.inverseDigitMap[canonicalDigit] = digit;
+            }
+        }
+    }
+
+    /**
+     * Renvoie la forme canonique de la grille
+     * @return short[] : l'instance originale, à ne pas modifier
+     */
+    public short[] getCanonicalGrid() {
+        return this.canonicalGrid;
+    }
+
+    /**
+     * Renvoie la forme canonique codée comme dans une archive compacte (cf PackedGridFormat),
+     * utilisable comme clé de HashMap (ByteBuffer compare son contenu)
+     * @return ByteBuffer : un nouveau tampon de GRID_SIZE octets
+     */
+    public ByteBuffer getCanonicalKey() {
+        byte[] packedGrid = new byte[PackedGridFormat.GRID_SIZE];
+        PackedGridFormat.pack(this.canonicalGrid, packedGrid, 0);
+        return ByteBuffer.wrap(packedGrid);
+    }
+
+    /**
+     * Transforme une grille de l'espace d'origine (une solution de la grille...) vers l'espace canonique
+     * @param cellMasks
+     * @return short[] : une nouvelle grille de masques
+     */
+    public short[] toCanonical(short[] cellMasks) {
+        short[] canonicalMasks = new short[MaskGrid.NB_CELLS];
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            canonicalMasks[cellIndex] = mapMask(cellMasks[this.cellMap[cellIndex]], this.digitMap);
+        }
+        return canonicalMasks;
+    }
+
+    /**
+     * Transforme une grille de l'espace canonique (une solution en cache...) vers l'espace d'origine
+     * @param canonicalMasks
+     * @return short[] : une nouvelle grille de masques
+     */
+    public short[] fromCanonical(short[] canonicalMasks) {
+        short[] cellMasks = new short[MaskGrid.NB_CELLS];
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            cellMasks[this.cellMap[cellIndex]] = mapMask(canonicalMasks[cellIndex], this.inverseDigitMap);
+        }
+        return cellMasks;
+    }
+
+    /**
+     * Renomme chaque candidat d'un masque
+     * @param mask
+     * @param digitMap : le nouveau nom de chaque chiffre
+     * @return short
+     */
+    private static short mapMask(int mask, int[] digitMap) {
+        int mappedMask = 0;
+        for (int digit = 1; digit <= 9; digit++) {
+            if ((mask & MaskGrid.digitToMask(digit)) != 0) {
+                mappedMask |= MaskGrid.digitToMask(digitMap[digit]);
+            }
+        }
+        return (short) mappedMask;
+    }
+}
@@ -0,0 +1,262 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Écrivain de grilles et de texte par un grand tampon d'octets, sans String ni MessageFormat par grille
+ * <p>
+ * Chaque grille est rendue directement en octets dans un tableau réutilisé : la mise en page encadrée
+ * (cf Grid.cellArrayToString) est un modèle constant dont seules les 81 cellules sont réécrites,
+ * la mise en page compacte une ligne de 81 caractères (cf MaskGrid.toCompactString).<br>
+ * Le tout est accumulé dans un ByteBuffer de BUFFER_SIZE octets, vidé dans le canal de sortie lorsqu'il est plein :
+ * écrire des milliers de solutions ne coûte qu'une écriture système par mégaoctet.
+ * <p>
+ * Le texte est encodé dans le jeu de caractères de la sortie (cf toStandardOutput). Rien n'est écrit avant
+ * l'appel à flush ou à close.<br>
+ * Une instance ne doit pas être utilisée par plusieurs threads à la fois.
+ */
+public class GridWriter implements Closeable, Flushable {
+
+    /**
+     * La taille du tampon de sortie, en octets
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Les mises en page disponibles pour une grille
+     */
+    public static enum Layout {
+        BOXED, // 13 lignes encadrées, comme Grid.cellArrayToString
+        COMPACT; // une ligne de 81 caractères, comme MaskGrid.toCompactString
+    }
+
+    // la grille encadrée, avec des '.' à la place des cellules, et la position de chaque cellule
+    private static final byte[] BOXED_TEMPLATE = Grid.cellArrayToString(MaskGrid.toCellArray(new short[MaskGrid.NB_CELLS]))
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int[] BOXED_CELL_POSITIONS = buildBoxedCellPositions();
+
+    private final WritableByteChannel channel;
+    private final boolean isOwningChannel; // false pour la sortie standard, qui n'est jamais fermée
+    private final Flushable channelStream; // le flux derrière le canal, vidé à chaque flush ; ou null
+    private final Charset charset;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] boxedGrid = BOXED_TEMPLATE.clone(); // réutilisés pour chaque grille
+    private final byte[] compactGrid = new byte[MaskGrid.NB_CELLS + 1];
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Constructeur
+     * @param channel : la destination des octets
+     * @param isOwningChannel : true pour fermer le canal avec l'écrivain
+     * @param charset : le jeu de caractères du texte écrit
+     */
+    public GridWriter(WritableByteChannel channel, boolean isOwningChannel, Charset charset) {
+        this(channel, isOwningChannel, charset, null);
+    }
+
+    /**
+     * Constructeur d'un écrivain dont le canal enveloppe un flux à vider à chaque flush
+     * @param channel
+     * @param isOwningChannel
+     * @param charset
+     * @param channelStream : le flux derrière le canal, ou null
+     */
+    private GridWriter(WritableByteChannel channel, boolean isOwningChannel, Charset charset, Flushable channelStream) {
+        this.channel = channel;
+        this.isOwningChannel = isOwningChannel;
+        this.charset = charset;
+        this.channelStream = channelStream;
+        this.compactGrid[MaskGrid.NB_CELLS] = '\n';
+    }
+
+    /**
+     * Crée un écrivain vers la sortie standard, qui reste ouverte après close
+     * <p>
+     * Les octets sont écrits dans le System.out courant, par blocs et sans le réencoder : une sortie redirigée
+     * par System.setOut (tests, console graphique...) reçoit donc les grilles. System.out est vidé à chaque flush ;
+     * il ne doit pas être utilisé directement entre deux flush de l'écrivain, sous peine de mélanger les sorties.<br>
+     * Le texte est encodé comme le ferait la sortie standard de la JVM (propriétés stdout.encoding ou sun.stdout.encoding
+     * d'une console, sinon le jeu de caractères par défaut).
+     * @return GridWriter
+     */
+    public static GridWriter toStandardOutput() {
+        String encoding = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+        Charset charset = encoding != null && Charset.isSupported(encoding) ? Charset.forName(encoding) : Charset.defaultCharset();
+        PrintStream standardOutput = System.out;
+        return new GridWriter(Channels.newChannel(standardOutput), false, charset, standardOutput);
+    }
+
+    /**
+     * Crée un écrivain vers un fichier, créé ou écrasé, dont le texte est encodé en US-ASCII
+     * @param fileName
+     * @return GridWriter
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    public static GridWriter toFile(String fileName) throws IOException {
+        FileChannel fileChannel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new GridWriter(fileChannel, true, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Écrit une grille : les cellules résolues par leur chiffre, les autres par un '.'
+     * <p>
+     * La mise en page encadrée se termine, comme Grid.cellArrayToString, par une fin de ligne ;
+     * la mise en page compacte aussi.
+     * @param cellMasks
+     * @param layout
+     * @throws IOException
+     */
+    public void writeGrid(short[] cellMasks, Layout layout) throws IOException {
+        byte[] grid;
+        if (layout == Layout.BOXED) {
+            grid = this.boxedGrid;
+            for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+                grid[BOXED_CELL_POSITIONS[cellIndex]] = toCellByte(cellMasks[cellIndex]);
+            }
+        } else {
+            grid = this.compactGrid;
+            for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+                grid[cellIndex] = toCellByte(cellMasks[cellIndex]);
+            }
+        }
+        this.write(grid);
+    }
+
+    /**
+     * Écrit un nombre en base 10, sans séparateur de milliers
+     * @param number
+     * @throws IOException
+     */
+    public void writeNumber(long number) throws IOException {
+        if (number < 0) {
+            this.writeText(Long.toString(number));
+            return;
+        }
+        int digitIndex = this.digits.length;
+        long remaining = number;
+        do {
+            this.digits[--digitIndex] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        this.write(this.digits, digitIndex, this.digits.length - digitIndex);
+    }
+
+    /**
+     * Écrit un texte, encodé dans le jeu de caractères de la sortie
+     * <p>
+     * Pour un texte répété (un en-tête de grille...), encoder le texte une seule fois avec encode
+     * puis l'écrire avec write évite d'allouer à chaque appel.
+     * @param text
+     * @throws IOException
+     */
+    public void writeText(String text) throws IOException {
+        this.write(this.encode(text));
+    }
+
+    /**
+     * Encode un texte dans le jeu de caractères de la sortie
+     * @param text
+     * @return byte[]
+     */
+    public byte[] encode(String text) {
+        return text.getBytes(this.charset);
+    }
+
+    /**
+     * Écrit des octets tels quels
+     * @param bytes
+     * @throws IOException
+     */
+    public void write(byte[] bytes) throws IOException {
+        this.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Écrit une partie d'un tableau d'octets telle quelle
+     * @param bytes
+     * @param offset : l'index du premier octet à écrire
+     * @param length : le nb d'octets à écrire
+     * @throws IOException
+     */
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            if (!this.buffer.hasRemaining()) {
+                this.drainBuffer();
+            }
+            int putLength = Math.min(end - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, putLength);
+            offset += putLength;
+        }
+    }
+
+    /**
+     * Vide le tampon dans le canal de sortie, puis le flux qu'il enveloppe (cf toStandardOutput)
+     */
+    @Override
+    public void flush() throws IOException {
+        this.drainBuffer();
+        if (this.channelStream != null) {
+            this.channelStream.flush();
+        }
+    }
+
+    /**
+     * Vide le tampon, puis ferme le canal de sortie s'il appartient à l'écrivain
+     */
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        if (this.isOwningChannel) {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Écrit tout le contenu du tampon dans le canal, et le remet à zéro
+     * @throws IOException
+     */
+    private void drainBuffer() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Renvoie le caractère d'une cellule : son chiffre si elle est résolue, '.' sinon
+     * @param mask
+     * @return byte
+     */
+    private static byte toCellByte(int mask) {
+        return MaskGrid.isSingle(mask) ? (byte) ('0' + MaskGrid.maskToDigit(mask)) : (byte) '.';
+    }
+
+    /**
+     * Repère la position de chaque cellule dans le modèle de grille encadrée, une seule fois au chargement de la classe
+     * @return int[] : 81 positions, ligne de grille après ligne de grille
+     */
+    private static int[] buildBoxedCellPositions() {
+        int[] positions = new int[MaskGrid.NB_CELLS];
+        int cellIndex = 0;
+        for (int byteIndex = 0; byteIndex < BOXED_TEMPLATE.length; byteIndex++) {
+            if (BOXED_TEMPLATE[byteIndex] == '.') {
+                positions[cellIndex++] = byteIndex;
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+/**
+ * Technique des "hidden singles" : un chiffre qui n'a plus qu'une seule place possible dans une unité y est placé
+ * <p>
+ * Les chiffres présents une seule fois dans une unité sont obtenus en un seul parcours de ses 9 cellules,
+ * avec un masque des chiffres vus au moins une fois et un masque de ceux vus au moins deux fois.
+ */
+public class HiddenSinglesTechnique implements Technique {
+
+    @Override
+    public String getName() {
+        return "hidden-singles";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Une contradiction est signalée si un chiffre n'a plus aucune place dans une unité.
+     */
+    @Override
+    public boolean apply(Propagator propagator) {
+        short[] cellMasks = propagator.getCellMasks();
+        short[] unitMasks = propagator.getUnitMasks();
+        for (int unitIndex = 0; unitIndex < MaskGrid.NB_UNITS; unitIndex++) {
+            int[] unitCells = MaskGrid.getUnitCells(unitIndex);
+            int seenOnce = 0;
+            int seenTwice = 0;
+            for (int cellIndex : unitCells) {
+                int mask = cellMasks[cellIndex];
+                seenTwice |= seenOnce & mask;
+                seenOnce |= mask;
+            }
+            if (seenOnce != MaskGrid.ALL_CANDIDATES) {
+                return false;
+            }
+
+            int hiddenSingles = seenOnce & ~seenTwice & ~unitMasks[unitIndex];
+            while (hiddenSingles != 0) {
+                int digitMask = hiddenSingles & -hiddenSingles;
+                hiddenSingles &= ~digitMask;
+                if (!assignHiddenSingle(propagator, unitCells, digitMask)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Place un chiffre dans la seule cellule de l'unité qui l'a encore comme candidat
+     * @param propagator
+     * @param unitCells
+     * @param digitMask
+     * @return boolean : false si plus aucune cellule ne l'a comme candidat
+     *  (elle vient de recevoir un autre hidden single de la même unité)
+     */
+    private static boolean assignHiddenSingle(Propagator propagator, int[] unitCells, int digitMask) {
+        short[] cellMasks = propagator.getCellMasks();
+        for (int cellIndex : unitCells) {
+            int mask = cellMasks[cellIndex];
+            if ((mask & digitMask) != 0) {
+                if (mask != digitMask) {
+                    propagator.assign(cellIndex, digitMask);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package utils;
+
+/**
+ * Technique des "hidden subsets" (paires, triplets, quadruplets) :
+ * si N chiffres d'une unité ne sont possibles, à eux tous, que dans N cellules,
+ * ces N cellules leur sont réservées et perdent tous leurs autres candidats
+ * <p>
+ * C'est le pendant des NakedSubsetsTechnique où les rôles des cellules et des chiffres sont inversés :
+ * pour chaque chiffre, on calcule le masque des positions qu'il peut occuper dans l'unité.
+ */
+public class HiddenSubsetsTechnique implements Technique {
+
+    private static final String[] SUBSET_NAMES = { "", "", "pairs", "triples", "quads" };
+
+    private final int subsetSize;
+
+    /**
+     * Constructeur
+     * @param subsetSize : la taille des groupes recherchés, de 2 (paires) à 4 (quadruplets)
+     */
+    public HiddenSubsetsTechnique(int subsetSize) {
+        if (subsetSize < 2 || subsetSize > 4) {
+            throw new IllegalArgumentException("taille de groupe invalide : " + subsetSize);
+        }
+        this.subsetSize = subsetSize;
+    }
+
+    @Override
+    public String getName() {
+        return "hidden-" + SUBSET_NAMES[this.subsetSize];
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        short[] cellMasks = propagator.getCellMasks();
+        int[] digitPositions = new int[9]; // pour chaque chiffre, le masque de ses positions possibles dans l'unité
+        int[] digits = new int[9];
+        for (int unitIndex = 0; unitIndex < MaskGrid.NB_UNITS; unitIndex++) {
+            int[] unitCells = MaskGrid.getUnitCells(unitIndex);
+            for (int digitIndex = 0; digitIndex < 9; digitIndex++) {
+                digitPositions[digitIndex] = 0;
+            }
+            for (int position = 0; position < 9; position++) {
+                int mask = cellMasks[unitCells[position]];
+                while (mask != 0) {
+                    digitPositions[Integer.numberOfTrailingZeros(mask)] |= 1 << position;
+                    mask &= mask - 1;
+                }
+            }
+            int nbDigits = 0;
+            for (int digitIndex = 0; digitIndex < 9; digitIndex++) {
+                int nbPositions = Integer.bitCount(digitPositions[digitIndex]);
+                if (nbPositions >= 2 && nbPositions <= this.subsetSize) {
+                    digits[nbDigits] = digitIndex;
+                    nbDigits++;
+                }
+            }
+            if (nbDigits >= this.subsetSize
+                    && !this.searchSubsets(propagator, unitCells, digitPositions, digits, nbDigits, 0, 0, 0, 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Énumère les groupes de chiffres de l'unité, et applique chaque hidden subset trouvé
+     * <p>
+     * Les positions calculées au début de l'unité peuvent être antérieures à des éliminations de ce même appel :
+     * elles ne font alors que surestimer les positions réelles, et tout groupe trouvé reste valide.
+     * @param propagator
+     * @param unitCells : les 9 cellules de l'unité
+     * @param digitPositions : pour chaque chiffre, le masque de ses positions possibles
+     * @param digits : les chiffres (de 0 à 8) pouvant faire partie d'un groupe
+     * @param nbDigits
+     * @param start : le premier chiffre à essayer
+     * @param depth : le nb de chiffres déjà choisis
+     * @param unionPositions : l'union des positions des chiffres déjà choisis
+     * @param subsetMask : le masque des chiffres déjà choisis
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private boolean searchSubsets(Propagator propagator, int[] unitCells, int[] digitPositions, int[] digits,
+            int nbDigits, int start, int depth, int unionPositions, int subsetMask) {
+        if (depth == this.subsetSize) {
+            return Integer.bitCount(unionPositions) != this.subsetSize
+                    || eliminateInside(propagator, unitCells, unionPositions, subsetMask);
+        }
+        for (int index = start; index < nbDigits; index++) {
+            int newUnionPositions = unionPositions | digitPositions[digits[index]];
+            if (Integer.bitCount(newUnionPositions) <= this.subsetSize
+                    && !this.searchSubsets(propagator, unitCells, digitPositions, digits, nbDigits, index + 1, depth + 1,
+                            newUnionPositions, subsetMask | (1 << digits[index]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retire des cellules d'un groupe tous les candidats qui n'en font pas partie
+     * @param propagator
+     * @param unitCells
+     * @param subsetPositions : le masque des positions du groupe dans l'unité
+     * @param subsetMask : les chiffres du groupe
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private static boolean eliminateInside(Propagator propagator, int[] unitCells, int subsetPositions, int subsetMask) {
+        for (int position = 0; position < 9; position++) {
+            if ((subsetPositions & (1 << position)) != 0
+                    && !propagator.eliminate(unitCells[position], MaskGrid.ALL_CANDIDATES & ~subsetMask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package utils;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Moteur qui délègue la résolution à un autre moteur et la rend observable sans profileur :
+ * <ul>
+ *  <li>un évènement Java Flight Recorder SolveEvent par résolution</li>
+ *  <li>les statistiques de la résolution cumulées dans les métriques JMX (cf SolverMetrics)</li>
+ * </ul>
+ * Les évènements plus fins (PropagationEvent, ForkEvent) sont émis directement par les moteurs.<br>
+ * Avec ParallelSolver, c'est lui qu'il faut envelopper, et non les moteurs de ses threads,
+ * pour ne compter qu'une résolution par grille.
+ */
+public class InstrumentedSolver implements Solver {
+
+    private final Solver delegate;
+    private final String engineName;
+    private final SolverMetrics metrics = SolverMetrics.getInstance();
+
+    /**
+     * Constructeur
+     * @param delegate : le moteur qui résout effectivement les grilles
+     * @param engineName : le nom du moteur dans les évènements JFR
+     */
+    public InstrumentedSolver(Solver delegate, String engineName) {
+        this.delegate = delegate;
+        this.engineName = engineName;
+    }
+
+    @Override
+    public void solve(SolveResult solveResult) {
+        // les évènements JFR ne sont créés qu'une fois un enregistrement démarré (cf PropagationEvent)
+        SolveEvent solveEvent = null;
+        if (FlightRecorder.isInitialized()) {
+            solveEvent = new SolveEvent();
+            solveEvent.begin();
+        }
+        long startingTime = System.nanoTime();
+        this.delegate.solve(solveResult);
+        long nbNanoSeconds = System.nanoTime() - startingTime;
+        if (solveEvent != null) {
+            solveEvent.end();
+            if (solveEvent.shouldCommit()) {
+                solveEvent.engine = this.engineName;
+                solveEvent.nbSolutions = solveResult.getNbSolutions();
+                solveEvent.nbRecursions = solveResult.getNbRecursions();
+                solveEvent.nbPasses = solveResult.getNbPasses();
+                solveEvent.nbUnsolvableGrids = solveResult.getNbUnsolvableGrids();
+                solveEvent.nbExaminedCells = solveResult.getNbExaminedCells();
+                solveEvent.commit();
+            }
+        }
+        this.metrics.record(solveResult, nbNanoSeconds);
+    }
+}
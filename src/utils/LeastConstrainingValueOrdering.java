@@ -0,0 +1,30 @@
+package utils;
+
+/**
+ * Ordonnancement "LCV" (least constraining value) : les candidats qui retirent le moins de possibilités en premier
+ * <p>
+ * Pour chaque candidat, on compte les pairs non résolus de la cellule qui l'ont aussi comme candidat :
+ * ce sont les cellules qui le perdront si la branche est choisie.
+ * Les candidats sont explorés par nombre croissant de pairs touchés, à égalité du plus petit au plus grand.
+ */
+public class LeastConstrainingValueOrdering implements ValueOrdering {
+
+    @Override
+    public int orderCandidates(short[] cellMasks, int cellIndex, int[] orderedCandidates) {
+        int[] nbConstrainedPeers = new int[9];
+        int nbCandidates = ValueOrdering.listCandidates(cellMasks, cellIndex, orderedCandidates);
+
+        for (int peerIndex : MaskGrid.getPeers(cellIndex)) {
+            int peerMask = cellMasks[peerIndex];
+            if (!MaskGrid.isSingle(peerMask)) {
+                for (int candidateIndex = 0; candidateIndex < nbCandidates; candidateIndex++) {
+                    if ((peerMask & orderedCandidates[candidateIndex]) != 0) {
+                        nbConstrainedPeers[candidateIndex]++;
+                    }
+                }
+            }
+        }
+        ValueOrdering.sortByScore(orderedCandidates, nbConstrainedPeers, nbCandidates);
+        return nbCandidates;
+    }
+}
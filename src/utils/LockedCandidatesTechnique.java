@@ -0,0 +1,114 @@
+package utils;
+
+/**
+ * Technique des "locked candidates" : les candidats verrouillés entre un carré et une ligne ou une colonne
+ * <p>
+ * <ul>
+ *  <li>pointing : si dans un carré un chiffre n'est possible que sur une ligne (ou une colonne),
+ *      il est retiré du reste de cette ligne</li>
+ *  <li>claiming : si sur une ligne (ou une colonne) un chiffre n'est possible que dans un carré,
+ *      il est retiré du reste de ce carré</li>
+ * </ul>
+ * Pour chaque unité, on calcule l'union des candidats des cellules de chacun de ses tiers :
+ * un chiffre présent dans un seul des trois tiers y est verrouillé, sauf s'il a déjà été placé et propagé dans l'unité.<br>
+ * Les cellules résolues mais pas encore propagées (par une élimination précédente du même appel)
+ * comptent donc bien dans leur tiers.
+ */
+public class LockedCandidatesTechnique implements Technique {
+
+    @Override
+    public String getName() {
+        return "locked-candidates";
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        return applyPointing(propagator) && applyClaiming(propagator);
+    }
+
+    /**
+     * Pointing : dans un carré, un chiffre possible sur une seule de ses lignes (ou colonnes)
+     * @param propagator
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private static boolean applyPointing(Propagator propagator) {
+        short[] cellMasks = propagator.getCellMasks();
+        short[] unitMasks = propagator.getUnitMasks();
+        int[] lineThirds = new int[3];
+        int[] columnThirds = new int[3];
+        for (int squareIndex = 0; squareIndex < 9; squareIndex++) {
+            int lineOffset = (squareIndex / 3) * 3;
+            int columnOffset = (squareIndex % 3) * 3;
+            for (int third = 0; third < 3; third++) {
+                lineThirds[third] = 0;
+                columnThirds[third] = 0;
+            }
+            for (int squareLine = 0; squareLine < 3; squareLine++) {
+                for (int squareColumn = 0; squareColumn < 3; squareColumn++) {
+                    int mask = cellMasks[MaskGrid.getCellIndex(lineOffset + squareLine, columnOffset + squareColumn)];
+                    lineThirds[squareLine] |= mask;
+                    columnThirds[squareColumn] |= mask;
+                }
+            }
+            int placedMask = unitMasks[MaskGrid.SQUARE_UNITS + squareIndex];
+            for (int third = 0; third < 3; third++) {
+                int lockedInLine = getLockedMask(lineThirds, third) & ~placedMask;
+                int lockedInColumn = getLockedMask(columnThirds, third) & ~placedMask;
+                for (int outside = 0; outside < 9; outside++) {
+                    // les cellules du carré lui-même ne sont pas concernées
+                    if (lockedInLine != 0 && outside / 3 != squareIndex % 3
+                            && !propagator.eliminate(MaskGrid.getCellIndex(lineOffset + third, outside), lockedInLine)) {
+                        return false;
+                    }
+                    if (lockedInColumn != 0 && outside / 3 != squareIndex / 3
+                            && !propagator.eliminate(MaskGrid.getCellIndex(outside, columnOffset + third), lockedInColumn)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claiming : sur une ligne (ou colonne), un chiffre possible dans un seul carré
+     * @param propagator
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private static boolean applyClaiming(Propagator propagator) {
+        short[] cellMasks = propagator.getCellMasks();
+        short[] unitMasks = propagator.getUnitMasks();
+        int[] thirds = new int[3];
+        for (int unitIndex = 0; unitIndex < MaskGrid.SQUARE_UNITS; unitIndex++) {
+            // les cellules d'une ligne comme d'une colonne sont rangées carré par carré
+            int[] unitCells = MaskGrid.getUnitCells(unitIndex);
+            for (int third = 0; third < 3; third++) {
+                thirds[third] = cellMasks[unitCells[third * 3]] | cellMasks[unitCells[third * 3 + 1]]
+                        | cellMasks[unitCells[third * 3 + 2]];
+            }
+            for (int third = 0; third < 3; third++) {
+                int locked = getLockedMask(thirds, third) & ~unitMasks[unitIndex];
+                if (locked == 0) { continue; }
+                int squareUnit = MaskGrid.getSquareUnit(unitCells[third * 3]);
+                for (int cellIndex : MaskGrid.getUnitCells(squareUnit)) {
+                    boolean isOnUnit = MaskGrid.getLineUnit(cellIndex) == unitIndex
+                            || MaskGrid.getColumnUnit(cellIndex) == unitIndex;
+                    if (!isOnUnit && !propagator.eliminate(cellIndex, locked)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renvoie les candidats présents dans un tiers et dans aucun des deux autres
+     * @param thirds : les unions de candidats des 3 tiers
+     * @param third : le tiers concerné
+     * @return int
+     */
+    private static int getLockedMask(int[] thirds, int third) {
+        return thirds[third] & ~(thirds[(third + 1) % 3] | thirds[(third + 2) % 3]);
+    }
+}
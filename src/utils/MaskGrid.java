@@ -0,0 +1,313 @@
+package utils;
+
+/**
+ * La classe MaskGrid est une collection de méthodes statiques qui manipulent une grille sous forme de masques de bits.
+ * <p>
+ * Le concept de "cellMasks" correspond à un tableau plat de 81 shorts, une case par cellule, parcourues ligne par ligne
+ * (l'index d'une cellule vaut donc lineIndex * 9 + columnIndex).<br>
+ * Chaque cellule est un masque de 9 bits : le bit 0 correspond au candidat 1, le bit 8 au candidat 9.<br>
+ * Une cellule dont le masque ne contient qu'un seul bit à 1 est une cellule résolue, un masque nul est une cellule impossible.
+ * <p>
+ * Copier une grille revient ainsi à un simple System.arraycopy de 162 octets,
+ * au lieu des 81 petits tableaux d'un cellArray.<br>
+ * Les méthodes fromCellArray et toCellArray servent d'adaptateurs vers et depuis les cellArrays (int[][][]).
+ * <p>
+ * Note : Cette classe ne peut pas être instanciée.
+ */
+public class MaskGrid {
+    /**
+     * Le nombre de cellules d'une grille de 9x9
+     */
+    public static final int NB_CELLS = 81;
+
+    /**
+     * Le masque d'une cellule vierge, qui contient encore les 9 candidats
+     */
+    public static final short ALL_CANDIDATES = 0x1FF;
+
+    /**
+     * Le nombre d'unités d'une grille : 9 lignes, 9 colonnes et 9 carrés
+     * <p>
+     * Les "unitMasks" sont un tableau de 27 masques rangés dans cet ordre :
+     * les lignes de 0 à 8, les colonnes de 9 à 17 et les carrés de 18 à 26.
+     */
+    public static final int NB_UNITS = 27;
+
+    /**
+     * Index de la première colonne dans un tableau d'unitMasks
+     */
+    public static final int COLUMN_UNITS = 9;
+
+    /**
+     * Index du premier carré dans un tableau d'unitMasks
+     */
+    public static final int SQUARE_UNITS = 18;
+
+    /**
+     * Pour chaque cellule, les index de ses 20 "pairs" : les cellules qui partagent sa ligne, sa colonne ou son carré
+     */
+    private static final int[][] PEERS = buildPeers();
+
+    /**
+     * Pour chaque unité, les index de ses 9 cellules
+     */
+    private static final int[][] UNIT_CELLS = buildUnitCells();
+
+    /**
+     * Constructeur privé pour empêcher l'instanciation
+     * <p>
+     * classe ne contenant que des méthodes purement statiques
+     */
+    private MaskGrid(){}
+
+    /**********************************************
+     **          Manipulation des masques        **
+     **********************************************/
+
+    /**
+     * Renvoie le masque correspondant à un chiffre unique
+     * @param digit : un chiffre de 1 à 9
+     * @return short : le masque ne contenant que ce chiffre
+     */
+    public static short digitToMask(int digit) {
+        return (short) (1 << (digit - 1));
+    }
+
+    /**
+     * Renvoie le plus petit chiffre contenu dans un masque
+     * <p>
+     * Pour une cellule résolue, c'est donc sa valeur définitive.
+     * @param mask : un masque non nul
+     * @return int : un chiffre de 1 à 9
+     */
+    public static int maskToDigit(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * Vérifie si un masque ne contient qu'un seul candidat
+     * @param mask
+     * @return boolean : true si un seul bit est à 1
+     */
+    public static boolean isSingle(int mask) {
+        return mask != 0 && (mask & (mask - 1)) == 0;
+    }
+
+    /**
+     * Renvoie le nombre de candidats contenus dans un masque
+     * @param mask
+     * @return int : de 0 à 9
+     */
+    public static int getNbCandidates(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Renvoie la liste triée des chiffres contenus dans un masque
+     * @param mask
+     * @return int[] : les candidats, du plus petit au plus grand
+     */
+    public static int[] maskToCandidates(int mask) {
+        int[] candidates = new int[Integer.bitCount(mask)];
+        int index = 0;
+        while (mask != 0) {
+            candidates[index] = Integer.numberOfTrailingZeros(mask) + 1;
+            mask &= mask - 1; // retire le bit le plus faible
+            index++;
+        }
+        return candidates;
+    }
+
+    /**********************************************
+     **           Coordonnées & copies           **
+     **********************************************/
+
+    /**
+     * Renvoie l'index dans le tableau plat de la cellule aux coordonnées (lineIndex, columnIndex)
+     * @param lineIndex
+     * @param columnIndex
+     * @return int : un index de 0 à 80
+     */
+    public static int getCellIndex(int lineIndex, int columnIndex) {
+        return lineIndex * 9 + columnIndex;
+    }
+
+    /**
+     * Renvoie l'index de l'unité "ligne" contenant la cellule
+     * @param cellIndex
+     * @return int : un index d'unité de 0 à 8
+     */
+    public static int getLineUnit(int cellIndex) {
+        return cellIndex / 9;
+    }
+
+    /**
+     * Renvoie l'index de l'unité "colonne" contenant la cellule
+     * @param cellIndex
+     * @return int : un index d'unité de 9 à 17
+     */
+    public static int getColumnUnit(int cellIndex) {
+        return COLUMN_UNITS + cellIndex % 9;
+    }
+
+    /**
+     * Renvoie l'index de l'unité "carré" contenant la cellule
+     * <p>
+     * Les carrés suivent la même convention d'indexage que dans Grid :
+     * 0 1 2 / 3 4 5 / 6 7 8
+     * @param cellIndex
+     * @return int : un index d'unité de 18 à 26
+     */
+    public static int getSquareUnit(int cellIndex) {
+        return SQUARE_UNITS + (cellIndex / 27) * 3 + (cellIndex % 9) / 3;
+    }
+
+    /**
+     * Ajoute un chiffre définitivement placé dans les masques des 3 unités de la cellule
+     * @param unitMasks : les 27 masques d'unités à mettre à jour
+     * @param cellIndex
+     * @param digitMask : le masque (à un seul bit) du chiffre placé
+     */
+    public static void addToUnits(short[] unitMasks, int cellIndex, int digitMask) {
+        unitMasks[getLineUnit(cellIndex)] |= digitMask;
+        unitMasks[getColumnUnit(cellIndex)] |= digitMask;
+        unitMasks[getSquareUnit(cellIndex)] |= digitMask;
+    }
+
+    /**
+     * Renvoie le masque des chiffres déjà placés dans l'une des 3 unités de la cellule
+     * @param unitMasks
+     * @param cellIndex
+     * @return int : l'union des masques de la ligne, de la colonne et du carré de la cellule
+     */
+    public static int getPlacedMask(short[] unitMasks, int cellIndex) {
+        return unitMasks[getLineUnit(cellIndex)] | unitMasks[getColumnUnit(cellIndex)]
+                | unitMasks[getSquareUnit(cellIndex)];
+    }
+
+    /**
+     * Renvoie les index des 20 cellules qui partagent la ligne, la colonne ou le carré de la cellule
+     * <p>
+     * Le tableau renvoyé est partagé : il ne doit pas être modifié.
+     * @param cellIndex
+     * @return int[] : les index des 20 pairs de la cellule
+     */
+    public static int[] getPeers(int cellIndex) {
+        return PEERS[cellIndex];
+    }
+
+    /**
+     * Renvoie les index des 9 cellules d'une unité
+     * <p>
+     * Le tableau renvoyé est partagé : il ne doit pas être modifié.
+     * @param unitIndex : de 0 à 26 (lignes, puis colonnes, puis carrés)
+     * @return int[] : les index des 9 cellules, ligne par ligne
+     */
+    public static int[] getUnitCells(int unitIndex) {
+        return UNIT_CELLS[unitIndex];
+    }
+
+    /**
+     * Construit la table des cellules de chaque unité, une seule fois au chargement de la classe
+     * @return int[][] : 27 tableaux de 9 index
+     */
+    private static int[][] buildUnitCells() {
+        int[][] unitCells = new int[NB_UNITS][9];
+        int[] nbUnitCells = new int[NB_UNITS];
+        for (int cellIndex = 0; cellIndex < NB_CELLS; cellIndex++) {
+            for (int unitIndex : new int[] { getLineUnit(cellIndex), getColumnUnit(cellIndex), getSquareUnit(cellIndex) }) {
+                unitCells[unitIndex][nbUnitCells[unitIndex]] = cellIndex;
+                nbUnitCells[unitIndex]++;
+            }
+        }
+        return unitCells;
+    }
+
+    /**
+     * Construit la table des pairs de chaque cellule, une seule fois au chargement de la classe
+     * @return int[][] : 81 tableaux de 20 index
+     */
+    private static int[][] buildPeers() {
+        int[][] peers = new int[NB_CELLS][20];
+        for (int cellIndex = 0; cellIndex < NB_CELLS; cellIndex++) {
+            int nbPeers = 0;
+            for (int otherIndex = 0; otherIndex < NB_CELLS; otherIndex++) {
+                boolean isPeer = getLineUnit(otherIndex) == getLineUnit(cellIndex)
+                        || getColumnUnit(otherIndex) == getColumnUnit(cellIndex)
+                        || getSquareUnit(otherIndex) == getSquareUnit(cellIndex);
+                if (isPeer && otherIndex != cellIndex) {
+                    peers[cellIndex][nbPeers] = otherIndex;
+                    nbPeers++;
+                }
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * Renvoie une copie d'une grille de masques
+     * @param origCellMasks
+     * @return short[] : un nouveau tableau de 81 masques
+     */
+    public static short[] copy(short[] origCellMasks) {
+        short[] newCellMasks = new short[NB_CELLS];
+        System.arraycopy(origCellMasks, 0, newCellMasks, 0, NB_CELLS);
+        return newCellMasks;
+    }
+
+    /**
+     * Renvoie la grille sous forme d'une ligne de 81 caractères, ligne de grille après ligne de grille
+     * <p>
+     * Les cellules résolues sont notées par leur chiffre, les autres par un '.' (cf GridFileParser)
+     * @param cellMasks
+     * @return String
+     */
+    public static String toCompactString(short[] cellMasks) {
+        char[] chars = new char[NB_CELLS];
+        for (int cellIndex = 0; cellIndex < NB_CELLS; cellIndex++) {
+            int mask = cellMasks[cellIndex];
+            chars[cellIndex] = isSingle(mask) ? (char) ('0' + maskToDigit(mask)) : '.';
+        }
+        return new String(chars);
+    }
+
+    /**********************************************
+     **       Adaptateurs vers les cellArrays     **
+     **********************************************/
+
+    /**
+     * Convertit un cellArray (int[][][]) en grille de masques
+     * @param cellArray
+     * @return short[] : les 81 masques correspondants
+     */
+    public static short[] fromCellArray(int[][][] cellArray) {
+        short[] cellMasks = new short[NB_CELLS];
+        for (int lineIndex = 0; lineIndex < 9; lineIndex++) {
+            for (int columnIndex = 0; columnIndex < 9; columnIndex++) {
+                int mask = 0;
+                for (int candidate : cellArray[lineIndex][columnIndex]) {
+                    mask |= digitToMask(candidate);
+                }
+                cellMasks[getCellIndex(lineIndex, columnIndex)] = (short) mask;
+            }
+        }
+        return cellMasks;
+    }
+
+    /**
+     * Convertit une grille de masques en cellArray (int[][][])
+     * <p>
+     * Les candidats de chaque cellule sont rangés dans l'ordre croissant, comme ceux produits par Grid.parseFileGrid
+     * @param cellMasks
+     * @return int[][][] : un nouveau cellArray
+     */
+    public static int[][][] toCellArray(short[] cellMasks) {
+        int[][][] cellArray = new int[9][9][];
+        for (int lineIndex = 0; lineIndex < 9; lineIndex++) {
+            for (int columnIndex = 0; columnIndex < 9; columnIndex++) {
+                cellArray[lineIndex][columnIndex] = maskToCandidates(cellMasks[getCellIndex(lineIndex, columnIndex)]);
+            }
+        }
+        return cellArray;
+    }
+}
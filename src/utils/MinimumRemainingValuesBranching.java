@@ -0,0 +1,49 @@
+package utils;
+
+/**
+ * Politique d'embranchement "MRV" (minimum remaining values) : la cellule qui a le moins de candidats
+ * <p>
+ * Moins il y a de candidats, moins l'embranchement a de branches, et plus vite une mauvaise branche est éliminée.<br>
+ * En cas d'égalité, on préfère la cellule qui a le plus de pairs non résolus (son "degré") :
+ * la résoudre retirera des candidats à davantage de cellules.
+ * Le degré n'est calculé que pour les cellules à égalité avec le meilleur nombre de candidats trouvé jusque là.
+ */
+public class MinimumRemainingValuesBranching implements BranchingPolicy {
+
+    @Override
+    public int selectCell(short[] cellMasks) {
+        int bestCellIndex = -1;
+        int bestNbCandidates = 10;
+        int bestDegree = -1;
+
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int nbCandidates = MaskGrid.getNbCandidates(cellMasks[cellIndex]);
+            if (nbCandidates < 2 || nbCandidates > bestNbCandidates) {
+                continue;
+            }
+            int degree = getDegree(cellMasks, cellIndex);
+            if (nbCandidates < bestNbCandidates || degree > bestDegree) {
+                bestCellIndex = cellIndex;
+                bestNbCandidates = nbCandidates;
+                bestDegree = degree;
+            }
+        }
+        return bestCellIndex;
+    }
+
+    /**
+     * Renvoie le nombre de pairs non résolus de la cellule
+     * @param cellMasks
+     * @param cellIndex
+     * @return int : de 0 à 20
+     */
+    private static int getDegree(short[] cellMasks, int cellIndex) {
+        int degree = 0;
+        for (int peerIndex : MaskGrid.getPeers(cellIndex)) {
+            if (!MaskGrid.isSingle(cellMasks[peerIndex])) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+}
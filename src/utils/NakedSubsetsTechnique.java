@@ -0,0 +1,101 @@
+package utils;
+
+/**
+ * Technique des "naked subsets" (paires, triplets, quadruplets) :
+ * si N cellules d'une unité ne contiennent à elles toutes que N candidats,
+ * ces N chiffres leur sont réservés et sont retirés des autres cellules de l'unité
+ * <p>
+ * Seules les cellules non résolues ayant au plus N candidats peuvent faire partie d'un tel groupe :
+ * les combinaisons sont énumérées parmi elles en abandonnant dès que l'union dépasse N candidats.
+ */
+public class NakedSubsetsTechnique implements Technique {
+
+    private static final String[] SUBSET_NAMES = { "", "", "pairs", "triples", "quads" };
+
+    private final int subsetSize;
+
+    /**
+     * Constructeur
+     * @param subsetSize : la taille des groupes recherchés, de 2 (paires) à 4 (quadruplets)
+     */
+    public NakedSubsetsTechnique(int subsetSize) {
+        if (subsetSize < 2 || subsetSize > 4) {
+            throw new IllegalArgumentException("taille de groupe invalide : " + subsetSize);
+        }
+        this.subsetSize = subsetSize;
+    }
+
+    @Override
+    public String getName() {
+        return "naked-" + SUBSET_NAMES[this.subsetSize];
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        short[] cellMasks = propagator.getCellMasks();
+        int[] positions = new int[9];
+        for (int unitIndex = 0; unitIndex < MaskGrid.NB_UNITS; unitIndex++) {
+            int[] unitCells = MaskGrid.getUnitCells(unitIndex);
+            int nbPositions = 0;
+            for (int position = 0; position < 9; position++) {
+                int nbCandidates = MaskGrid.getNbCandidates(cellMasks[unitCells[position]]);
+                if (nbCandidates >= 2 && nbCandidates <= this.subsetSize) {
+                    positions[nbPositions] = position;
+                    nbPositions++;
+                }
+            }
+            if (nbPositions >= this.subsetSize
+                    && !this.searchSubsets(propagator, unitCells, positions, nbPositions, 0, 0, 0, 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Énumère les groupes de cellules de l'unité, et applique chaque naked subset trouvé
+     * @param propagator
+     * @param unitCells : les 9 cellules de l'unité
+     * @param positions : les positions dans l'unité des cellules pouvant faire partie d'un groupe
+     * @param nbPositions
+     * @param start : la première position à essayer
+     * @param depth : le nb de cellules déjà choisies
+     * @param unionMask : l'union des candidats des cellules déjà choisies
+     * @param subsetPositions : le masque des positions déjà choisies
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private boolean searchSubsets(Propagator propagator, int[] unitCells, int[] positions, int nbPositions,
+            int start, int depth, int unionMask, int subsetPositions) {
+        if (depth == this.subsetSize) {
+            return MaskGrid.getNbCandidates(unionMask) != this.subsetSize
+                    || eliminateOutside(propagator, unitCells, subsetPositions, unionMask);
+        }
+        short[] cellMasks = propagator.getCellMasks();
+        for (int index = start; index < nbPositions; index++) {
+            int newUnionMask = unionMask | cellMasks[unitCells[positions[index]]];
+            if (MaskGrid.getNbCandidates(newUnionMask) <= this.subsetSize
+                    && !this.searchSubsets(propagator, unitCells, positions, nbPositions, index + 1, depth + 1,
+                            newUnionMask, subsetPositions | (1 << positions[index]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retire les chiffres d'un groupe de toutes les autres cellules de l'unité
+     * @param propagator
+     * @param unitCells
+     * @param subsetPositions : le masque des positions du groupe dans l'unité
+     * @param subsetMask : les chiffres du groupe
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private static boolean eliminateOutside(Propagator propagator, int[] unitCells, int subsetPositions, int subsetMask) {
+        for (int position = 0; position < 9; position++) {
+            if ((subsetPositions & (1 << position)) == 0 && !propagator.eliminate(unitCells[position], subsetMask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,14 @@
+package utils;
+
+/**
+ * Ordonnancement naturel : les candidats du plus petit au plus grand
+ * <p>
+ * C'est l'ordre dans lequel l'embranchement binaire de Grid.recurseSolve explore les candidats.
+ */
+public class NaturalValueOrdering implements ValueOrdering {
+
+    @Override
+    public int orderCandidates(short[] cellMasks, int cellIndex, int[] orderedCandidates) {
+        return ValueOrdering.listCandidates(cellMasks, cellIndex, orderedCandidates);
+    }
+}
@@ -0,0 +1,172 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+
+/**
+ * Format binaire compact des archives de grilles : 4 bits par cellule, soit 41 octets par grille
+ * <p>
+ * Le fichier commence par un en-tête de HEADER_SIZE octets :
+ * <ul>
+ *  <li>octets 0 à 3 : la signature "SDKP"</li>
+ *  <li>octet 4 : la version du format (VERSION)</li>
+ *  <li>octet 5 : les drapeaux, HAS_SOLUTIONS_FLAG si chaque grille est suivie de sa solution</li>
+ *  <li>octets 6 et 7 : la taille d'un enregistrement en octets (big-endian), pour vérification</li>
+ * </ul>
+ * suivi d'enregistrements de taille fixe : la grille (GRID_SIZE octets), puis sa solution (GRID_SIZE octets)
+ * si le fichier en contient. L'enregistrement n commence donc à HEADER_SIZE + n * taille d'un enregistrement,
+ * et peut être lu directement (cf PackedGridReader).
+ * <p>
+ * Une grille est codée cellule par cellule, ligne de grille après ligne de grille : la cellule d'index pair
+ * dans les 4 bits de poids fort de son octet, la suivante dans les 4 bits de poids faible
+ * (les 4 derniers bits du dernier octet sont inutilisés). Chaque cellule vaut son chiffre de 1 à 9,
+ * ou 0 si elle est vide. Une solution absente (grille sans solution, ou résolue en mode comptage) est toute à 0.
+ * <p>
+ * Une grille de 81 caractères en occupe 82 avec sa fin de ligne, une grille de 9 lignes au moins 90 :
+ * le format compact est environ 2 fois plus petit que le format texte le plus dense.
+ */
+public class PackedGridFormat {
+
+    /**
+     * La taille de l'en-tête, en octets
+     */
+    public static final int HEADER_SIZE = 8;
+
+    /**
+     * La taille d'une grille codée, en octets
+     */
+    public static final int GRID_SIZE = (MaskGrid.NB_CELLS + 1) / 2;
+
+    /**
+     * La version du format écrite dans l'en-tête
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Drapeau de l'en-tête : chaque grille est suivie de sa solution
+     */
+    public static final byte HAS_SOLUTIONS_FLAG = 0x01;
+
+    private static final byte[] SIGNATURE = { 'S', 'D', 'K', 'P' };
+
+    // le masque de chaque valeur de cellule codée, 0 pour une valeur invalide
+    private static final short[] NIBBLE_MASKS = buildNibbleMasks();
+
+    /**
+     * Constructeur privé pour empêcher l'instanciation
+     * <p>
+     * classe ne contenant que des méthodes purement statiques
+     */
+    private PackedGridFormat(){}
+
+    /**
+     * Renvoie la taille d'un enregistrement
+     * @param hasSolutions
+     * @return int : en octets
+     */
+    public static int getRecordSize(boolean hasSolutions) {
+        return hasSolutions ? 2 * GRID_SIZE : GRID_SIZE;
+    }
+
+    /**
+     * Écrit l'en-tête d'un fichier
+     * @param header : HEADER_SIZE octets à remplir
+     * @param hasSolutions
+     */
+    static void writeHeader(byte[] header, boolean hasSolutions) {
+        System.arraycopy(SIGNATURE, 0, header, 0, SIGNATURE.length);
+        header[4] = VERSION;
+        header[5] = hasSolutions ? HAS_SOLUTIONS_FLAG : 0;
+        int recordSize = getRecordSize(hasSolutions);
+        header[6] = (byte) (recordSize >>> 8);
+        header[7] = (byte) recordSize;
+    }
+
+    /**
+     * Vérifie si un tampon commence par la signature du format
+     * @param header : lu à partir de sa position 0
+     * @return boolean
+     */
+    static boolean hasSignature(ByteBuffer header) {
+        if (header.limit() < HEADER_SIZE) {
+            return false;
+        }
+        for (int byteIndex = 0; byteIndex < SIGNATURE.length; byteIndex++) {
+            if (header.get(byteIndex) != SIGNATURE[byteIndex]) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Vérifie si un fichier commence par la signature du format, sans signaler d'erreur
+     * @param fileName
+     * @return boolean : false si le fichier est introuvable, illisible ou d'un autre format
+     */
+    public static boolean isPackedFile(String fileName) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName))) {
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // lecture de l'en-tête complet
+            }
+        } catch (IOException | InvalidPathException e) {
+            return false;
+        }
+        header.flip();
+        return hasSignature(header);
+    }
+
+    /**
+     * Code une grille de masques : les cellules résolues par leur chiffre, les autres par 0
+     * @param cellMasks
+     * @param bytes
+     * @param offset : l'index du premier des GRID_SIZE octets à écrire
+     */
+    public static void pack(short[] cellMasks, byte[] bytes, int offset) {
+        bytes[offset + GRID_SIZE - 1] = 0;
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int mask = cellMasks[cellIndex];
+            int value = MaskGrid.isSingle(mask) ? MaskGrid.maskToDigit(mask) : 0;
+            int byteIndex = offset + cellIndex / 2;
+            if ((cellIndex & 1) == 0) {
+                bytes[byteIndex] = (byte) (value << 4);
+            } else {
+                bytes[byteIndex] |= (byte) value;
+            }
+        }
+    }
+
+    /**
+     * Décode une grille, sans modifier la position du tampon
+     * @param bytes
+     * @param offset : l'index du premier des GRID_SIZE octets à lire
+     * @param cellMasks : la grille à remplir, les cellules vides recevant tous les candidats ;
+     * partiellement remplie si la grille est invalide
+     * @return boolean : false si une valeur n'est ni un chiffre de 1 à 9 ni 0
+     */
+    public static boolean unpack(ByteBuffer bytes, int offset, short[] cellMasks) {
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int currentByte = bytes.get(offset + cellIndex / 2);
+            int value = (cellIndex & 1) == 0 ? (currentByte >>> 4) & 0xF : currentByte & 0xF;
+            short mask = NIBBLE_MASKS[value];
+            if (mask == 0) { return false; }
+            cellMasks[cellIndex] = mask;
+        }
+        return true;
+    }
+
+    /**
+     * Construit la table des masques de chaque valeur de cellule codée, une seule fois au chargement de la classe
+     * @return short[] : 16 masques, 0 pour une valeur supérieure à 9
+     */
+    private static short[] buildNibbleMasks() {
+        short[] nibbleMasks = new short[16];
+        nibbleMasks[0] = MaskGrid.ALL_CANDIDATES;
+        for (int digit = 1; digit <= 9; digit++) {
+            nibbleMasks[digit] = MaskGrid.digitToMask(digit);
+        }
+        return nibbleMasks;
+    }
+}
@@ -0,0 +1,156 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.Objects;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Lecteur d'archives de grilles au format binaire compact (cf PackedGridFormat), en accès direct
+ * <p>
+ * Les enregistrements étant de taille fixe, la grille n est lue directement à sa position, sans lire les précédentes :
+ * le fichier est projeté en mémoire par fenêtres d'un nombre entier d'enregistrements, d'au plus MAPPING_SIZE octets.
+ * Un dernier enregistrement incomplet (écriture interrompue) est ignoré.
+ * <p>
+ * Les lectures ne modifient aucun état : une même instance peut être lue par plusieurs threads à la fois,
+ * par exemple en se répartissant des tranches d'index, ou par grids(true).
+ */
+public class PackedGridReader implements Closeable {
+
+    /**
+     * La taille maximale d'une fenêtre de projection, en octets
+     */
+    public static final int MAPPING_SIZE = 1 << 28;
+
+    private final FileChannel channel;
+    private final boolean hasSolutions;
+    private final int recordSize;
+    private final long nbRecords;
+    private final int nbWindowRecords; // le nb d'enregistrements par fenêtre
+    private final MappedByteBuffer[] windows;
+
+    /**
+     * Ouvre une archive et projette tous ses enregistrements en mémoire
+     * @param fileName
+     * @throws IOException si le fichier est introuvable, illisible ou d'un autre format
+     */
+    public PackedGridReader(String fileName) throws IOException {
+        this.channel = FileChannel.open(Paths.get(fileName));
+        try {
+            ByteBuffer header = ByteBuffer.allocate(PackedGridFormat.HEADER_SIZE);
+            while (header.hasRemaining() && this.channel.read(header, header.position()) != -1) {
+                // lecture de l'en-tête complet
+            }
+            header.flip();
+            if (!PackedGridFormat.hasSignature(header) || header.get(4) != PackedGridFormat.VERSION) {
+                throw new IOException(MessageFormat.format(
+                        "Le fichier {0} n est pas une archive de grilles compactes de version {1}",
+                        fileName, PackedGridFormat.VERSION));
+            }
+            this.hasSolutions = (header.get(5) & PackedGridFormat.HAS_SOLUTIONS_FLAG) != 0;
+            this.recordSize = PackedGridFormat.getRecordSize(this.hasSolutions);
+            if (header.getShort(6) != this.recordSize) {
+                throw new IOException(MessageFormat.format(
+                        "Le fichier {0} annonce des enregistrements de {1} octets au lieu de {2}",
+                        fileName, header.getShort(6), this.recordSize));
+            }
+            this.nbRecords = (this.channel.size() - PackedGridFormat.HEADER_SIZE) / this.recordSize;
+            this.nbWindowRecords = MAPPING_SIZE / this.recordSize;
+            this.windows = new MappedByteBuffer[(int) ((this.nbRecords + this.nbWindowRecords - 1) / this.nbWindowRecords)];
+            for (int windowIndex = 0; windowIndex < this.windows.length; windowIndex++) {
+                long firstRecordIndex = (long) windowIndex * this.nbWindowRecords;
+                long windowRecords = Math.min(this.nbWindowRecords, this.nbRecords - firstRecordIndex);
+                this.windows[windowIndex] = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                        PackedGridFormat.HEADER_SIZE + firstRecordIndex * this.recordSize, windowRecords * this.recordSize);
+            }
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Renvoie le nb de grilles de l'archive
+     * @return long
+     */
+    public long getNbRecords() {
+        return this.nbRecords;
+    }
+
+    /**
+     * Indique si chaque grille de l'archive est suivie de sa solution
+     * @return boolean
+     */
+    public boolean hasSolutions() {
+        return this.hasSolutions;
+    }
+
+    /**
+     * Lit la grille d'index donné
+     * @param recordIndex : de 0 à getNbRecords() - 1
+     * @return short[] : une nouvelle grille de masques, ou null si l'enregistrement est invalide
+     */
+    public short[] readGrid(long recordIndex) {
+        short[] cellMasks = new short[MaskGrid.NB_CELLS];
+        return this.readGrid(recordIndex, 0, cellMasks) ? cellMasks : null;
+    }
+
+    /**
+     * Lit la solution de la grille d'index donné
+     * @param recordIndex : de 0 à getNbRecords() - 1
+     * @return short[] : une nouvelle grille de masques, ou null si l'archive ne contient pas de solutions,
+     * si la grille n'a pas de solution enregistrée ou si l'enregistrement est invalide
+     */
+    public short[] readSolution(long recordIndex) {
+        if (!this.hasSolutions) {
+            return null;
+        }
+        short[] cellMasks = new short[MaskGrid.NB_CELLS];
+        if (!this.readGrid(recordIndex, PackedGridFormat.GRID_SIZE, cellMasks)) {
+            return null;
+        }
+        // une solution absente est codée toute à 0, et une solution ne contient aucune cellule vide
+        for (short mask : cellMasks) {
+            if (!MaskGrid.isSingle(mask)) { return null; }
+        }
+        return cellMasks;
+    }
+
+    /**
+     * Renvoie un stream de toutes les grilles valides de l'archive, dans l'ordre des enregistrements
+     * @param isParallel : true pour un stream parallèle, découpé en tranches d'index
+     * @return Stream<short[]>
+     */
+    public Stream<short[]> grids(boolean isParallel) {
+        LongStream recordIndexes = LongStream.range(0, this.nbRecords);
+        return (isParallel ? recordIndexes.parallel() : recordIndexes).mapToObj(this::readGrid).filter(Objects::nonNull);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Décode la grille ou la solution d'un enregistrement
+     * @param recordIndex
+     * @param gridOffset : 0 pour la grille, GRID_SIZE pour la solution
+     * @param cellMasks : la grille à remplir
+     * @return boolean : false si l'enregistrement est invalide
+     */
+    private boolean readGrid(long recordIndex, int gridOffset, short[] cellMasks) {
+        if (recordIndex < 0 || recordIndex >= this.nbRecords) {
+            throw new IndexOutOfBoundsException(MessageFormat.format(
+                    "Grille {0} hors de l archive ({1} grilles)", recordIndex, this.nbRecords));
+        }
+        MappedByteBuffer window = this.windows[(int) (recordIndex / this.nbWindowRecords)];
+        int recordOffset = (int) (recordIndex % this.nbWindowRecords) * this.recordSize;
+        return PackedGridFormat.unpack(window, recordOffset + gridOffset, cellMasks);
+    }
+}
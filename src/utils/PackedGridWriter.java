@@ -0,0 +1,123 @@
+package utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.MessageFormat;
+
+/**
+ * Écrivain d'archives de grilles au format binaire compact (cf PackedGridFormat)
+ * <p>
+ * Chaque grille est ajoutée à la fin du fichier, avec sa solution si l'archive en contient :
+ * la n-ième grille écrite est l'enregistrement n - 1 de l'archive (cf PackedGridReader).<br>
+ * L'écriture passe par un tampon ; une erreur d'écriture (disque plein...) est signalée une seule fois,
+ * puis les grilles suivantes sont refusées.
+ * <p>
+ * Les appels à write sont synchronisés : une même instance peut recevoir les grilles de plusieurs threads,
+ * les enregistrements étant alors dans l'ordre des appels.
+ */
+public class PackedGridWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String fileName;
+    private final boolean hasSolutions;
+    private final OutputStream output;
+    private final byte[] record; // réutilisé pour chaque grille
+    private long nbRecords = 0;
+    private boolean hasFailed = false;
+
+    /**
+     * Constructeur, le fichier est créé ou écrasé et reçoit son en-tête
+     * @param fileName
+     * @param hasSolutions : true pour enregistrer la solution de chaque grille
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    public PackedGridWriter(String fileName, boolean hasSolutions) throws IOException {
+        this.fileName = fileName;
+        this.hasSolutions = hasSolutions;
+        this.record = new byte[PackedGridFormat.getRecordSize(hasSolutions)];
+        this.output = new BufferedOutputStream(new FileOutputStream(fileName), BUFFER_SIZE);
+        byte[] header = new byte[PackedGridFormat.HEADER_SIZE];
+        PackedGridFormat.writeHeader(header, hasSolutions);
+        try {
+            this.output.write(header);
+        } catch (IOException e) {
+            this.output.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ajoute une grille et sa solution
+     * @param cellMasks : la grille, seules ses cellules résolues étant enregistrées
+     * @param solutionMasks : sa solution, ou null si elle n'en a pas ; ignorée si l'archive ne contient pas de solutions
+     * @return boolean : false si la grille n'a pas pu être écrite
+     */
+    public synchronized boolean write(short[] cellMasks, short[] solutionMasks) {
+        if (this.hasFailed) {
+            return false;
+        }
+        PackedGridFormat.pack(cellMasks, this.record, 0);
+        if (this.hasSolutions) {
+            if (solutionMasks == null) {
+                // une solution absente est toute à 0
+                for (int byteIndex = PackedGridFormat.GRID_SIZE; byteIndex < this.record.length; byteIndex++) {
+                    this.record[byteIndex] = 0;
+                }
+            } else {
+                PackedGridFormat.pack(solutionMasks, this.record, PackedGridFormat.GRID_SIZE);
+            }
+        }
+        try {
+            this.output.write(this.record);
+        } catch (IOException e) {
+            this.reportWriteError();
+            return false;
+        }
+        this.nbRecords++;
+        return true;
+    }
+
+    /**
+     * Ajoute une grille résolue, avec la première solution conservée par son SolveResult
+     * @param cellMasks : la grille de départ
+     * @param solveResult : la résolution de la grille (sans solution en mode comptage)
+     * @return boolean : false si la grille n'a pas pu être écrite
+     */
+    public boolean write(short[] cellMasks, SolveResult solveResult) {
+        return this.write(cellMasks, solveResult.getSolutionMasks(0));
+    }
+
+    /**
+     * Renvoie le nb de grilles écrites
+     * @return long
+     */
+    public synchronized long getNbRecords() {
+        return this.nbRecords;
+    }
+
+    /**
+     * Vide le tampon puis ferme le fichier
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            this.output.close();
+        } catch (IOException e) {
+            this.reportWriteError();
+        }
+    }
+
+    /**
+     * Signale la première erreur d'écriture
+     */
+    private void reportWriteError() {
+        if (!this.hasFailed) {
+            this.hasFailed = true;
+            System.err.println(MessageFormat.format("ERREUR : Impossible d ecrire dans le fichier {0} !", this.fileName));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Moteur de résolution parallèle d'une seule grille : l'arbre de recherche est réparti entre les threads d'un ForkJoinPool
+ * <p>
+ * Les premiers niveaux de l'arbre sont explorés par des tâches (SearchTask) : chacune propage son noeud
+ * puis crée une sous-tâche par candidat de la cellule d'embranchement, que les threads inoccupés peuvent voler.<br>
+ * Dès que le pool a assez de tâches en attente (ou au-delà de MAX_SPLIT_DEPTH niveaux),
+ * une tâche explore tout son sous-arbre d'un coup avec le moteur séquentiel choisi, propre à chaque thread.
+ * <p>
+ * Chaque tâche a son propre SolveResult, lié à un SolutionQuota commun : la première solution qui dépasse le quota
+ * arrête tous les threads à leur prochain embranchement.<br>
+ * À la fin, les solutions et les statistiques des sous-arbres sont cumulées dans le SolveResult fourni,
+ * dans l'ordre de l'arbre : pour une énumération complète, les solutions sont donc les mêmes et dans le même ordre
+ * qu'en séquentiel (avec un embranchement par candidat) ; avec un quota, ce peuvent être d'autres solutions.<br>
+ * Avec un destinataire de solutions (cf SolutionSink), chaque thread lui transmet au contraire ses solutions
+ * dès qu'il les trouve, dans le désordre.
+ * <p>
+ * Une instance peut être réutilisée pour plusieurs grilles successives, mais pas pour plusieurs grilles à la fois.
+ */
+public class ParallelSolver implements Solver {
+
+    /**
+     * La profondeur au-delà de laquelle les sous-arbres ne sont plus répartis
+     */
+    public static final int MAX_SPLIT_DEPTH = 12;
+
+    // au-delà de ce nb de tâches en attente dans la file du thread, une tâche explore son sous-arbre elle-même
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Solver> threadSolvers; // le moteur séquentiel de chaque thread du pool
+    private final ValueOrdering naturalValueOrdering = new NaturalValueOrdering();
+
+    private SolveResult rootSolveResult;
+    private SolutionQuota sharedQuota;
+
+    /**
+     * Constructeur
+     * @param subtreeEngine : le moteur qui explore les sous-arbres qui ne sont plus répartis
+     * @param nbThreads : le nb de threads du pool
+     */
+    public ParallelSolver(Arguments.Engine subtreeEngine, int nbThreads) {
+        this.pool = new ForkJoinPool(nbThreads);
+        this.threadSolvers = ThreadLocal.withInitial(subtreeEngine::createSolver);
+    }
+
+    @Override
+    public void solve(SolveResult solveResult) {
+        solveResult.startTimer();
+        this.rootSolveResult = solveResult;
+        this.sharedQuota = new SolutionQuota(solveResult.getNbMaxSolutions());
+
+        // le noeud racine est propagé dans le SolveResult fourni, comme le ferait un moteur séquentiel
+        List<SolveResult> subSolveResults = this.pool.invoke(new SearchTask(solveResult, 0));
+        for (SolveResult subSolveResult : subSolveResults) {
+            solveResult.add(subSolveResult);
+        }
+
+        this.rootSolveResult = null;
+        this.sharedQuota = null;
+        solveResult.stopTimer();
+    }
+
+    /**
+     * Crée le SolveResult d'un sous-arbre : mêmes options que la racine, et quota partagé
+     * @param branch : la grille du sous-arbre
+     * @return SolveResult
+     */
+    private SolveResult createSubSolveResult(PassResult branch) {
+        SolveResult subSolveResult = this.rootSolveResult.createSubSolveResult(branch);
+        subSolveResult.setSharedQuota(this.sharedQuota);
+        return subSolveResult;
+    }
+
+    /**
+     * Tâche qui explore le sous-arbre d'un noeud
+     * <p>
+     * Elle renvoie les SolveResults de tous les noeuds et sous-arbres explorés, dans l'ordre de l'arbre,
+     * sauf celui de la racine qui est directement le SolveResult fourni à ParallelSolver.solve.
+     */
+    private final class SearchTask extends RecursiveTask<List<SolveResult>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SolveResult nodeSolveResult;
+        private final int depth;
+
+        private SearchTask(SolveResult nodeSolveResult, int depth) {
+            this.nodeSolveResult = nodeSolveResult;
+            this.depth = depth;
+        }
+
+        @Override
+        protected List<SolveResult> compute() {
+            List<SolveResult> subSolveResults = new ArrayList<>();
+            if (sharedQuota.isFull()) {
+                return subSolveResults;
+            }
+            if (this.depth > 0) {
+                subSolveResults.add(this.nodeSolveResult);
+                if (this.depth >= MAX_SPLIT_DEPTH || getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+                    // assez de travail en attente : ce sous-arbre est exploré d'un coup, sur ce thread
+                    threadSolvers.get().solve(this.nodeSolveResult);
+                    return subSolveResults;
+                }
+            }
+
+            // propagation du noeud, comme dans Grid.recurseSolve
+            this.nodeSolveResult.incRecursionCounter();
+            PassResult passResult = this.nodeSolveResult.getPropagator().propagate(this.nodeSolveResult.getCurrentPassResult());
+            this.nodeSolveResult.updatePassResult(passResult);
+            if (!this.nodeSolveResult.needsRecursion()) {
+                return subSolveResults;
+            }
+
+            // une sous-tâche par candidat de la cellule d'embranchement
+            short[] cellMasks = passResult.getCellMasks();
+            int cellIndex = this.nodeSolveResult.getBranchingPolicy().selectCell(cellMasks);
+            ValueOrdering valueOrdering = this.nodeSolveResult.getValueOrdering() == null
+                    ? naturalValueOrdering
+                    : this.nodeSolveResult.getValueOrdering();
+            int[] orderedCandidates = new int[9];
+            int nbCandidates = valueOrdering.orderCandidates(cellMasks, cellIndex, orderedCandidates);
+            List<SearchTask> childTasks = new ArrayList<>(nbCandidates);
+            for (int candidateIndex = 0; candidateIndex < nbCandidates; candidateIndex++) {
+                PassResult branch = new PassResult(passResult);
+                branch.getCellMasks()[cellIndex] = (short) orderedCandidates[candidateIndex];
+                childTasks.add(new SearchTask(createSubSolveResult(branch), this.depth + 1));
+            }
+            invokeAll(childTasks);
+            for (SearchTask childTask : childTasks) {
+                subSolveResults.addAll(childTask.join());
+            }
+            return subSolveResults;
+        }
+    }
+}
@@ -3,13 +3,13 @@ package utils;
 /**
  * Classe qui symbolise le résultat d'une passe
  * <p>
- * En plus de contenir le cellArray résultant d'une passe,
+ * En plus de contenir la grille de masques (cellMasks, cf MaskGrid) résultant d'une passe,
  *  les instances de passResult contiennent aussi des flags permettant l'analyse 
  * des résultats et la prise de décision.<br>
  * 3 flags sont codés sur un bit et sont réunis au sein d'un meme octet (char) : 
  * <ul>
  *  <li>isDirty : indique que des modifications ont été faites sur la grille durant cette passe</li>
- *  <li>isUnsolvable : indique qu'une cellule dans ce cellArray n'a aucun candidat possible selon les règles</li>
+ *  <li>isUnsolvable : indique qu'une cellule dans cette grille n'a aucun candidat possible selon les règles</li>
  *  <li>hasMultipleCandidates : indique qu'au moins une cellule n'est pas encore résolue (contient plusieurs valeurs potentielles)</li>
  * </ul>
  * 2 flags sont dérivés des 3 autres 
@@ -26,15 +26,39 @@ public class PassResult {
     private static final char IS_UNSOLVABLE = 0b0100;
 
     private char state = PassResult.NULL_STATE;
-    private int[][][] cellArray;
+    private short[] cellMasks;
+    private short[] unitMasks; // les chiffres placés et propagés dans chaque ligne, colonne et carré (cf Propagator)
     private int nbPasses;
 
     /**
-     * Crée une nvelle instance de PassResult avec une copie du cellArray passé en paramètre
+     * Crée une nvelle instance de PassResult avec une copie de la grille de masques passée en paramètre
+     * <p>
+     * Les masques d'unités sont vides : aucune cellule résolue n'a encore été propagée
+     * @param cellMasks
+     */
+    public PassResult(short[] cellMasks){
+        this.cellMasks = MaskGrid.copy(cellMasks);
+        this.unitMasks = new short[MaskGrid.NB_UNITS];
+        this.nbPasses = 0;
+    }
+
+    /**
+     * Crée une nvelle instance de PassResult à partir d'un cellArray, converti en grille de masques
      * @param cellArray
      */
     public PassResult(int[][][] cellArray){
-        this.cellArray = Grid.cellArrayDeepCopy(cellArray);
+        this(MaskGrid.fromCellArray(cellArray));
+    }
+
+    /**
+     * Crée une nvelle instance de PassResult avec une copie de la grille et des masques d'unités d'un autre passResult
+     * <p>
+     * Les flags et le nb de passes ne sont pas recopiés.
+     * @param origPassResult
+     */
+    public PassResult(PassResult origPassResult){
+        this.cellMasks = MaskGrid.copy(origPassResult.cellMasks);
+        this.unitMasks = origPassResult.unitMasks.clone();
         this.nbPasses = 0;
     }
 
@@ -43,27 +67,50 @@ public class PassResult {
      **********************************************/
 
     /**
-     * Renvoie l'instance originale du cellArray
-     * @return int[][][] : un cellArray
+     * Renvoie l'instance originale de la grille de masques
+     * @return short[] : 81 masques de candidats
      */
-    public int[][][] getCellArray(){
-        return this.cellArray;
+    public short[] getCellMasks(){
+        return this.cellMasks;
     }
 
     /**
-     * Renvoie une copie du cellArray
+     * Remplace l'instance de la grille de masques par une nouvelle
+     * <p>
+     * Les masques d'unités sont remis à zéro : toute la nouvelle grille sera propagée
+     * @param newCellMasks
+     */
+    public void setCellMasks(short[] newCellMasks){
+        this.cellMasks = newCellMasks;
+        this.unitMasks = new short[MaskGrid.NB_UNITS];
+    }
+
+    /**
+     * Renvoie l'instance originale des masques d'unités
+     * <p>
+     * Ils sont mis à jour par le Propagator à chaque fois que le chiffre d'une cellule résolue est propagé.
+     * @return short[] : 27 masques des chiffres placés
+     */
+    public short[] getUnitMasks(){
+        return this.unitMasks;
+    }
+
+    /**
+     * Renvoie la grille convertie en cellArray
+     * <p>
+     * Le cellArray est recréé à chaque appel, il s'agit donc toujours d'une copie
      * @return int[][][] : un cellArray
      */
-    public int[][][] getCellArrayCopy(){
-        return Grid.cellArrayDeepCopy(this.cellArray);
+    public int[][][] getCellArray(){
+        return MaskGrid.toCellArray(this.cellMasks);
     }
-    
-    /** 
-     * Remplace l'instance de cellArray par une nouvelle
+
+    /**
+     * Remplace la grille par la conversion du cellArray fourni
      * @param newCellArray
      */
     public void setCellArray(int[][][] newCellArray){
-        this.cellArray = newCellArray;
+        this.setCellMasks(MaskGrid.fromCellArray(newCellArray));
     }
 
     public int getNbPasses() {
@@ -0,0 +1,39 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Évènement Java Flight Recorder émis pour chaque propagation d'un noeud de l'arbre de recherche
+ * (cf Grid.recurseSolve et TrailSolver)
+ * <p>
+ * Sa durée couvre la propagation de la file et des techniques d'inférence.<br>
+ * Désactivé par défaut, car il y en a un par embranchement : il doit être activé explicitement,
+ * le coût d'un évènement désactivé étant alors quasi nul.
+ * <p>
+ * Le premier chargement d'une classe d'évènement initialise JFR, ce qui coûte environ 200 ms :
+ * les moteurs ne créent donc leurs évènements que si FlightRecorder.isInitialized(),
+ * c'est-à-dire une fois un enregistrement démarré (au lancement ou plus tard par jcmd).
+ */
+@Name("sudoku.Propagation")
+@Label("Propagation")
+@Category("Sudoku")
+@Description("Propagation d un noeud de l arbre de recherche")
+@Enabled(false)
+public class PropagationEvent extends jdk.jfr.Event {
+
+    @Label("Profondeur")
+    public int depth;
+
+    @Label("Candidats retires")
+    public long nbEliminatedCandidates;
+
+    @Label("Vagues")
+    public int nbWaves;
+
+    @Label("Coherent")
+    public boolean isConsistent;
+}
@@ -0,0 +1,341 @@
+package utils;
+
+/**
+ * Classe qui propage les contraintes d'une grille de masques à partir d'une file de cellules à traiter (worklist)
+ * <p>
+ * Plutôt que de repasser sur les 81 cellules à chaque tour, seules les cellules qui viennent d'être résolues
+ * sont mises en file : leur chiffre est alors placé dans les masques de leurs 3 unités
+ * puis retiré des candidats de leurs 20 pairs. Un pair qui se retrouve à son tour avec un seul candidat
+ * est ajouté en fin de file, et ainsi de suite jusqu'à ce que la file soit vide.<br>
+ * Les masques d'unités ne contiennent donc que les chiffres dont la propagation a déjà été effectuée.
+ * <p>
+ * Les cellules traitées sont regroupées en "vagues" : une vague contient les cellules résolues pendant la vague précédente,
+ * ce qui correspond à peu près à l'ancienne notion de passe complète sur la grille.
+ * <p>
+ * Lorsque la file est vide, les techniques d'inférence du pipeline (cf Technique) sont essayées dans l'ordre,
+ * une technique n'étant appelée que si les précédentes n'ont rien donné.
+ * Dès qu'une technique retire un candidat, la file est propagée et le pipeline reprend depuis la première technique,
+ * et ainsi de suite jusqu'à ce que plus rien ne change.<br>
+ * Par défaut, le pipeline contient les hidden singles puis les locked candidates (cf getDefaultTechniques).
+ * <p>
+ * Une instance n'est liée à aucune grille en particulier et peut être réutilisée d'une grille à l'autre
+ * (cf SolveResult.getPropagator), mais elle ne doit pas être partagée entre plusieurs threads.
+ * <p>
+ * Si une Trail lui est associée, chaque modification de masque y est enregistrée au préalable
+ * afin de pouvoir être annulée (cf TrailSolver).
+ */
+public class Propagator {
+
+    private final int[] queue = new int[MaskGrid.NB_CELLS]; // chaque cellule n'est mise en file qu'une fois au plus
+    private int queueHead;
+    private int queueTail;
+
+    private short[] cellMasks;
+    private short[] unitMasks;
+    private Trail trail; // null si les modifications n'ont pas besoin d'être annulées
+
+    private int nbWaves;
+    private long nbExaminedCells; // nb d'appels à eliminate depuis le dernier reset
+    private long nbEliminations; // nb de candidats retirés depuis la création du propagateur
+
+    private Technique[] techniques = getDefaultTechniques();
+    private TechniqueStats techniqueStats; // null si les techniques n'ont pas besoin d'être mesurées
+
+    /**
+     * Renvoie le pipeline de techniques utilisé par défaut : hidden singles puis locked candidates
+     * @return Technique[] : un nouveau tableau
+     */
+    public static Technique[] getDefaultTechniques() {
+        return new Technique[] { new HiddenSinglesTechnique(), new LockedCandidatesTechnique() };
+    }
+
+    /**
+     * Propage les contraintes du passResult fourni, directement dans sa grille
+     * <p>
+     * La file est initialisée avec les cellules résolues dont le chiffre n'a pas encore été propagé
+     * (toutes les cellules fixes pour une grille de départ, la seule cellule de l'embranchement sinon).<br>
+     * À la fin de la propagation, les flags du passResult sont mis à jour comme l'étaient ceux de la dernière passe :
+     * isUnsolvable en cas de contradiction, hasMultipleCandidates s'il reste des cellules non résolues,
+     * et isDirty seulement si la propagation a été interrompue par la limite de Grid.MAX_RECURSION_DEPTH vagues.
+     * @param passResult
+     * @return PassResult : le passResult fourni, mis à jour
+     */
+    public PassResult propagate(PassResult passResult) {
+        this.reset(passResult.getCellMasks(), passResult.getUnitMasks());
+        this.enqueueNewSingles();
+
+        boolean isConsistent = this.run();
+        passResult.setNbPasses(Math.max(this.nbWaves, 1));
+        if (!isConsistent) {
+            passResult.setIsUnsolvable();
+        } else if (!this.isSolved()) {
+            passResult.setHasMultipleCandidates();
+            if (this.hasPendingCells()) {
+                // limite de vagues atteinte, il restait des cellules à propager
+                passResult.setIsDirty();
+            }
+        }
+        return passResult;
+    }
+
+    /**
+     * Lie le propagateur à une grille et vide la file
+     * @param cellMasks : les 81 masques de cellules, modifiés sur place
+     * @param unitMasks : les 27 masques d'unités associés
+     */
+    public void reset(short[] cellMasks, short[] unitMasks) {
+        this.cellMasks = cellMasks;
+        this.unitMasks = unitMasks;
+        this.queueHead = 0;
+        this.queueTail = 0;
+        this.nbWaves = 0;
+        this.nbExaminedCells = 0;
+    }
+
+    /**
+     * Associe une trail au propagateur, ou bien aucune si null
+     * @param trail
+     */
+    public void setTrail(Trail trail) {
+        this.trail = trail;
+    }
+
+    /**
+     * Remplace le pipeline de techniques d'inférence
+     * @param techniques : les techniques dans leur ordre d'application, éventuellement aucune
+     * @param techniqueStats : les statistiques à mettre à jour à chaque appel, ou null
+     */
+    public void setTechniques(Technique[] techniques, TechniqueStats techniqueStats) {
+        this.techniques = techniques;
+        this.techniqueStats = techniqueStats;
+    }
+
+    /**
+     * Renvoie la grille de masques courante, à ne modifier qu'au travers de eliminate et assign
+     * @return short[]
+     */
+    public short[] getCellMasks() {
+        return this.cellMasks;
+    }
+
+    /**
+     * Renvoie les masques d'unités courants : les chiffres déjà placés et propagés
+     * @return short[]
+     */
+    public short[] getUnitMasks() {
+        return this.unitMasks;
+    }
+
+    /**
+     * Fixe la valeur d'une cellule (sur décision d'un moteur de recherche) et la met en file
+     * @param cellIndex
+     * @param digitMask : le masque à un seul bit du chiffre choisi
+     */
+    public void assign(int cellIndex, int digitMask) {
+        this.setCellMask(cellIndex, digitMask);
+        this.enqueue(cellIndex);
+    }
+
+    /**
+     * Ajoute une cellule résolue à la file
+     * @param cellIndex
+     */
+    public void enqueue(int cellIndex) {
+        this.queue[this.queueTail] = cellIndex;
+        this.queueTail++;
+    }
+
+    /**
+     * Met en file toutes les cellules résolues dont le chiffre n'est pas encore placé dans leurs unités
+     * <p>
+     * C'est la seule lecture complète de la grille, effectuée une seule fois avant la propagation.
+     */
+    public void enqueueNewSingles() {
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            int mask = this.cellMasks[cellIndex];
+            if (MaskGrid.isSingle(mask) && (this.unitMasks[MaskGrid.getLineUnit(cellIndex)] & mask) == 0) {
+                this.enqueue(cellIndex);
+            }
+        }
+    }
+
+    /**
+     * Propage la file puis les techniques du pipeline jusqu'à ce que plus rien ne change
+     * <p>
+     * S'arrête aussi lorsque la limite de vagues est atteinte : il reste alors des cellules en file (cf hasPendingCells).
+     * @return boolean : false si une contradiction a été trouvée
+     *  (cellule sans candidat, chiffre placé deux fois ou chiffre sans place possible dans une unité)
+     */
+    public boolean run() {
+        while (true) {
+            if (!this.runQueue()) { return false; }
+            if (this.hasPendingCells()) { return true; } // limite de vagues atteinte
+
+            long nbEliminationsBefore = this.nbEliminations;
+            // une technique n'est tentée que si les précédentes, moins coûteuses, n'ont rien donné
+            for (int techniqueIndex = 0; techniqueIndex < this.techniques.length
+                    && this.nbEliminations == nbEliminationsBefore; techniqueIndex++) {
+                if (!this.applyTechnique(techniqueIndex)) { return false; }
+            }
+            if (this.nbEliminations == nbEliminationsBefore) { return true; } // plus rien ne change
+        }
+    }
+
+    /**
+     * Applique une technique du pipeline, en mettant à jour ses statistiques s'il y en a
+     * @param techniqueIndex
+     * @return boolean : false si une contradiction a été trouvée
+     */
+    private boolean applyTechnique(int techniqueIndex) {
+        if (this.techniqueStats == null) {
+            return this.techniques[techniqueIndex].apply(this);
+        }
+        long nbEliminationsBefore = this.nbEliminations;
+        long startingTime = System.nanoTime();
+        boolean isConsistent = this.techniques[techniqueIndex].apply(this);
+        this.techniqueStats.record(techniqueIndex, this.nbEliminations - nbEliminationsBefore,
+                System.nanoTime() - startingTime);
+        return isConsistent;
+    }
+
+    /**
+     * Vide la file en propageant chaque cellule résolue vers ses pairs
+     * @return boolean : false si une contradiction a été trouvée (cellule sans candidat ou chiffre placé deux fois)
+     */
+    private boolean runQueue() {
+        while (this.hasPendingCells() && this.nbWaves < Grid.MAX_RECURSION_DEPTH) {
+            // la vague courante s'arrête à la dernière cellule mise en file par la vague précédente
+            int waveEnd = this.queueTail;
+            this.nbWaves++;
+            while (this.queueHead < waveEnd) {
+                int cellIndex = this.queue[this.queueHead];
+                this.queueHead++;
+                if (!this.placeAndEliminate(cellIndex)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Place le chiffre d'une cellule résolue dans ses unités et le retire de ses pairs
+     * @param cellIndex
+     * @return boolean : false en cas de contradiction
+     */
+    private boolean placeAndEliminate(int cellIndex) {
+        int digitMask = this.cellMasks[cellIndex];
+        if ((MaskGrid.getPlacedMask(this.unitMasks, cellIndex) & digitMask) != 0) {
+            // ce chiffre est déjà placé dans la ligne, la colonne ou le carré
+            return false;
+        }
+        this.addToUnits(cellIndex, digitMask);
+
+        for (int peerIndex : MaskGrid.getPeers(cellIndex)) {
+            if (!this.eliminate(peerIndex, digitMask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retire des candidats d'une cellule, et la met en file si elle se retrouve résolue
+     * @param cellIndex
+     * @param eliminatedMask : les candidats à retirer
+     * @return boolean : false si la cellule n'a plus aucun candidat
+     */
+    public boolean eliminate(int cellIndex, int eliminatedMask) {
+        this.nbExaminedCells++;
+        int currentMask = this.cellMasks[cellIndex];
+        if ((currentMask & eliminatedMask) == 0) {
+            return true;
+        }
+        int newMask = currentMask & ~eliminatedMask;
+        if (newMask == 0) {
+            return false;
+        }
+        this.setCellMask(cellIndex, newMask);
+        if (MaskGrid.isSingle(newMask)) {
+            this.enqueue(cellIndex);
+        }
+        return true;
+    }
+
+    /**
+     * Modifie le masque d'une cellule, en enregistrant l'ancien dans la trail s'il y en a une
+     * @param cellIndex
+     * @param newMask
+     */
+    private void setCellMask(int cellIndex, int newMask) {
+        if (this.trail != null) {
+            this.trail.recordCell(cellIndex, this.cellMasks[cellIndex]);
+        }
+        this.nbEliminations += Integer.bitCount(this.cellMasks[cellIndex] & ~newMask);
+        this.cellMasks[cellIndex] = (short) newMask;
+    }
+
+    /**
+     * Ajoute un chiffre aux masques des 3 unités d'une cellule, en enregistrant les anciens dans la trail s'il y en a une
+     * @param cellIndex
+     * @param digitMask
+     */
+    private void addToUnits(int cellIndex, int digitMask) {
+        if (this.trail != null) {
+            this.trail.recordUnit(MaskGrid.getLineUnit(cellIndex), this.unitMasks[MaskGrid.getLineUnit(cellIndex)]);
+            this.trail.recordUnit(MaskGrid.getColumnUnit(cellIndex), this.unitMasks[MaskGrid.getColumnUnit(cellIndex)]);
+            this.trail.recordUnit(MaskGrid.getSquareUnit(cellIndex), this.unitMasks[MaskGrid.getSquareUnit(cellIndex)]);
+        }
+        MaskGrid.addToUnits(this.unitMasks, cellIndex, digitMask);
+    }
+
+    /**
+     * Indique s'il reste des cellules en file
+     * @return boolean
+     */
+    public boolean hasPendingCells() {
+        return this.queueHead < this.queueTail;
+    }
+
+    /**
+     * Indique si toutes les cellules de la grille sont résolues et propagées
+     * <p>
+     * Il suffit pour cela que les 9 lignes contiennent chacune les 9 chiffres.
+     * @return boolean
+     */
+    public boolean isSolved() {
+        for (int lineUnit = 0; lineUnit < 9; lineUnit++) {
+            if (this.unitMasks[lineUnit] != MaskGrid.ALL_CANDIDATES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renvoie le nb de vagues traitées depuis le dernier reset
+     * @return int
+     */
+    public int getNbWaves() {
+        return this.nbWaves;
+    }
+
+    /**
+     * Renvoie le nb de candidats retirés depuis la création du propagateur
+     * @return long
+     */
+    public long getNbEliminations() {
+        return this.nbEliminations;
+    }
+
+    /**
+     * Renvoie le nb de cellules examinées depuis le dernier reset
+     * <p>
+     * Chaque appel à eliminate, par la file ou par une technique, compte pour une cellule examinée,
+     * qu'il retire un candidat ou non : c'est une mesure du travail de propagation indépendante de la machine.
+     * @return long
+     */
+    public long getNbExaminedCells() {
+        return this.nbExaminedCells;
+    }
+}
@@ -0,0 +1,172 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Technique du "simple coloring" : chaînes de paires conjuguées d'un même chiffre
+ * <p>
+ * Lorsqu'un chiffre n'est possible qu'à deux endroits d'une unité, ces deux cellules forment une paire conjuguée :
+ * exactement l'une des deux contient ce chiffre. En reliant les paires conjuguées entre elles,
+ * on obtient des chaînes dont les cellules peuvent être colorées en deux couleurs alternées :
+ * toutes les cellules d'une couleur contiennent le chiffre, ou bien toutes celles de l'autre.
+ * <ul>
+ *  <li>si deux cellules de la même couleur partagent une unité, cette couleur est fausse :
+ *      le chiffre est retiré de toutes ses cellules (color wrap)</li>
+ *  <li>une cellule hors de la chaîne qui voit les deux couleurs ne peut pas contenir le chiffre (color trap)</li>
+ * </ul>
+ */
+public class SimpleColoringTechnique implements Technique {
+
+    private static final int UNCOLORED = -1;
+
+    @Override
+    public String getName() {
+        return "simple-coloring";
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        int[] pairCells = new int[MaskGrid.NB_UNITS * 2]; // les 2 cellules de chaque unité où le chiffre forme une paire
+        int[] colors = new int[MaskGrid.NB_CELLS];
+        int[] chain = new int[MaskGrid.NB_CELLS];
+        for (int digitIndex = 0; digitIndex < 9; digitIndex++) {
+            if (!applyDigit(propagator, 1 << digitIndex, pairCells, colors, chain)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Construit et exploite les chaînes d'un chiffre, jusqu'à la première élimination
+     * <p>
+     * Après une élimination, les paires conjuguées du chiffre ne sont plus à jour :
+     * le chiffre est abandonné, le pipeline reprendra de toute façon après cet appel.
+     * @param propagator
+     * @param digitMask
+     * @param pairCells : tampon de 54 index
+     * @param colors : tampon de 81 couleurs
+     * @param chain : tampon de 81 index
+     * @return boolean : false si une cellule n'a plus aucun candidat
+     */
+    private static boolean applyDigit(Propagator propagator, int digitMask, int[] pairCells, int[] colors, int[] chain) {
+        short[] cellMasks = propagator.getCellMasks();
+        for (int unitIndex = 0; unitIndex < MaskGrid.NB_UNITS; unitIndex++) {
+            int nbCells = 0;
+            for (int cellIndex : MaskGrid.getUnitCells(unitIndex)) {
+                if ((cellMasks[cellIndex] & digitMask) != 0) {
+                    if (nbCells < 2) { pairCells[unitIndex * 2 + nbCells] = cellIndex; }
+                    nbCells++;
+                }
+            }
+            if (nbCells != 2) {
+                pairCells[unitIndex * 2] = UNCOLORED;
+            }
+        }
+        Arrays.fill(colors, UNCOLORED);
+
+        int nbChains = 0;
+        for (int startIndex = 0; startIndex < MaskGrid.NB_CELLS; startIndex++) {
+            if (colors[startIndex] != UNCOLORED || (cellMasks[startIndex] & digitMask) == 0) { continue; }
+            // coloration de la chaîne par un parcours en profondeur : couleurs 2 * nbChains et 2 * nbChains + 1
+            int chainColor = 2 * nbChains;
+            int chainLength = colorChain(startIndex, chainColor, pairCells, colors, chain);
+            nbChains++;
+            if (chainLength < 2) { continue; }
+
+            int falseColor = findWrappedColor(chainColor, colors);
+            if (falseColor != UNCOLORED) {
+                for (int index = 0; index < chainLength; index++) {
+                    if (colors[chain[index]] == falseColor && !propagator.eliminate(chain[index], digitMask)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            boolean hasEliminated = false;
+            for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+                boolean isOutside = colors[cellIndex] != chainColor && colors[cellIndex] != chainColor + 1;
+                if (isOutside && (cellMasks[cellIndex] & digitMask) != 0
+                        && seesColor(cellIndex, chainColor, colors) && seesColor(cellIndex, chainColor + 1, colors)) {
+                    if (!propagator.eliminate(cellIndex, digitMask)) {
+                        return false;
+                    }
+                    hasEliminated = true;
+                }
+            }
+            if (hasEliminated) { return true; }
+        }
+        return true;
+    }
+
+    /**
+     * Colore toutes les cellules reliées à la cellule de départ par des paires conjuguées
+     * @param startIndex
+     * @param chainColor : la couleur de la cellule de départ, l'autre couleur de la chaîne étant chainColor + 1
+     * @param pairCells
+     * @param colors
+     * @param chain : reçoit les cellules de la chaîne
+     * @return int : le nb de cellules de la chaîne
+     */
+    private static int colorChain(int startIndex, int chainColor, int[] pairCells, int[] colors, int[] chain) {
+        colors[startIndex] = chainColor;
+        chain[0] = startIndex;
+        int chainLength = 1;
+        // la chaîne sert aussi de pile : les cellules entre visitedIndex et chainLength restent à explorer
+        for (int visitedIndex = 0; visitedIndex < chainLength; visitedIndex++) {
+            int cellIndex = chain[visitedIndex];
+            int oppositeColor = colors[cellIndex] ^ 1;
+            int[] cellUnits = { MaskGrid.getLineUnit(cellIndex), MaskGrid.getColumnUnit(cellIndex),
+                    MaskGrid.getSquareUnit(cellIndex) };
+            for (int unitIndex : cellUnits) {
+                if (pairCells[unitIndex * 2] == UNCOLORED) { continue; }
+                int linkedIndex = pairCells[unitIndex * 2] == cellIndex
+                        ? pairCells[unitIndex * 2 + 1]
+                        : pairCells[unitIndex * 2];
+                if (colors[linkedIndex] == UNCOLORED) {
+                    colors[linkedIndex] = oppositeColor;
+                    chain[chainLength] = linkedIndex;
+                    chainLength++;
+                }
+            }
+        }
+        return chainLength;
+    }
+
+    /**
+     * Cherche une couleur de la chaîne présente deux fois dans une même unité
+     * @param chainColor
+     * @param colors
+     * @return int : la couleur fausse, ou UNCOLORED s'il n'y en a pas
+     */
+    private static int findWrappedColor(int chainColor, int[] colors) {
+        for (int unitIndex = 0; unitIndex < MaskGrid.NB_UNITS; unitIndex++) {
+            int nbFirstColor = 0;
+            int nbSecondColor = 0;
+            for (int cellIndex : MaskGrid.getUnitCells(unitIndex)) {
+                if (colors[cellIndex] == chainColor) { nbFirstColor++; }
+                if (colors[cellIndex] == chainColor + 1) { nbSecondColor++; }
+            }
+            if (nbFirstColor > 1) { return chainColor; }
+            if (nbSecondColor > 1) { return chainColor + 1; }
+        }
+        return UNCOLORED;
+    }
+
+    /**
+     * Vérifie si l'un des pairs d'une cellule porte la couleur demandée
+     * @param cellIndex
+     * @param color
+     * @param colors
+     * @return boolean
+     */
+    private static boolean seesColor(int cellIndex, int color, int[] colors) {
+        for (int peerIndex : MaskGrid.getPeers(cellIndex)) {
+            if (colors[peerIndex] == color) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
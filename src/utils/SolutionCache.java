@@ -0,0 +1,171 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU des grilles déjà résolues, indexées par leur forme canonique (cf GridCanonicalizer)
+ * <p>
+ * Chaque entrée conserve le nb de solutions trouvées pour la forme canonique et, hors mode comptage,
+ * ces solutions elles-mêmes dans l'espace canonique, codées comme dans une archive compacte (cf PackedGridFormat) :
+ * GRID_SIZE octets par solution, au plus MAX_SOLUTIONS_PER_ENTRY solutions par entrée.<br>
+ * Au-delà de maxEntries entrées, la moins récemment utilisée est retirée.
+ * <p>
+ * Les méthodes sont synchronisées : un même cache peut être partagé par les moteurs de plusieurs threads (cf CachingSolver).
+ */
+public class SolutionCache {
+
+    /**
+     * Le nb maximum de solutions conservées par entrée : une grille qui en a davantage n'est pas mise en cache
+     */
+    public static final int MAX_SOLUTIONS_PER_ENTRY = 16;
+
+    /**
+     * Le résultat de la résolution d'une forme canonique
+     */
+    public static final class Entry {
+        private final long nbSolutions;
+        private final long nbMaxSolutions; // le quota de la résolution qui a rempli l'entrée
+        private final byte[] packedSolutions; // null si les solutions n'ont pas été conservées (mode comptage)
+
+        /**
+         * Constructeur
+         * @param nbSolutions : le nb de solutions trouvées
+         * @param nbMaxSolutions : le quota de solutions de la résolution
+         * @param packedSolutions : les solutions canoniques codées bout à bout, ou null en mode comptage
+         */
+        public Entry(long nbSolutions, long nbMaxSolutions, byte[] packedSolutions) {
+            this.nbSolutions = nbSolutions;
+            this.nbMaxSolutions = nbMaxSolutions;
+            this.packedSolutions = packedSolutions;
+        }
+
+        /**
+         * Renvoie le nb de solutions trouvées
+         * @return long
+         */
+        public long getNbSolutions() {
+            return this.nbSolutions;
+        }
+
+        /**
+         * Vérifie si l'entrée peut répondre à une résolution : la recherche d'origine a été menée à son terme
+         * ou a trouvé au moins autant de solutions que demandé, et les solutions sont conservées si elles sont demandées
+         * @param requestedNbMaxSolutions
+         * @param isCountOnly
+         * @return boolean
+         */
+        public boolean canAnswer(long requestedNbMaxSolutions, boolean isCountOnly) {
+            boolean isComplete = this.nbSolutions < this.nbMaxSolutions;
+            return (isComplete || requestedNbMaxSolutions <= this.nbSolutions) && (isCountOnly || this.packedSolutions != null);
+        }
+
+        /**
+         * Décode une solution canonique
+         * @param solutionIndex : moins de MAX_SOLUTIONS_PER_ENTRY
+         * @param cellMasks : la grille qui reçoit la solution
+         */
+        public void getSolution(long solutionIndex, short[] cellMasks) {
+            int offset = (int) solutionIndex * PackedGridFormat.GRID_SIZE;
+            PackedGridFormat.unpack(ByteBuffer.wrap(this.packedSolutions), offset, cellMasks);
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<ByteBuffer, Entry> entries;
+    private long nbHits = 0;
+    private long nbMisses = 0;
+    private long nbBypasses = 0;
+
+    /**
+     * Constructeur
+     * @param maxEntries : le nb maximum de formes canoniques conservées
+     */
+    public SolutionCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // ordre d'accès : la première entrée est la moins récemment utilisée
+        this.entries = new LinkedHashMap<ByteBuffer, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+                return this.size() > SolutionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cherche l'entrée d'une forme canonique, et compte un succès ou un échec
+     * @param canonicalKey : la forme canonique codée (cf GridTransform.getCanonicalKey)
+     * @param nbMaxSolutions : le quota de solutions de la résolution
+     * @param isCountOnly : true si les solutions ne sont pas demandées
+     * @return Entry : null si la forme canonique est absente, ou si son entrée ne peut pas répondre à la résolution
+     */
+    public synchronized Entry get(ByteBuffer canonicalKey, long nbMaxSolutions, boolean isCountOnly) {
+        Entry entry = this.entries.get(canonicalKey);
+        if (entry == null || !entry.canAnswer(nbMaxSolutions, isCountOnly)) {
+            this.nbMisses++;
+            return null;
+        }
+        this.nbHits++;
+        return entry;
+    }
+
+    /**
+     * Ajoute ou remplace l'entrée d'une forme canonique, en retirant au besoin la moins récemment utilisée
+     * @param canonicalKey
+     * @param entry
+     */
+    public synchronized void put(ByteBuffer canonicalKey, Entry entry) {
+        this.entries.put(canonicalKey, entry);
+    }
+
+    /**
+     * Compte une grille résolue sans passer par le cache (grille non canonisable, destinataire de solutions...)
+     */
+    public synchronized void countBypass() {
+        this.nbBypasses++;
+    }
+
+    /**
+     * Renvoie le nb de formes canoniques conservées
+     * @return int
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Renvoie le nb de grilles résolues grâce au cache
+     * @return long
+     */
+    public synchronized long getNbHits() {
+        return this.nbHits;
+    }
+
+    /**
+     * Renvoie le nb de grilles cherchées en vain dans le cache
+     * @return long
+     */
+    public synchronized long getNbMisses() {
+        return this.nbMisses;
+    }
+
+    /**
+     * Renvoie le nb de grilles résolues sans passer par le cache
+     * @return long
+     */
+    public synchronized long getNbBypasses() {
+        return this.nbBypasses;
+    }
+
+    /**
+     * Renvoie les statistiques du cache, à ajouter au rapport du lot
+     * @return String
+     */
+    public synchronized String getReport() {
+        return "\n\t* cache de solutions : " + this.nbHits + " grille(s) trouvee(s), " + this.nbMisses + " absente(s), "
+                + this.nbBypasses + " hors cache, " + this.entries.size() + " / " + this.maxEntries + " entree(s)";
+    }
+}
@@ -0,0 +1,67 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quota de solutions partagé entre plusieurs SolveResults explorant la même grille en parallèle (cf ParallelSolver)
+ * <p>
+ * Chaque solution trouvée doit d'abord réserver sa place dans le quota :
+ * une fois le quota atteint, les solutions suivantes sont ignorées et tous les SolveResults liés
+ * se déclarent pleins (isFull), ce qui arrête tous les threads au prochain embranchement.
+ */
+public class SolutionQuota {
+
+    private final long nbMaxSolutions;
+    private final AtomicLong nbReservedSolutions = new AtomicLong();
+    private volatile boolean isStopRequested = false;
+
+    /**
+     * Constructeur
+     * @param nbMaxSolutions : le nb de solutions demandé par l'utilisateur
+     */
+    public SolutionQuota(long nbMaxSolutions) {
+        this.nbMaxSolutions = nbMaxSolutions;
+    }
+
+    /**
+     * Réserve une place pour une nouvelle solution
+     * @return boolean : false si le quota était déjà atteint, la solution doit alors être ignorée
+     */
+    public boolean tryReserve() {
+        return this.tryReserve(1) == 1;
+    }
+
+    /**
+     * Réserve d'un coup la place de plusieurs solutions, dans la limite du quota
+     * @param nbSolutions : le nb de places demandées
+     * @return long : le nb de places effectivement réservées, 0 si le quota était déjà atteint
+     */
+    public long tryReserve(long nbSolutions) {
+        // on ne dépasse jamais le quota, même si plusieurs threads réservent en même temps
+        long nbReserved = this.nbReservedSolutions.get();
+        while (nbReserved < this.nbMaxSolutions) {
+            long nbGranted = Math.min(nbSolutions, this.nbMaxSolutions - nbReserved);
+            if (this.nbReservedSolutions.compareAndSet(nbReserved, nbReserved + nbGranted)) {
+                return nbGranted;
+            }
+            nbReserved = this.nbReservedSolutions.get();
+        }
+        return 0;
+    }
+
+    /**
+     * Arrête la recherche de tous les SolveResults liés, avant que le quota soit atteint
+     * (cf SolutionSink)
+     */
+    public void requestStop() {
+        this.isStopRequested = true;
+    }
+
+    /**
+     * Indique si le quota de solutions est atteint, ou si l'arrêt de la recherche a été demandé
+     * @return boolean
+     */
+    public boolean isFull() {
+        return this.isStopRequested || this.nbReservedSolutions.get() >= this.nbMaxSolutions;
+    }
+}
@@ -0,0 +1,24 @@
+package utils;
+
+/**
+ * Interface des destinataires de solutions, appelés au fil de la recherche (cf SolveResult.setSolutionSink)
+ * <p>
+ * Chaque solution est transmise dès qu'elle est trouvée, au lieu d'être conservée dans le SolveResult :
+ * la mémoire utilisée ne dépend donc plus du nb de solutions demandées.<br>
+ * L'appel est synchrone : tant que accept ne rend pas la main, le moteur attend (un destinataire lent ralentit
+ * donc la recherche plutôt que de laisser les solutions s'accumuler). En renvoyant false, le destinataire
+ * demande l'arrêt de la recherche.
+ * <p>
+ * La grille fournie peut être la grille de travail du moteur : elle n'est valable que pendant l'appel
+ * et doit être copiée (cf MaskGrid.copy) pour être conservée.<br>
+ * Avec ParallelSolver, accept peut être appelé par plusieurs threads à la fois, dans le désordre.
+ */
+public interface SolutionSink {
+
+    /**
+     * Reçoit une nouvelle solution
+     * @param cellMasks : la grille résolue, sous forme de grille de masques (cf MaskGrid)
+     * @return boolean : false pour arrêter la recherche
+     */
+    boolean accept(short[] cellMasks);
+}
@@ -0,0 +1,136 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator paresseux des solutions d'une grille : chaque solution n'est cherchée qu'au moment où elle est demandée
+ * <p>
+ * Il couvre une portion de l'arbre de recherche : une liste de sous-arbres pas encore explorés (des noeuds de l'arbre,
+ * dans l'ordre de l'arbre), précédée éventuellement du sous-arbre en cours d'exploration par un TrailSolver.<br>
+ * Les solutions sont donc obtenues dans le même ordre qu'avec TrailSolver, et une opération qui court-circuite
+ * (limit, findFirst, anyMatch...) arrête simplement la recherche, sans avoir besoin de fixer un nb de solutions.
+ * <p>
+ * trySplit cède la première moitié des sous-arbres restants (avec le sous-arbre en cours, qui les précède).
+ * S'il ne reste qu'un sous-arbre pas encore exploré, son noeud est d'abord propagé puis remplacé par ses branches,
+ * une par candidat de sa cellule d'embranchement : stream().parallel() peut ainsi répartir l'arbre entre les threads.<br>
+ * Le nb de solutions n'étant pas connu, l'estimation de taille part de Long.MAX_VALUE et est divisée par deux
+ * à chaque découpage : les streams parallèles arrêtent donc de découper après quelques niveaux.
+ * Attention, sur une grille qui a énormément de solutions, un stream parallèle ordonné peut explorer longtemps
+ * les sous-arbres de droite avant qu'un limit ne les annule : unordered() l'évite si l'ordre n'importe pas.
+ * <p>
+ * Chaque solution fournie est une nouvelle grille de masques (cf MaskGrid.toCellArray pour la convertir).
+ * Les options de résolution sont celles du SolveResult fourni, dont le nb de solutions demandé est ignoré ;
+ * chaque sous-arbre a son propre SolveResult, les statistiques ne sont pas cumulées.
+ */
+public class SolutionSpliterator implements Spliterator<short[]> {
+
+    private final SolveResult optionsSolveResult; // le modèle des SolveResults des sous-arbres
+    private final ArrayDeque<PassResult> pendingNodes; // les sous-arbres pas encore explorés, dans l'ordre de l'arbre
+    private TrailSolver activeSolver; // null si aucun sous-arbre n'est en cours d'exploration
+    private long estimatedSize = Long.MAX_VALUE;
+
+    /**
+     * Constructeur
+     * @param solveResult : la grille de départ (sa grille courante) et les options de résolution
+     */
+    public SolutionSpliterator(SolveResult solveResult) {
+        this.optionsSolveResult = solveResult;
+        this.pendingNodes = new ArrayDeque<>();
+        this.pendingNodes.add(new PassResult(solveResult.getCurrentPassResult()));
+    }
+
+    /**
+     * Constructeur de la portion cédée par trySplit
+     * @param optionsSolveResult
+     * @param activeSolver : le sous-arbre en cours, ou null
+     * @param pendingNodes
+     * @param estimatedSize
+     */
+    private SolutionSpliterator(SolveResult optionsSolveResult, TrailSolver activeSolver,
+            ArrayDeque<PassResult> pendingNodes, long estimatedSize) {
+        this.optionsSolveResult = optionsSolveResult;
+        this.activeSolver = activeSolver;
+        this.pendingNodes = pendingNodes;
+        this.estimatedSize = estimatedSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super short[]> action) {
+        while (true) {
+            if (this.activeSolver != null) {
+                short[] solution = this.activeSolver.nextSolution();
+                if (solution != null) {
+                    action.accept(MaskGrid.copy(solution));
+                    return true;
+                }
+                this.activeSolver = null;
+            }
+            if (this.pendingNodes.isEmpty()) {
+                return false;
+            }
+            // exploration du sous-arbre suivant
+            this.activeSolver = new TrailSolver();
+            this.activeSolver.start(this.optionsSolveResult.createSubSolveResult(this.pendingNodes.removeFirst()));
+        }
+    }
+
+    @Override
+    public Spliterator<short[]> trySplit() {
+        if (this.activeSolver == null && this.pendingNodes.size() == 1) {
+            this.expandPendingNode();
+        }
+        // il faut qu'il reste au moins un sous-arbre de chaque côté
+        int nbPrefixNodes = this.pendingNodes.size() / 2;
+        if (this.pendingNodes.isEmpty() || (nbPrefixNodes == 0 && this.activeSolver == null)) {
+            return null;
+        }
+        ArrayDeque<PassResult> prefixNodes = new ArrayDeque<>(nbPrefixNodes);
+        for (int nodeIndex = 0; nodeIndex < nbPrefixNodes; nodeIndex++) {
+            prefixNodes.addLast(this.pendingNodes.removeFirst());
+        }
+        // le sous-arbre en cours précède tous les autres : il fait partie de la portion cédée
+        this.estimatedSize /= 2;
+        SolutionSpliterator prefix = new SolutionSpliterator(
+                this.optionsSolveResult, this.activeSolver, prefixNodes, this.estimatedSize);
+        this.activeSolver = null;
+        return prefix;
+    }
+
+    /**
+     * Propage l'unique sous-arbre restant et le remplace par ses branches, s'il en a besoin
+     */
+    private void expandPendingNode() {
+        SolveResult nodeSolveResult = this.optionsSolveResult.createSubSolveResult(this.pendingNodes.peekFirst());
+        PassResult passResult = nodeSolveResult.getPropagator().propagate(nodeSolveResult.getCurrentPassResult());
+        nodeSolveResult.updatePassResult(passResult);
+        if (!nodeSolveResult.needsRecursion()) {
+            // sans solution, ou bien résolu : le TrailSolver s'en chargera
+            return;
+        }
+        this.pendingNodes.removeFirst();
+        short[] cellMasks = passResult.getCellMasks();
+        int cellIndex = nodeSolveResult.getBranchingPolicy().selectCell(cellMasks);
+        ValueOrdering valueOrdering = nodeSolveResult.getValueOrdering() == null
+                ? new NaturalValueOrdering()
+                : nodeSolveResult.getValueOrdering();
+        int[] orderedCandidates = new int[9];
+        int nbCandidates = valueOrdering.orderCandidates(cellMasks, cellIndex, orderedCandidates);
+        for (int candidateIndex = 0; candidateIndex < nbCandidates; candidateIndex++) {
+            PassResult branch = new PassResult(passResult);
+            branch.getCellMasks()[cellIndex] = (short) orderedCandidates[candidateIndex];
+            this.pendingNodes.addLast(branch);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+}
@@ -0,0 +1,36 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Évènement Java Flight Recorder émis à la fin de chaque résolution d'une grille (cf InstrumentedSolver)
+ * <p>
+ * Sa durée couvre toute la résolution. Activé par défaut : il n'y en a qu'un par grille.
+ */
+@Name("sudoku.Solve")
+@Label("Resolution d une grille")
+@Category("Sudoku")
+@Description("Resolution complete d une grille par un moteur")
+public class SolveEvent extends jdk.jfr.Event {
+
+    @Label("Moteur")
+    public String engine;
+
+    @Label("Solutions")
+    public long nbSolutions;
+
+    @Label("Embranchements")
+    public long nbRecursions;
+
+    @Label("Passes")
+    public long nbPasses;
+
+    @Label("Grilles impossibles")
+    public long nbUnsolvableGrids;
+
+    @Label("Cellules examinees")
+    public long nbExaminedCells;
+}
@@ -1,24 +1,47 @@
 package utils;
 
-import java.text.MessageFormat;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Classe qui compile les solutions trouvées ainsi que les statistiques d'execution
  * <p>
  * L'instance de SolveResult maintient aussi un lien vers l'embranchement (instance de PassResult) en cours d'exploration
+ * <p>
+ * Les solutions sont conservées, sauf en mode comptage (cf setCountOnly) ou si elles sont transmises
+ * au fil de l'eau à un destinataire (cf setSolutionSink).
  */
 public class SolveResult {
+
+    /**
+     * Nb maximum de solutions signifiant "toutes les solutions"
+     */
+    public static final long ALL_SOLUTIONS = Long.MAX_VALUE;
+
+    private static final int INITIAL_SOLUTIONS_CAPACITY = 16;
     
-    private int nbMaxSolutions = 0; // le nb de soluces demandé par l'utilisateur 
+    private long nbMaxSolutions = 0; // le nb de soluces demandé par l'utilisateur 
     private PassResult currentPassResult; // l'embranchement exploré en cours
+    private final Propagator propagator = new Propagator(); // réutilisé pour chaque embranchement
+    private BranchingPolicy branchingPolicy = new FirstCellBranching(); // le choix des cellules d'embranchement
+    private ValueOrdering valueOrdering = null; // null : embranchement binaire, sinon une branche par candidat
+    private Technique[] techniques; // le pipeline de techniques d'inférence du propagateur
+    private TechniqueStats techniqueStats;
+    private SolutionQuota sharedQuota = null; // null : le quota ne concerne que ce SolveResult
 
-    private int[][][][] solutions;
+    private boolean isCountOnly = false; // true : les solutions sont comptées sans être conservées
+    private SolutionSink solutionSink = null; // null : les solutions sont conservées ici
+    private boolean isStopRequested = false; // le destinataire des solutions a demandé l'arrêt
+    private short[][] solutions; // chaque solution est une grille de masques (cf MaskGrid), agrandi au besoin
+    private int nbStoredSolutions = 0;
+    private long nbSolutions = 0;
 
     // stats
-    public int nbRecursions = -1;
-    private int nbPasses = 0;
-    private int nbUnsolvableGrids = 0;
-    private int nbFailedGrids = 0;
+    public long nbRecursions = -1;
+    private long nbPasses = 0;
+    private long nbUnsolvableGrids = 0;
+    private long nbFailedGrids = 0;
+    private long nbExaminedCells = 0;
     private long nbNanoSeconds = 0;
 
     private long startingTime;
@@ -28,15 +51,71 @@ public class SolveResult {
      * @param currentCellArray
      * @param nbMaxSolutions
      */
-    public SolveResult(int[][][] currentCellArray, int nbMaxSolutions){
+    public SolveResult(int[][][] currentCellArray, long nbMaxSolutions){
         this.currentPassResult = new PassResult(currentCellArray);
         this.nbMaxSolutions = nbMaxSolutions;
+        this.setTechniques(Propagator.getDefaultTechniques());
+    }
+
+    /**
+     * Constructeur à partir d'une grille de masques déjà propagée, pour explorer un sous-arbre de recherche
+     * <p>
+     * Le passResult fourni devient le passResult courant, sans être copié.
+     * @param currentPassResult
+     * @param nbMaxSolutions
+     */
+    public SolveResult(PassResult currentPassResult, long nbMaxSolutions){
+        this.currentPassResult = currentPassResult;
+        this.nbMaxSolutions = nbMaxSolutions;
+        this.setTechniques(Propagator.getDefaultTechniques());
+    }
+
+    /**
+     * Crée le SolveResult d'un sous-arbre de recherche de la même grille, avec les mêmes options de résolution
+     * (quota, embranchement, ordre des candidats, techniques, mode comptage, destinataire des solutions)
+     * <p>
+     * Le sous-arbre a ses propres statistiques, qui peuvent ensuite être cumulées ici (cf add).
+     * @param branch : la grille du sous-arbre, qui devient son passResult courant
+     * @return SolveResult
+     */
+    public SolveResult createSubSolveResult(PassResult branch){
+        SolveResult subSolveResult = new SolveResult(branch, this.nbMaxSolutions);
+        subSolveResult.setBranchingPolicy(this.branchingPolicy);
+        subSolveResult.setValueOrdering(this.valueOrdering);
+        subSolveResult.setTechniques(this.techniques);
+        subSolveResult.setCountOnly(this.isCountOnly);
+        subSolveResult.setSolutionSink(this.solutionSink);
+        return subSolveResult;
+    }
+
+    /**
+     * Prépare ce SolveResult à une nouvelle résolution, en conservant ses options et ses tableaux
+     * <p>
+     * Les solutions et toutes les statistiques (y compris par technique) sont remises à zéro.
+     * @param newPassResult : la nouvelle grille de départ, qui devient le passResult courant
+     */
+    public void reset(PassResult newPassResult){
+        this.currentPassResult = newPassResult;
+        if (this.solutions != null) {
+            Arrays.fill(this.solutions, 0, this.nbStoredSolutions, null); // libère les grilles précédentes
+        }
+        this.nbStoredSolutions = 0;
+        this.nbSolutions = 0;
+        this.isStopRequested = false;
+        this.nbRecursions = -1;
+        this.nbPasses = 0;
+        this.nbUnsolvableGrids = 0;
+        this.nbFailedGrids = 0;
+        this.nbExaminedCells = 0;
+        this.nbNanoSeconds = 0;
+        this.techniqueStats.clear();
     }
 
     /**
      * Mets à jour l'instance du passResult, les stats et les solutions
      * <p>
-     *  
+     * Le passResult fourni doit être le résultat de la dernière propagation du propagateur de ce SolveResult,
+     * dont le nb de cellules examinées est aussi cumulé.
      * @param newPassResult
      */
     public void updatePassResult(PassResult newPassResult){
@@ -45,6 +124,7 @@ public class SolveResult {
 
         // mets à jour les stats
         addNbPasses(this.currentPassResult.getNbPasses());
+        addNbExaminedCells(this.propagator.getNbExaminedCells());
         if(currentPassResult.isUnsolvable()) {
             incNbUnsolvableGrids();
             return;
@@ -56,30 +136,73 @@ public class SolveResult {
 
         // mets à jour les solutions si besoin
         if(currentPassResult.isSolved()){
-            addSolution(this.currentPassResult.getCellArray());
+            addSolution(this.currentPassResult.getCellMasks());
             return;
         }
     }
 
     /** 
-     * Ajoute une nouvelle solution en recréant un nouveau tableau.
+     * Ajoute une nouvelle solution
      * <p>
-     * TODO : pê utiliser une liste récursive plutot qu'un array ? 
-     * @param cellArray
+     * La solution est transmise au destinataire s'il y en a un, sinon elle est copiée puis conservée,
+     * sauf en mode comptage (cf setCountOnly). cellMasks peut donc être la grille de travail du moteur,
+     * et n'est pas lu en mode comptage sans destinataire (il peut alors être null).
+     * @param cellMasks
+     */
+    public void addSolution(short[] cellMasks){
+        if (this.sharedQuota != null && !this.sharedQuota.tryReserve()) {
+            // le quota partagé a déjà été atteint par un autre thread
+            return;
+        }
+        this.nbSolutions++;
+        if (this.solutionSink != null) {
+            if (!this.solutionSink.accept(cellMasks)) {
+                this.requestStop();
+            }
+        } else if (!this.isCountOnly) {
+            this.storeSolution(MaskGrid.copy(cellMasks));
+        }
+    }
+
+    /**
+     * Ajoute d'un coup des solutions comptées sans être conservées ni transmises (cf CachingSolver)
+     * <p>
+     * Le nb ajouté est limité au quota restant, comme si chaque solution passait par addSolution
+     * jusqu'à ce que isFull renvoie true. Réservé au mode comptage sans destinataire de solutions.
+     * @param nbSolutionsToAdd
+     */
+    public void addSolutionCount(long nbSolutionsToAdd){
+        long nbAddedSolutions;
+        if (this.sharedQuota != null) {
+            nbAddedSolutions = this.sharedQuota.tryReserve(nbSolutionsToAdd);
+        } else {
+            nbAddedSolutions = Math.min(nbSolutionsToAdd, Math.max(0, this.nbMaxSolutions - this.nbSolutions));
+        }
+        this.nbSolutions += nbAddedSolutions;
+    }
+
+    /**
+     * Arrête la recherche : isFull renvoie désormais true, ainsi que pour les SolveResults qui partagent le même quota
+     */
+    private void requestStop(){
+        this.isStopRequested = true;
+        if (this.sharedQuota != null) {
+            this.sharedQuota.requestStop();
+        }
+    }
+
+    /**
+     * Conserve une solution, en doublant la taille du tableau des solutions quand il est plein
+     * @param cellMasks : une grille qui n'appartient qu'à ce SolveResult
      */
-    public void addSolution(int[][][] cellArray){
-        int currentLength = this.solutions == null ? 0 : this.solutions.length;
-        // crée un nouveau tableau plus grand 
-        int[][][][] newSolutions = new int[currentLength + 1][][][];
-        // recopie les solutions déjà trouvées
-        int index = 0;
-        while( index <= currentLength - 1) {
-            newSolutions[index] = this.solutions[index];
-            index++;            
+    private void storeSolution(short[] cellMasks){
+        if (this.solutions == null) {
+            this.solutions = new short[INITIAL_SOLUTIONS_CAPACITY][];
+        } else if (this.nbStoredSolutions == this.solutions.length) {
+            this.solutions = Arrays.copyOf(this.solutions, this.solutions.length * 2);
         }
-        //ajoute la nouvelle solution
-        newSolutions[index] = cellArray;
-        this.solutions = newSolutions;
+        this.solutions[this.nbStoredSolutions] = cellMasks;
+        this.nbStoredSolutions++;
     }
 
     public void startTimer(){
@@ -115,23 +238,35 @@ public class SolveResult {
     /**
      * Affiche la totalité des solutions trouvées sous forme de grilles dans le terminal
      * <p>
-     * Affiche aussi les statistiques d'execution.
+     * Affiche aussi les statistiques d'execution.<br>
+     * Les grilles sont rendues directement en octets par un GridWriter, et écrites par blocs d'un mégaoctet :
+     * sans String ni MessageFormat par solution.
      */
     public void displaySolutions(){
-        int solutionIndex = 0;
         if(this.getNbSolutions() == 0) {
             System.err.println("ERREUR : Il n y a pas de solution a cette grille !");
-        } else {
-            //il y a au moins une soluce, on affiche la/les grilles
-            while(solutionIndex <= this.solutions.length - 1){
-                System.out.println(MessageFormat.format("Solution N°{0} :", solutionIndex + 1));
-                System.out.println(Grid.cellArrayToString(this.solutions[solutionIndex]));
-                solutionIndex++;
-            }         
         }
+        GridWriter writer = GridWriter.toStandardOutput();
+        try {
+            byte[] solutionHeader = writer.encode("Solution N°");
+            byte[] headerEnd = writer.encode(" :" + System.lineSeparator());
+            byte[] lineSeparator = writer.encode(System.lineSeparator());
+            //s'il y a au moins une soluce, on affiche la/les grilles (aucune en mode comptage)
+            for (int solutionIndex = 0; solutionIndex < this.nbStoredSolutions; solutionIndex++) {
+                writer.write(solutionHeader);
+                writer.writeNumber(solutionIndex + 1);
+                writer.write(headerEnd);
+                writer.writeGrid(this.solutions[solutionIndex], GridWriter.Layout.BOXED);
+                writer.write(lineSeparator);
+            }
 
-        // peu importe qu'il y ait des solutions ou pas, on affiche les stats
-        System.out.println(this.getStats());
+            // peu importe qu'il y ait des solutions ou pas, on affiche les stats
+            writer.writeText(this.getStats());
+            writer.write(lineSeparator);
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("ERREUR : Impossible d afficher les solutions !");
+        }
     }
 
     /** 
@@ -142,14 +277,26 @@ public class SolveResult {
         String returnString = "Statistiques : ";
 
         returnString += "\n\t* " + this.getNbSolutions() + " solution(s) trouvee(s)";
-        returnString += "\n\t* sur " + this.nbMaxSolutions + " solution(s) demandee(s)";
+        if (this.nbMaxSolutions == ALL_SOLUTIONS) {
+            returnString += "\n\t* sur toutes les solutions demandees";
+        } else {
+            returnString += "\n\t* sur " + this.nbMaxSolutions + " solution(s) demandee(s)";
+        }
+        if (this.isCountOnly) {
+            returnString += "\n\t* (comptees sans etre conservees)";
+        }
         returnString += "\n\t* grace a " + this.nbPasses + " passes";
         returnString += "\n\t* realisees en " + String.format("%.3f", this.nbNanoSeconds / 1000000.0f) +" millisecondes";
         returnString += "\n\t* reparties sur l exploration de " + this.nbRecursions + " embranchement(s)";
+        returnString += "\n\t* en examinant " + this.nbExaminedCells + " cellule(s)";
         
         
         returnString += "\n\t* dont " + this.nbUnsolvableGrids + " etaient impossible a resoudre";
         returnString += "\n\t* et dont " + this.nbFailedGrids + " ont ete abandonnes (pour depassement de la profondeur de recursion maximale).";        
+        if (this.techniqueStats.hasInvocations()) {
+            // rien à afficher pour un moteur sans techniques d'inférence (cf DancingLinksSolver)
+            returnString += "\n\t* techniques d inference :" + this.techniqueStats;
+        }
 
         return returnString;        
     }
@@ -166,6 +313,115 @@ public class SolveResult {
         return this.currentPassResult;
     }
 
+    /**
+     * Renvoie le propagateur de contraintes associé à cette résolution
+     * @return Propagator
+     */
+    public Propagator getPropagator(){
+        return this.propagator;
+    }
+
+    /**
+     * Renvoie la politique de choix des cellules d'embranchement
+     * @return BranchingPolicy
+     */
+    public BranchingPolicy getBranchingPolicy(){
+        return this.branchingPolicy;
+    }
+
+    /**
+     * Remplace la politique de choix des cellules d'embranchement (FirstCellBranching par défaut)
+     * @param newBranchingPolicy
+     */
+    public void setBranchingPolicy(BranchingPolicy newBranchingPolicy){
+        this.branchingPolicy = newBranchingPolicy;
+    }
+
+    /**
+     * Renvoie la stratégie d'ordonnancement des candidats d'un embranchement
+     * @return ValueOrdering : ou null si les embranchements sont binaires
+     */
+    public ValueOrdering getValueOrdering(){
+        return this.valueOrdering;
+    }
+
+    /**
+     * Remplace la stratégie d'ordonnancement des candidats d'un embranchement
+     * <p>
+     * Avec une stratégie, Grid.recurseSolve crée une branche par candidat, explorées dans l'ordre de la stratégie.<br>
+     * Avec null (par défaut), il crée deux branches : le plus petit candidat d'un côté, tous les autres de l'autre.
+     * @param newValueOrdering
+     */
+    public void setValueOrdering(ValueOrdering newValueOrdering){
+        this.valueOrdering = newValueOrdering;
+    }
+
+    /**
+     * Renvoie le pipeline de techniques d'inférence appliqué par le propagateur
+     * @return Technique[]
+     */
+    public Technique[] getTechniques(){
+        return this.techniques;
+    }
+
+    /**
+     * Indique si les solutions sont seulement comptées, sans être conservées
+     * @return boolean
+     */
+    public boolean isCountOnly(){
+        return this.isCountOnly;
+    }
+
+    /**
+     * Active ou non le mode comptage : les solutions trouvées sont alors seulement comptées
+     * <p>
+     * getNbSolutions renvoie toujours le nb de solutions trouvées, mais getSolution et getSolutionMasks renvoient null.
+     * À utiliser avant la résolution : les moteurs s'en servent pour ne pas copier les grilles solutions.
+     * @param newIsCountOnly
+     */
+    public void setCountOnly(boolean newIsCountOnly){
+        this.isCountOnly = newIsCountOnly;
+    }
+
+    /**
+     * Renvoie si besoin le destinataire des solutions
+     * @return SolutionSink : ou null si les solutions sont conservées dans le SolveResult
+     */
+    public SolutionSink getSolutionSink(){
+        return this.solutionSink;
+    }
+
+    /**
+     * Transmet désormais chaque solution trouvée au destinataire fourni, au lieu de la conserver
+     * <p>
+     * getNbSolutions renvoie toujours le nb de solutions trouvées, mais getSolution et getSolutionMasks renvoient null.
+     * Si le destinataire refuse une solution, la recherche s'arrête comme si le quota était atteint.
+     * @param newSolutionSink : ou null pour conserver les solutions
+     */
+    public void setSolutionSink(SolutionSink newSolutionSink){
+        this.solutionSink = newSolutionSink;
+    }
+
+    /**
+     * Renvoie les statistiques par technique d'inférence (appels, candidats retirés, durée)
+     * @return TechniqueStats
+     */
+    public TechniqueStats getTechniqueStats(){
+        return this.techniqueStats;
+    }
+
+    /**
+     * Remplace le pipeline de techniques d'inférence (hidden singles puis locked candidates par défaut)
+     * <p>
+     * Les statistiques par technique repartent alors de zéro.
+     * @param newTechniques : les techniques dans leur ordre d'application, éventuellement aucune
+     */
+    public void setTechniques(Technique[] newTechniques){
+        this.techniques = newTechniques;
+        this.techniqueStats = new TechniqueStats(newTechniques);
+        this.propagator.setTechniques(newTechniques, this.techniqueStats);
+    }
+
     /**
      * Remplace l'instance de passResult courante par une nouvelle
      * @param newPassResult
@@ -175,51 +431,169 @@ public class SolveResult {
     }
 
     /**
-     * Renvoie l'instance du tableau de solutions
+     * Renvoie les solutions converties en cellArrays
      * <p>
      * utilisé uniquement par la classe de test ! 
-     * @return int[][][] : un pointeur vers l'instance originale
+     * @return int[][][][] : un nouveau tableau de cellArrays (vide en mode comptage)
      */
     public int[][][][] getSolutionsInstance() {
-        return this.solutions;
+        int[][][][] cellArrays = new int[this.nbStoredSolutions][][][];
+        for (int solutionIndex = 0; solutionIndex < cellArrays.length; solutionIndex++) {
+            cellArrays[solutionIndex] = MaskGrid.toCellArray(this.solutions[solutionIndex]);
+        }
+        return cellArrays;
+    }
+
+    /**
+     * Renvoie l'instance originale de la solution à l'index solutionIndex, sous forme de grille de masques
+     * @param solutionIndex
+     * @return short[] la solution demandée ou bien null si l'index est out of bounds (ou en mode comptage)
+     */
+    public short[] getSolutionMasks(int solutionIndex) {
+        if(solutionIndex <= this.nbStoredSolutions - 1) {
+            return this.solutions[solutionIndex];
+        } 
+        return null;
     }
     
     /** 
      * Revoie une copie de la solution à l'index solutionIndex
      * <p>
      * @param solutionIndex
-     * @return int[][][] la solution demandée ou bien null si l'index est out of bounds
+     * @return int[][][] la solution demandée ou bien null si l'index est out of bounds (ou en mode comptage)
      */
     public int[][][] getSolution(int solutionIndex) {
-        if(solutionIndex <= this.getNbSolutions() - 1) {
-            return Grid.cellArrayDeepCopy(this.solutions[solutionIndex]);
+        if(solutionIndex <= this.nbStoredSolutions - 1) {
+            return MaskGrid.toCellArray(this.solutions[solutionIndex]);
         } 
         return null;
     }
 
     /**
-     * Renvoie le nb de solutions déjà trouvées
-     * @return
+     * Renvoie le nb de solutions déjà trouvées, conservées ou non
+     * @return long
      */
-    public int getNbSolutions(){
-        return this.solutions == null ? 0 : this.solutions.length;
+    public long getNbSolutions(){
+        return this.nbSolutions;
+    }
+
+    /**
+     * Renvoie le nb de solutions demandé par l'utilisateur
+     * @return long : ALL_SOLUTIONS pour toutes les solutions
+     */
+    public long getNbMaxSolutions(){
+        return this.nbMaxSolutions;
     }
 
     /**
      * Renvoie si oui ou non on a atteint le quota de solution demandé
+     * <p>
+     * Renvoie aussi true si le destinataire des solutions a demandé l'arrêt de la recherche.
      * @return boolean 
      */
     public boolean isFull(){
+        if (this.isStopRequested) {
+            return true;
+        }
+        if (this.sharedQuota != null) {
+            return this.sharedQuota.isFull();
+        }
         return this.getNbSolutions() >= this.nbMaxSolutions;
     }
 
+    /**
+     * Lie ce SolveResult à un quota de solutions partagé avec d'autres (cf ParallelSolver)
+     * <p>
+     * Chaque solution ajoutée réserve alors sa place dans le quota partagé, et isFull renvoie l'état du quota partagé.
+     * @param newSharedQuota
+     */
+    public void setSharedQuota(SolutionQuota newSharedQuota) {
+        this.sharedQuota = newSharedQuota;
+    }
+
+    /**
+     * Cumule les solutions et les statistiques d'un SolveResult qui a exploré un sous-arbre de la même grille
+     * <p>
+     * Le premier noeud du sous-arbre, qui n'est pas compté comme embranchement dans son propre SolveResult,
+     * l'est ici.<br>
+     * Les solutions du sous-arbre ont déjà été comptées dans le quota éventuel : elles sont reprises telles quelles.
+     * @param subSolveResult
+     */
+    public void add(SolveResult subSolveResult) {
+        this.nbSolutions += subSolveResult.nbSolutions;
+        for (int solutionIndex = 0; solutionIndex < subSolveResult.nbStoredSolutions; solutionIndex++) {
+            this.storeSolution(subSolveResult.solutions[solutionIndex]);
+        }
+        this.nbRecursions += subSolveResult.nbRecursions + 1;
+        this.nbPasses += subSolveResult.nbPasses;
+        this.nbUnsolvableGrids += subSolveResult.nbUnsolvableGrids;
+        this.nbFailedGrids += subSolveResult.nbFailedGrids;
+        this.nbExaminedCells += subSolveResult.nbExaminedCells;
+        this.techniqueStats.add(subSolveResult.techniqueStats);
+    }
+
+    /**
+     * Renvoie le nb d'embranchements explorés
+     * @return long
+     */
+    public long getNbRecursions() {
+        return this.nbRecursions;
+    }
+
+    /**
+     * Renvoie le nb de passes effectuées
+     * @return long
+     */
+    public long getNbPasses() {
+        return this.nbPasses;
+    }
+
+    /**
+     * Renvoie le nb d'embranchements impossibles à résoudre
+     * @return long
+     */
+    public long getNbUnsolvableGrids() {
+        return this.nbUnsolvableGrids;
+    }
+
+    /**
+     * Renvoie le nb d'embranchements abandonnés pour dépassement de la profondeur maximale
+     * @return long
+     */
+    public long getNbFailedGrids() {
+        return this.nbFailedGrids;
+    }
+
+    /**
+     * Renvoie le nb de cellules examinées par la propagation (cf Propagator.getNbExaminedCells)
+     * @return long : toujours 0 pour DancingLinksSolver, qui n'utilise pas le propagateur
+     */
+    public long getNbExaminedCells() {
+        return this.nbExaminedCells;
+    }
+
+    /**
+     * Renvoie la durée cumulée de la résolution
+     * @return long : en nanosecondes
+     */
+    public long getNbNanoSeconds() {
+        return this.nbNanoSeconds;
+    }
+
     /**
      * Setter par ajout du nb de passes
      */
-    public void addNbPasses( int nbPassesToAdd) {
+    public void addNbPasses(long nbPassesToAdd) {
         this.nbPasses += nbPassesToAdd;
     }
     
+    /**
+     * Setter par ajout du nb de cellules examinées
+     */
+    public void addNbExaminedCells(long nbExaminedCellsToAdd) {
+        this.nbExaminedCells += nbExaminedCellsToAdd;
+    }
+
     /**
      * Setter par incrément du nb de récursions
      */
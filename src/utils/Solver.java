@@ -0,0 +1,17 @@
+package utils;
+
+/**
+ * Interface commune des moteurs de résolution (cf Arguments.Engine)
+ * <p>
+ * Un moteur cherche les solutions de la grille courante du SolveResult fourni, jusqu'à ce que son quota soit atteint,
+ * et y compile les solutions ainsi que les statistiques.<br>
+ * Une instance peut être réutilisée d'une grille à l'autre, mais pas par plusieurs threads à la fois.
+ */
+public interface Solver {
+
+    /**
+     * Cherche les solutions de la grille courante du SolveResult fourni
+     * @param solveResult l'objet contenant la grille de départ, et qui recevra les solutions ainsi que les statistiques
+     */
+    void solve(SolveResult solveResult);
+}
@@ -0,0 +1,242 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Métriques de résolution cumulées sur toute la vie de la JVM, exposables en JMX sous le nom OBJECT_NAME
+ * <p>
+ * Un processus de longue durée (traitement par lot, serveur) peut ainsi être interrogé par jconsole, VisualVM
+ * ou n'importe quel collecteur JMX, sans profileur. Les résolutions sont enregistrées par InstrumentedSolver.<br>
+ * L'exposition JMX doit être demandée par registerMBean : le démarrage du serveur JMX de la plateforme coûte
+ * environ 200 ms, ce qui n'a de sens que pour un processus de longue durée.<br>
+ * Les compteurs sont des LongAdder : l'enregistrement depuis plusieurs threads ne les fait pas se contendre.
+ * <p>
+ * Les latences de résolution sont réparties dans des ValueHistograms, dont les percentiles sont exposés :
+ * chaque thread qui enregistre des résolutions a le sien, protégé par son propre verrou, que seules les lectures
+ * lui disputent. Les résolutions de threads différents ne se contendent donc pas ; les histogrammes sont fusionnés
+ * à la lecture, et ceux des threads terminés sont repliés dans un histogramme commun.
+ */
+public final class SolverMetrics implements SolverMetricsMBean {
+
+    /**
+     * Le nom JMX des métriques
+     */
+    public static final String OBJECT_NAME = "utils:type=SolverMetrics";
+
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+    private static boolean isRegistered = false;
+
+    private final LongAdder nbSolves = new LongAdder();
+    private final LongAdder nbSolutions = new LongAdder();
+    private final LongAdder nbRecursions = new LongAdder();
+    private final LongAdder nbPasses = new LongAdder();
+    private final LongAdder nbUnsolvableGrids = new LongAdder();
+    private final LongAdder nbExaminedCells = new LongAdder();
+    private final LongAdder totalNanoSeconds = new LongAdder();
+    private final LongAccumulator maxNanoSeconds = new LongAccumulator(Math::max, 0);
+    // en nanosecondes : l'histogramme de chaque thread, et celui des threads terminés, chacun protégé par son verrou
+    private final ConcurrentLinkedQueue<ThreadHistogram> threadLatencyHistograms = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ThreadHistogram> currentThreadLatencyHistogram =
+            ThreadLocal.withInitial(this::createThreadLatencyHistogram);
+    private final ValueHistogram finishedThreadsLatencyHistogram = new ValueHistogram();
+
+    /**
+     * L'histogramme des latences d'un thread
+     */
+    private static final class ThreadHistogram {
+        private final Thread owner;
+        private final ValueHistogram histogram = new ValueHistogram();
+
+        private ThreadHistogram(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    private SolverMetrics() {
+    }
+
+    /**
+     * Crée l'histogramme des latences du thread courant, et l'ajoute à ceux fusionnés à la lecture
+     * @return ThreadHistogram
+     */
+    private ThreadHistogram createThreadLatencyHistogram() {
+        ThreadHistogram threadHistogram = new ThreadHistogram(Thread.currentThread());
+        this.threadLatencyHistograms.add(threadHistogram);
+        return threadHistogram;
+    }
+
+    /**
+     * Renvoie l'instance unique
+     * @return SolverMetrics
+     */
+    public static SolverMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enregistre l'instance unique sur le serveur JMX de la plateforme, si ce n'est déjà fait
+     * <p>
+     * Si l'enregistrement échoue, un message est affiché et les métriques sont tout de même cumulées.
+     */
+    public static synchronized void registerMBean() {
+        if (isRegistered) { return; }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println(MessageFormat.format(
+                    "ERREUR : Impossible d''enregistrer les metriques JMX {0} ({1}) !", OBJECT_NAME, e.getMessage()));
+        }
+        isRegistered = true;
+    }
+
+    /**
+     * Cumule les statistiques d'une résolution terminée
+     * @param solveResult
+     * @param nbNanoSeconds : la durée réelle de l'appel au moteur
+     */
+    public void record(SolveResult solveResult, long nbNanoSeconds) {
+        this.nbSolves.increment();
+        this.nbSolutions.add(solveResult.getNbSolutions());
+        this.nbRecursions.add(solveResult.getNbRecursions());
+        this.nbPasses.add(solveResult.getNbPasses());
+        this.nbUnsolvableGrids.add(solveResult.getNbUnsolvableGrids());
+        this.nbExaminedCells.add(solveResult.getNbExaminedCells());
+        this.totalNanoSeconds.add(nbNanoSeconds);
+        this.maxNanoSeconds.accumulate(nbNanoSeconds);
+        ValueHistogram threadHistogram = this.currentThreadLatencyHistogram.get().histogram;
+        // sans contention : seules les lectures prennent aussi ce verrou
+        synchronized (threadHistogram) {
+            threadHistogram.recordValue(nbNanoSeconds);
+        }
+    }
+
+    /**
+     * Renvoie l'histogramme des latences de toutes les résolutions, tous threads confondus
+     * <p>
+     * Les histogrammes des threads terminés sont au passage repliés dans celui des threads terminés.
+     * @return ValueHistogram : une nouvelle instance, en nanosecondes
+     */
+    public ValueHistogram getLatencyHistogram() {
+        ValueHistogram mergedHistogram = new ValueHistogram();
+        synchronized (this.finishedThreadsLatencyHistogram) {
+            Iterator<ThreadHistogram> threadHistograms = this.threadLatencyHistograms.iterator();
+            while (threadHistograms.hasNext()) {
+                ThreadHistogram threadHistogram = threadHistograms.next();
+                boolean isFinished = !threadHistogram.owner.isAlive();
+                synchronized (threadHistogram.histogram) {
+                    if (isFinished) {
+                        this.finishedThreadsLatencyHistogram.add(threadHistogram.histogram);
+                        threadHistograms.remove();
+                    } else {
+                        mergedHistogram.add(threadHistogram.histogram);
+                    }
+                }
+            }
+            mergedHistogram.add(this.finishedThreadsLatencyHistogram);
+        }
+        return mergedHistogram;
+    }
+
+    /**
+     * Renvoie un percentile de l'histogramme des latences
+     * @param percentile : entre 0 et 100
+     * @return double : en microsecondes
+     */
+    private double getLatencyMicroSeconds(double percentile) {
+        return this.getLatencyHistogram().getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    @Override
+    public long getNbSolves() {
+        return this.nbSolves.sum();
+    }
+
+    @Override
+    public long getNbSolutions() {
+        return this.nbSolutions.sum();
+    }
+
+    @Override
+    public long getNbRecursions() {
+        return this.nbRecursions.sum();
+    }
+
+    @Override
+    public long getNbPasses() {
+        return this.nbPasses.sum();
+    }
+
+    @Override
+    public long getNbUnsolvableGrids() {
+        return this.nbUnsolvableGrids.sum();
+    }
+
+    @Override
+    public long getNbExaminedCells() {
+        return this.nbExaminedCells.sum();
+    }
+
+    @Override
+    public long getTotalNanoSeconds() {
+        return this.totalNanoSeconds.sum();
+    }
+
+    @Override
+    public long getMaxNanoSeconds() {
+        return this.maxNanoSeconds.get();
+    }
+
+    @Override
+    public double getMeanMicroSeconds() {
+        long nbSolvesSum = this.nbSolves.sum();
+        return nbSolvesSum == 0 ? 0 : this.totalNanoSeconds.sum() / 1000.0 / nbSolvesSum;
+    }
+
+    @Override
+    public double getLatencyP50MicroSeconds() {
+        return this.getLatencyMicroSeconds(50);
+    }
+
+    @Override
+    public double getLatencyP90MicroSeconds() {
+        return this.getLatencyMicroSeconds(90);
+    }
+
+    @Override
+    public double getLatencyP99MicroSeconds() {
+        return this.getLatencyMicroSeconds(99);
+    }
+
+    @Override
+    public double getLatencyP999MicroSeconds() {
+        return this.getLatencyMicroSeconds(99.9);
+    }
+
+    @Override
+    public void reset() {
+        this.nbSolves.reset();
+        this.nbSolutions.reset();
+        this.nbRecursions.reset();
+        this.nbPasses.reset();
+        this.nbUnsolvableGrids.reset();
+        this.nbExaminedCells.reset();
+        this.totalNanoSeconds.reset();
+        this.maxNanoSeconds.reset();
+        synchronized (this.finishedThreadsLatencyHistogram) {
+            for (ThreadHistogram threadHistogram : this.threadLatencyHistograms) {
+                synchronized (threadHistogram.histogram) {
+                    threadHistogram.histogram.reset();
+                }
+            }
+            this.finishedThreadsLatencyHistogram.reset();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package utils;
+
+/**
+ * Interface JMX des métriques de résolution (cf SolverMetrics)
+ * <p>
+ * Tous les compteurs sont cumulés depuis le lancement de la JVM ou depuis le dernier appel à reset,
+ * pour toutes les grilles résolues par un InstrumentedSolver.
+ */
+public interface SolverMetricsMBean {
+
+    /**
+     * @return long : le nb de grilles résolues
+     */
+    long getNbSolves();
+
+    /**
+     * @return long : le nb de solutions trouvées
+     */
+    long getNbSolutions();
+
+    /**
+     * @return long : le nb d'embranchements
+     */
+    long getNbRecursions();
+
+    /**
+     * @return long : le nb de passes de propagation
+     */
+    long getNbPasses();
+
+    /**
+     * @return long : le nb de grilles impossibles à résoudre rencontrées dans les arbres de recherche
+     */
+    long getNbUnsolvableGrids();
+
+    /**
+     * @return long : le nb de cellules examinées par la propagation
+     */
+    long getNbExaminedCells();
+
+    /**
+     * @return long : la latence cumulée des résolutions (durée réelle de l'appel au moteur), en nanosecondes
+     */
+    long getTotalNanoSeconds();
+
+    /**
+     * @return long : la durée de la résolution la plus longue, en nanosecondes
+     */
+    long getMaxNanoSeconds();
+
+    /**
+     * @return double : la durée moyenne d'une résolution, en microsecondes
+     */
+    double getMeanMicroSeconds();
+
+    /**
+     * @return double : la latence médiane d'une résolution, en microsecondes
+     */
+    double getLatencyP50MicroSeconds();
+
+    /**
+     * @return double : le 90e percentile de la latence d'une résolution, en microsecondes
+     */
+    double getLatencyP90MicroSeconds();
+
+    /**
+     * @return double : le 99e percentile de la latence d'une résolution, en microsecondes
+     */
+    double getLatencyP99MicroSeconds();
+
+    /**
+     * @return double : le 99.9e percentile de la latence d'une résolution, en microsecondes
+     */
+    double getLatencyP999MicroSeconds();
+
+    /**
+     * Remet tous les compteurs à zéro
+     */
+    void reset();
+}
@@ -0,0 +1,28 @@
+package utils;
+
+/**
+ * Interface des techniques d'inférence appliquées par le Propagator lorsque sa file de cellules est vide
+ * <p>
+ * Une technique lit la grille du propagateur et retire des candidats uniquement au travers de
+ * Propagator.eliminate et Propagator.assign : les modifications sont ainsi enregistrées dans la trail
+ * et les cellules résolues sont mises en file.<br>
+ * Les techniques sont appliquées dans l'ordre du pipeline (cf SolveResult.setTechniques) :
+ * dès que l'une d'elles retire au moins un candidat, la file est propagée puis le pipeline reprend depuis la première.
+ * <p>
+ * Les implémentations ne doivent pas conserver d'état, elles peuvent ainsi être partagées entre plusieurs résolutions.
+ */
+public interface Technique {
+
+    /**
+     * Renvoie le nom de la technique, tel qu'utilisé par l'option --techniques
+     * @return String
+     */
+    String getName();
+
+    /**
+     * Applique la technique une fois sur la grille courante du propagateur
+     * @param propagator : le propagateur, dont la file est vide
+     * @return boolean : false si une contradiction a été trouvée
+     */
+    boolean apply(Propagator propagator);
+}
@@ -0,0 +1,143 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Classe qui compile, pour chaque technique d'un pipeline, le nb d'appels, le nb de candidats retirés et le temps passé
+ * <p>
+ * Les statistiques sont rangées dans le même ordre que les techniques du pipeline.<br>
+ * Ces chiffres permettent de juger, pour un type de grilles, quelles techniques coûtent moins cher que les embranchements
+ * qu'elles évitent.
+ */
+public class TechniqueStats {
+
+    private final Technique[] techniques;
+    private final long[] nbInvocations;
+    private final long[] nbEliminations;
+    private final long[] nbNanoSeconds;
+
+    /**
+     * Constructeur
+     * @param techniques : le pipeline dont on compile les statistiques
+     */
+    public TechniqueStats(Technique[] techniques) {
+        this.techniques = techniques;
+        this.nbInvocations = new long[techniques.length];
+        this.nbEliminations = new long[techniques.length];
+        this.nbNanoSeconds = new long[techniques.length];
+    }
+
+    /**
+     * Enregistre un appel de la technique à l'index techniqueIndex du pipeline
+     * @param techniqueIndex
+     * @param nbEliminatedCandidates : le nb de candidats retirés pendant cet appel
+     * @param elapsedNanoSeconds : la durée de cet appel
+     */
+    public void record(int techniqueIndex, long nbEliminatedCandidates, long elapsedNanoSeconds) {
+        this.nbInvocations[techniqueIndex]++;
+        this.nbEliminations[techniqueIndex] += nbEliminatedCandidates;
+        this.nbNanoSeconds[techniqueIndex] += elapsedNanoSeconds;
+    }
+
+    /**
+     * Renvoie le nb de techniques du pipeline
+     * @return int
+     */
+    public int getNbTechniques() {
+        return this.techniques.length;
+    }
+
+    /**
+     * Cumule les statistiques d'un autre pipeline, qui doit contenir les mêmes techniques dans le même ordre
+     * @param otherStats
+     */
+    public void add(TechniqueStats otherStats) {
+        for (int techniqueIndex = 0; techniqueIndex < this.techniques.length; techniqueIndex++) {
+            this.nbInvocations[techniqueIndex] += otherStats.nbInvocations[techniqueIndex];
+            this.nbEliminations[techniqueIndex] += otherStats.nbEliminations[techniqueIndex];
+            this.nbNanoSeconds[techniqueIndex] += otherStats.nbNanoSeconds[techniqueIndex];
+        }
+    }
+
+    /**
+     * Remet toutes les statistiques à zéro
+     */
+    public void clear() {
+        Arrays.fill(this.nbInvocations, 0L);
+        Arrays.fill(this.nbEliminations, 0L);
+        Arrays.fill(this.nbNanoSeconds, 0L);
+    }
+
+    /**
+     * Indique si au moins une technique du pipeline a été appelée
+     * @return boolean
+     */
+    public boolean hasInvocations() {
+        for (long nbTechniqueInvocations : this.nbInvocations) {
+            if (nbTechniqueInvocations > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renvoie le pipeline dont on compile les statistiques
+     * @return Technique[]
+     */
+    public Technique[] getTechniques() {
+        return this.techniques;
+    }
+
+    /**
+     * Renvoie le nom de la technique à l'index techniqueIndex du pipeline
+     * @param techniqueIndex
+     * @return String
+     */
+    public String getName(int techniqueIndex) {
+        return this.techniques[techniqueIndex].getName();
+    }
+
+    /**
+     * Renvoie le nb d'appels de la technique à l'index techniqueIndex du pipeline
+     * @param techniqueIndex
+     * @return long
+     */
+    public long getNbInvocations(int techniqueIndex) {
+        return this.nbInvocations[techniqueIndex];
+    }
+
+    /**
+     * Renvoie le nb de candidats retirés par la technique à l'index techniqueIndex du pipeline
+     * @param techniqueIndex
+     * @return long
+     */
+    public long getNbEliminations(int techniqueIndex) {
+        return this.nbEliminations[techniqueIndex];
+    }
+
+    /**
+     * Renvoie le temps passé dans la technique à l'index techniqueIndex du pipeline
+     * @param techniqueIndex
+     * @return long : en nanosecondes
+     */
+    public long getNbNanoSeconds(int techniqueIndex) {
+        return this.nbNanoSeconds[techniqueIndex];
+    }
+
+    /**
+     * Renvoie une chaîne contenant une ligne de statistiques par technique, mise en forme pour l'utilisateur
+     * @return String
+     */
+    @Override
+    public String toString() {
+        String returnString = "";
+        for (int techniqueIndex = 0; techniqueIndex < this.techniques.length; techniqueIndex++) {
+            returnString += "\n\t\t- " + this.getName(techniqueIndex)
+                    + " : " + this.nbInvocations[techniqueIndex] + " appel(s)"
+                    + ", " + this.nbEliminations[techniqueIndex] + " candidat(s) retire(s)"
+                    + ", " + String.format("%.3f", this.nbNanoSeconds[techniqueIndex] / 1000000.0f) + " millisecondes";
+        }
+        return returnString;
+    }
+}
@@ -0,0 +1,81 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Classe qui enregistre les modifications successives d'une grille de masques afin de pouvoir les annuler
+ * <p>
+ * Avant chaque modification d'un masque de cellule ou d'unité, son ancienne valeur est empilée sur la "trail".
+ * Pour revenir à l'état de la grille au moment d'une décision, il suffit de noter la taille de la trail (mark)
+ * avant cette décision, puis de dépiler jusqu'à cette marque en restaurant chaque ancienne valeur.<br>
+ * Seules les cellules réellement modifiées depuis la décision sont donc restaurées, sans jamais copier toute la grille.
+ * <p>
+ * Chaque entrée est codée sur un int : l'index sur les 16 bits de poids fort
+ * (de 0 à 80 pour une cellule, de 81 à 107 pour une unité) et l'ancien masque sur les 16 bits de poids faible.
+ */
+public class Trail {
+
+    private int[] entries = new int[1024]; // agrandi si besoin, mais une branche dépasse rarement quelques centaines d'entrées
+    private int size = 0;
+
+    /**
+     * Enregistre l'ancienne valeur d'un masque de cellule
+     * @param cellIndex
+     * @param oldMask
+     */
+    public void recordCell(int cellIndex, short oldMask) {
+        this.push(cellIndex, oldMask);
+    }
+
+    /**
+     * Enregistre l'ancienne valeur d'un masque d'unité
+     * @param unitIndex
+     * @param oldMask
+     */
+    public void recordUnit(int unitIndex, short oldMask) {
+        this.push(MaskGrid.NB_CELLS + unitIndex, oldMask);
+    }
+
+    private void push(int index, short oldMask) {
+        if (this.size == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries, this.entries.length * 2);
+        }
+        this.entries[this.size] = (index << 16) | (oldMask & 0xFFFF);
+        this.size++;
+    }
+
+    /**
+     * Renvoie la position actuelle de la trail, à utiliser plus tard avec undo
+     * @return int
+     */
+    public int mark() {
+        return this.size;
+    }
+
+    /**
+     * Annule toutes les modifications enregistrées depuis la marque fournie, de la plus récente à la plus ancienne
+     * @param mark : une valeur renvoyée précédemment par mark()
+     * @param cellMasks : la grille à restaurer
+     * @param unitMasks : les masques d'unités à restaurer
+     */
+    public void undo(int mark, short[] cellMasks, short[] unitMasks) {
+        while (this.size > mark) {
+            this.size--;
+            int entry = this.entries[this.size];
+            int index = entry >>> 16;
+            short oldMask = (short) entry;
+            if (index < MaskGrid.NB_CELLS) {
+                cellMasks[index] = oldMask;
+            } else {
+                unitMasks[index - MaskGrid.NB_CELLS] = oldMask;
+            }
+        }
+    }
+
+    /**
+     * Vide la trail, sans rien restaurer
+     */
+    public void clear() {
+        this.size = 0;
+    }
+}
@@ -0,0 +1,228 @@
+package utils;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Moteur de résolution itératif, alternative à Grid.recurseSolve
+ * <p>
+ * Au lieu de récurser sur la pile Java et de copier deux fois la grille à chaque embranchement,
+ * ce moteur travaille sur une unique grille de masques modifiée sur place :
+ * <ul>
+ *  <li>chaque décision (une cellule, un chiffre) est empilée sur une pile explicite de profondeur 81 au plus,
+ *      ce qui écarte tout risque de StackOverflowError</li>
+ *  <li>chaque modification de la grille est enregistrée dans une Trail,
+ *      et revenir sur une décision revient à annuler les seules modifications faites depuis</li>
+ * </ul>
+ * Chaque embranchement est exploré candidat par candidat, dans l'ordre donné par la stratégie du SolveResult
+ * (du plus petit au plus grand s'il n'en a pas, ce qui donne les solutions dans le même ordre que Grid.recurseSolve
+ * à politique d'embranchement égale).
+ * <p>
+ * Les solutions et les statistiques sont compilées dans le SolveResult fourni, comme pour Grid.recurseSolve ;
+ * le chronomètre couvre en revanche la totalité de la recherche.<br>
+ * La recherche peut aussi être menée à la demande, une solution à la fois (cf start et nextSolution) :
+ * c'est ce qu'utilise SolutionSpliterator.<br>
+ * Une instance peut être réutilisée pour plusieurs résolutions successives, mais pas par plusieurs threads à la fois.
+ */
+public class TrailSolver implements Solver {
+
+    private final short[] cellMasks = new short[MaskGrid.NB_CELLS];
+    private final short[] unitMasks = new short[MaskGrid.NB_UNITS];
+    private final Trail trail = new Trail();
+    private final Propagator propagator = new Propagator();
+
+    // la pile des décisions : une entrée par embranchement en cours d'exploration
+    private final int[] stackCells = new int[MaskGrid.NB_CELLS];
+    private final int[] stackMarks = new int[MaskGrid.NB_CELLS];
+    private final int[][] stackCandidates = new int[MaskGrid.NB_CELLS][9]; // les candidats ordonnés de chaque embranchement
+    private final int[] stackNbCandidates = new int[MaskGrid.NB_CELLS];
+    private final int[] stackPositions = new int[MaskGrid.NB_CELLS]; // le prochain candidat à essayer
+    private final ForkEvent[] stackForkEvents = new ForkEvent[MaskGrid.NB_CELLS]; // null hors enregistrement JFR
+    private int stackSize;
+
+    private final ValueOrdering naturalValueOrdering = new NaturalValueOrdering();
+
+    // l'état de la recherche en cours, entre deux appels à nextSolution
+    private SolveResult solveResult;
+    private ValueOrdering valueOrdering;
+    private boolean hasPendingNode; // le noeud courant a été propagé mais pas encore examiné
+    private boolean isConsistent; // le résultat de la propagation du noeud courant
+
+    /**
+     * Constructeur
+     */
+    public TrailSolver() {
+        this.propagator.setTrail(this.trail);
+    }
+
+    @Override
+    public void solve(SolveResult solveResult) {
+        this.start(solveResult);
+        short[] solution;
+        while ((solution = this.nextSolution()) != null) {
+            solveResult.addSolution(solution); // copiée si besoin par le solveResult
+        }
+        solveResult.stopTimer();
+    }
+
+    /**
+     * Démarre une nouvelle recherche sur la grille courante du SolveResult fourni, et propage la grille de départ
+     * <p>
+     * Les solutions sont ensuite obtenues une à une par nextSolution ; le SolveResult ne reçoit que les statistiques.
+     * @param newSolveResult : la grille de départ, les options de résolution, et qui recevra les statistiques
+     */
+    public void start(SolveResult newSolveResult) {
+        this.solveResult = newSolveResult;
+        newSolveResult.startTimer();
+        PassResult startingPassResult = newSolveResult.getCurrentPassResult();
+        System.arraycopy(startingPassResult.getCellMasks(), 0, this.cellMasks, 0, MaskGrid.NB_CELLS);
+        System.arraycopy(startingPassResult.getUnitMasks(), 0, this.unitMasks, 0, MaskGrid.NB_UNITS);
+        this.trail.clear();
+        // les embranchements d'une recherche précédente abandonnée en cours de route
+        this.commitPendingForkEvents();
+        this.stackSize = 0;
+        this.valueOrdering = newSolveResult.getValueOrdering() == null
+                ? this.naturalValueOrdering
+                : newSolveResult.getValueOrdering();
+        this.propagator.setTechniques(newSolveResult.getTechniques(), newSolveResult.getTechniqueStats());
+
+        // propagation de la grille de départ
+        this.propagator.reset(this.cellMasks, this.unitMasks);
+        this.propagator.enqueueNewSingles();
+        this.isConsistent = this.propagateAndCount(newSolveResult);
+        this.hasPendingNode = true;
+    }
+
+    /**
+     * Poursuit la recherche démarrée par start jusqu'à la prochaine solution
+     * <p>
+     * La recherche s'arrête aussi dès que le SolveResult est plein (cf SolveResult.isFull).
+     * @return short[] : la grille de travail, résolue, valable jusqu'au prochain appel ; ou null si la recherche est finie
+     */
+    public short[] nextSolution() {
+        while (true) {
+            if (this.hasPendingNode) {
+                this.hasPendingNode = false;
+                if (this.isConsistent) {
+                    if (this.propagator.isSolved()) {
+                        return this.cellMasks;
+                    }
+                    // nouvel embranchement sur la cellule choisie par la politique d'embranchement
+                    ForkEvent forkEvent = null;
+                    if (FlightRecorder.isInitialized()) {
+                        forkEvent = new ForkEvent();
+                        forkEvent.begin();
+                    }
+                    int cellIndex = this.solveResult.getBranchingPolicy().selectCell(this.cellMasks);
+                    this.stackCells[this.stackSize] = cellIndex;
+                    this.stackMarks[this.stackSize] = this.trail.mark();
+                    this.stackNbCandidates[this.stackSize] = this.valueOrdering.orderCandidates(
+                            this.cellMasks, cellIndex, this.stackCandidates[this.stackSize]);
+                    this.stackPositions[this.stackSize] = 0;
+                    if (forkEvent != null) {
+                        forkEvent.end();
+                        forkEvent.depth = this.stackSize;
+                        forkEvent.cellIndex = cellIndex;
+                        forkEvent.nbCandidates = Integer.bitCount(this.cellMasks[cellIndex]);
+                    }
+                    // enregistré une fois l'embranchement dépilé, avec le nb de branches explorées
+                    this.stackForkEvents[this.stackSize] = forkEvent;
+                    this.stackSize++;
+                }
+            }
+            // le quota peut être atteint, y compris par un autre thread (cf SolutionQuota)
+            if (this.solveResult.isFull()) {
+                this.commitPendingForkEvents();
+                return null;
+            }
+            // on essaie le prochain candidat de l'embranchement le plus profond qui n'est pas épuisé
+            if (!this.nextDecision()) { return null; }
+            this.isConsistent = this.propagateAndCount(this.solveResult);
+            this.hasPendingNode = true;
+        }
+    }
+
+    /**
+     * Revient sur la dernière décision et applique le candidat suivant,
+     * en dépilant les embranchements dont tous les candidats ont déjà été essayés
+     * @return boolean : false si toute la recherche a été épuisée
+     */
+    private boolean nextDecision() {
+        while (this.stackSize > 0) {
+            int top = this.stackSize - 1;
+            this.trail.undo(this.stackMarks[top], this.cellMasks, this.unitMasks);
+            int position = this.stackPositions[top];
+            if (position < this.stackNbCandidates[top]) {
+                this.stackPositions[top] = position + 1;
+                this.propagator.reset(this.cellMasks, this.unitMasks);
+                this.propagator.assign(this.stackCells[top], this.stackCandidates[top][position]);
+                return true;
+            }
+            this.commitForkEvent(top);
+            this.stackSize--;
+        }
+        return false;
+    }
+
+    /**
+     * Enregistre l'évènement JFR d'un embranchement de la pile, avec le nb de candidats essayés jusque là
+     * <p>
+     * La durée de l'évènement, arrêtée à la création de l'embranchement, ne couvre pas l'exploration des branches.
+     * @param stackIndex
+     */
+    private void commitForkEvent(int stackIndex) {
+        ForkEvent forkEvent = this.stackForkEvents[stackIndex];
+        if (forkEvent == null) { return; }
+        this.stackForkEvents[stackIndex] = null;
+        if (forkEvent.shouldCommit()) {
+            forkEvent.nbBranches = this.stackPositions[stackIndex];
+            forkEvent.commit();
+        }
+    }
+
+    /**
+     * Enregistre les évènements JFR des embranchements encore sur la pile, quand la recherche s'arrête avant de les épuiser
+     */
+    private void commitPendingForkEvents() {
+        for (int stackIndex = this.stackSize - 1; stackIndex >= 0; stackIndex--) {
+            this.commitForkEvent(stackIndex);
+        }
+    }
+
+    /**
+     * Propage la file courante et met à jour les statistiques, comme le ferait une branche de Grid.recurseSolve
+     * @param solveResult
+     * @return boolean : false si la branche est impossible
+     */
+    private boolean propagateAndCount(SolveResult solveResult) {
+        solveResult.incRecursionCounter();
+        // les évènements JFR ne sont créés qu'une fois un enregistrement démarré (cf PropagationEvent)
+        PropagationEvent propagationEvent = null;
+        long nbEliminationsBefore = 0;
+        if (FlightRecorder.isInitialized()) {
+            propagationEvent = new PropagationEvent();
+            propagationEvent.begin();
+            nbEliminationsBefore = this.propagator.getNbEliminations();
+        }
+        boolean isConsistent = this.propagator.run();
+        if (propagationEvent != null) {
+            propagationEvent.end();
+            if (propagationEvent.shouldCommit()) {
+                propagationEvent.depth = this.stackSize;
+                propagationEvent.nbEliminatedCandidates = this.propagator.getNbEliminations() - nbEliminationsBefore;
+                propagationEvent.nbWaves = this.propagator.getNbWaves();
+                propagationEvent.isConsistent = isConsistent;
+                propagationEvent.commit();
+            }
+        }
+        solveResult.addNbPasses(Math.max(this.propagator.getNbWaves(), 1));
+        solveResult.addNbExaminedCells(this.propagator.getNbExaminedCells());
+        if (!isConsistent) {
+            solveResult.incNbUnsolvableGrids();
+        } else if (this.propagator.hasPendingCells()) {
+            // limite de vagues atteinte : la branche est abandonnée, comme dans Grid.recurseSolve
+            solveResult.incNbFailedGrids();
+            return false;
+        }
+        return isConsistent;
+    }
+}
@@ -0,0 +1,115 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Vérifie rapidement si une grille a 0, 1 ou plusieurs solutions, en s'arrêtant dès la deuxième solution
+ * <p>
+ * Destiné à valider de grands volumes de grilles (une grille bien posée a exactement une solution) :
+ * <ul>
+ *  <li>la recherche est menée par un TrailSolver, en mode comptage : aucune grille solution n'est copiée</li>
+ *  <li>le moteur, le SolveResult et la grille de départ sont réutilisés d'une vérification à l'autre :
+ *      une vérification n'alloue quasiment rien</li>
+ *  <li>rien n'est affiché ; le travail de la dernière vérification reste disponible au travers des getters</li>
+ * </ul>
+ * Une grille avec doublons n'a aucune solution.<br>
+ * Une instance ne doit pas être utilisée par plusieurs threads à la fois : il en faut une par thread.
+ */
+public class UniquenessChecker {
+
+    /**
+     * Le résultat d'une vérification
+     */
+    public static enum Uniqueness {
+        NO_SOLUTION, // grille impossible
+        UNIQUE, // grille bien posée
+        MULTIPLE // au moins deux solutions
+    }
+
+    private final TrailSolver solver = new TrailSolver();
+    private final short[] startingCellMasks = new short[MaskGrid.NB_CELLS];
+    private final PassResult startingPassResult = new PassResult(this.startingCellMasks);
+    private final SolveResult solveResult = new SolveResult(this.startingPassResult, 2);
+
+    /**
+     * Constructeur, avec la politique d'embranchement mrv (la plus efficace pour parcourir tout l'arbre)
+     * et les techniques d'inférence par défaut
+     */
+    public UniquenessChecker() {
+        this(new MinimumRemainingValuesBranching(), Propagator.getDefaultTechniques());
+    }
+
+    /**
+     * Constructeur
+     * @param branchingPolicy : le choix des cellules d'embranchement
+     * @param techniques : le pipeline de techniques d'inférence
+     */
+    public UniquenessChecker(BranchingPolicy branchingPolicy, Technique[] techniques) {
+        this.solveResult.setBranchingPolicy(branchingPolicy);
+        this.solveResult.setTechniques(techniques);
+        this.solveResult.setCountOnly(true);
+    }
+
+    /**
+     * Vérifie une grille donnée sous forme de grille de masques (cf MaskGrid)
+     * @param cellMasks : 81 masques de candidats, qui ne sont pas modifiés
+     * @return Uniqueness
+     */
+    public Uniqueness check(short[] cellMasks) {
+        System.arraycopy(cellMasks, 0, this.startingPassResult.getCellMasks(), 0, MaskGrid.NB_CELLS);
+        // aucune cellule résolue n'a encore été propagée
+        Arrays.fill(this.startingPassResult.getUnitMasks(), (short) 0);
+        this.solveResult.reset(this.startingPassResult);
+        this.solver.solve(this.solveResult);
+
+        switch ((int) this.solveResult.getNbSolutions()) {
+            case 0:
+                return Uniqueness.NO_SOLUTION;
+            case 1:
+                return Uniqueness.UNIQUE;
+            default:
+                return Uniqueness.MULTIPLE;
+        }
+    }
+
+    /**
+     * Vérifie une grille donnée sous forme de cellArray (cf Grid)
+     * @param cellArray
+     * @return Uniqueness
+     */
+    public Uniqueness check(int[][][] cellArray) {
+        return this.check(MaskGrid.fromCellArray(cellArray));
+    }
+
+    /**
+     * Renvoie le nb d'embranchements explorés par la dernière vérification
+     * @return long
+     */
+    public long getNbRecursions() {
+        return this.solveResult.getNbRecursions();
+    }
+
+    /**
+     * Renvoie le nb de passes effectuées par la dernière vérification
+     * @return long
+     */
+    public long getNbPasses() {
+        return this.solveResult.getNbPasses();
+    }
+
+    /**
+     * Renvoie la durée de la dernière vérification
+     * @return long : en nanosecondes
+     */
+    public long getNbNanoSeconds() {
+        return this.solveResult.getNbNanoSeconds();
+    }
+
+    /**
+     * Renvoie les statistiques par technique d'inférence de la dernière vérification
+     * @return TechniqueStats
+     */
+    public TechniqueStats getTechniqueStats() {
+        return this.solveResult.getTechniqueStats();
+    }
+}
@@ -0,0 +1,222 @@
+package utils;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Histogramme à grande plage dynamique de valeurs entières positives (durées, nb d'embranchements...),
+ * sur le principe de HdrHistogram
+ * <p>
+ * Les tranches sont log-linéaires : les valeurs inférieures à SUB_BUCKET_COUNT sont comptées exactement,
+ * puis chaque puissance de 2 est découpée en SUB_BUCKET_COUNT tranches de même largeur.
+ * L'erreur relative sur une valeur restituée est donc toujours inférieure à 1 / SUB_BUCKET_COUNT (< 1 %),
+ * de la nanoseconde à plusieurs siècles, pour une taille fixe d'environ 57 Kio.
+ * <p>
+ * Le minimum, le maximum et la moyenne sont exacts ; les percentiles renvoient la plus grande valeur
+ * équivalente de leur tranche, comme HdrHistogram.<br>
+ * Un histogramme n'est pas thread-safe : chaque thread doit avoir le sien, puis les fusionner par add,
+ * ce qui donne exactement le même résultat qu'un histogramme unique.
+ */
+public class ValueHistogram {
+
+    /**
+     * Le nb de bits de précision de chaque tranche
+     */
+    public static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * Le nb de tranches par puissance de 2
+     */
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // une première série de valeurs exactes, puis une série par position du bit de poids fort au-delà
+    private static final int NB_COUNTS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    // nb de lignes par demi-distance restante jusqu'à 100 % dans outputPercentileDistribution (même défaut qu'HdrHistogram)
+    private static final int PERCENTILE_TICKS_PER_HALF_DISTANCE = 5;
+
+    private final long[] counts = new long[NB_COUNTS];
+    private long totalCount = 0;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue = 0;
+    private double totalValue = 0; // en double : la somme de durées en nanosecondes peut dépasser un long
+
+    /**
+     * Compte une valeur ; une valeur négative est comptée comme 0
+     * @param value
+     */
+    public void recordValue(long value) {
+        long positiveValue = Math.max(value, 0);
+        this.counts[getCountIndex(positiveValue)]++;
+        this.totalCount++;
+        this.minValue = Math.min(this.minValue, positiveValue);
+        this.maxValue = Math.max(this.maxValue, positiveValue);
+        this.totalValue += positiveValue;
+    }
+
+    /**
+     * Ajoute toutes les valeurs d'un autre histogramme
+     * @param otherHistogram
+     */
+    public void add(ValueHistogram otherHistogram) {
+        for (int countIndex = 0; countIndex < NB_COUNTS; countIndex++) {
+            this.counts[countIndex] += otherHistogram.counts[countIndex];
+        }
+        this.totalCount += otherHistogram.totalCount;
+        this.minValue = Math.min(this.minValue, otherHistogram.minValue);
+        this.maxValue = Math.max(this.maxValue, otherHistogram.maxValue);
+        this.totalValue += otherHistogram.totalValue;
+    }
+
+    /**
+     * Remet l'histogramme à zéro
+     */
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.totalCount = 0;
+        this.minValue = Long.MAX_VALUE;
+        this.maxValue = 0;
+        this.totalValue = 0;
+    }
+
+    /**
+     * Renvoie la tranche d'une valeur positive
+     * @param value
+     * @return int
+     */
+    static int getCountIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // on garde les SUB_BUCKET_BITS bits qui suivent le bit de poids fort
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucketIndex = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucketIndex;
+    }
+
+    /**
+     * Renvoie la plus grande valeur comptée dans une tranche
+     * @param countIndex
+     * @return long
+     */
+    static long getHighestEquivalentValue(int countIndex) {
+        if (countIndex < SUB_BUCKET_COUNT) {
+            return countIndex;
+        }
+        int shift = countIndex / SUB_BUCKET_COUNT - 1;
+        long lowestValue = (long) (countIndex % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+
+    /**
+     * Renvoie le nb de valeurs comptées
+     * @return long
+     */
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    /**
+     * Renvoie la plus petite valeur comptée, 0 si l'histogramme est vide
+     * @return long
+     */
+    public long getMinValue() {
+        return this.totalCount == 0 ? 0 : this.minValue;
+    }
+
+    /**
+     * Renvoie la plus grande valeur comptée, 0 si l'histogramme est vide
+     * @return long
+     */
+    public long getMaxValue() {
+        return this.maxValue;
+    }
+
+    /**
+     * Renvoie la moyenne des valeurs comptées, 0 si l'histogramme est vide
+     * @return double
+     */
+    public double getMean() {
+        return this.totalCount == 0 ? 0 : this.totalValue / this.totalCount;
+    }
+
+    /**
+     * Renvoie la valeur en dessous de laquelle (ou égale à laquelle) se trouve le pourcentage demandé des valeurs comptées
+     * @param percentile : entre 0 et 100, par ex 99.9
+     * @return long : 0 si l'histogramme est vide
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * this.totalCount));
+        long cumulativeCount = 0;
+        for (int countIndex = 0; countIndex < NB_COUNTS; countIndex++) {
+            cumulativeCount += this.counts[countIndex];
+            if (cumulativeCount >= countAtPercentile) {
+                return Math.min(getHighestEquivalentValue(countIndex), this.maxValue);
+            }
+        }
+        return this.maxValue;
+    }
+
+    /**
+     * Écrit la distribution des percentiles au format texte .hgrm d'HdrHistogram,
+     * lisible par ses outils (par ex le HistogramLogAnalyzer ou le plotFiles.html d'HdrHistogram)
+     * @param writer : la destination, qui n'est ni vidée ni fermée
+     * @param outputValueUnitScalingRatio : le diviseur des valeurs écrites, par ex 1e6 pour des nanosecondes écrites en ms
+     */
+    public void outputPercentileDistribution(PrintWriter writer, double outputValueUnitScalingRatio) {
+        writer.format("%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+        if (this.totalCount > 0) {
+            double percentileLevel = 0.0;
+            long cumulativeCount = 0;
+            for (int countIndex = 0; countIndex < NB_COUNTS && cumulativeCount < this.totalCount; countIndex++) {
+                if (this.counts[countIndex] == 0) { continue; }
+                cumulativeCount += this.counts[countIndex];
+                double value = Math.min(getHighestEquivalentValue(countIndex), this.maxValue) / outputValueUnitScalingRatio;
+                if (cumulativeCount == this.totalCount) {
+                    // la dernière ligne est toujours à 100 %, sans 1/(1-Percentile) qui serait infini
+                    writer.format(Locale.US, "%12.3f %2.12f %10d%n", value, 1.0, cumulativeCount);
+                    break;
+                }
+                // une ligne par palier de percentile atteint par cette tranche
+                while (cumulativeCount * 100.0 / this.totalCount >= percentileLevel) {
+                    double percentile = percentileLevel / 100.0;
+                    writer.format(Locale.US, "%12.3f %2.12f %10d %14.2f%n",
+                            value, percentile, cumulativeCount, 1.0 / (1.0 - percentile));
+                    percentileLevel = getNextPercentileLevel(percentileLevel);
+                }
+            }
+        }
+        double mean = this.getMean();
+        double sumOfSquaredDeviations = 0;
+        for (int countIndex = 0; countIndex < NB_COUNTS; countIndex++) {
+            if (this.counts[countIndex] == 0) { continue; }
+            double deviation = Math.min(getHighestEquivalentValue(countIndex), this.maxValue) - mean;
+            sumOfSquaredDeviations += deviation * deviation * this.counts[countIndex];
+        }
+        double standardDeviation = this.totalCount == 0 ? 0 : Math.sqrt(sumOfSquaredDeviations / this.totalCount);
+        writer.format(Locale.US, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n",
+                mean / outputValueUnitScalingRatio, standardDeviation / outputValueUnitScalingRatio);
+        writer.format(Locale.US, "#[Max     = %12.3f, Total count    = %12d]%n",
+                this.maxValue / outputValueUnitScalingRatio, this.totalCount);
+        writer.format(Locale.US, "#[Buckets = %12d, SubBuckets     = %12d]%n",
+                Long.SIZE - SUB_BUCKET_BITS, SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Renvoie le palier de percentile suivant : les paliers se resserrent à chaque fois que la distance
+     * restante jusqu'à 100 % est divisée par deux (0, 10, 20... 50, 55, 60... 75, 77.5...)
+     * @param percentileLevel
+     * @return double
+     */
+    private static double getNextPercentileLevel(double percentileLevel) {
+        double halfDistance = 100.0;
+        while (100.0 - percentileLevel <= halfDistance / 2) {
+            halfDistance /= 2;
+        }
+        return percentileLevel + halfDistance / (2 * PERCENTILE_TICKS_PER_HALF_DISTANCE);
+    }
+}
@@ -0,0 +1,60 @@
+package utils;
+
+/**
+ * Interface des stratégies d'ordonnancement des candidats d'une cellule d'embranchement
+ * <p>
+ * Lorsqu'un embranchement est créé avec une branche par candidat, les branches sont explorées
+ * dans l'ordre renvoyé par la stratégie : un bon ordre permet de trouver plus vite les premières solutions.<br>
+ * Les implémentations ne doivent pas conserver d'état, elles peuvent ainsi être partagées entre plusieurs résolutions.
+ */
+public interface ValueOrdering {
+
+    /**
+     * Range les candidats de la cellule dans l'ordre d'exploration souhaité
+     * @param cellMasks : la grille de masques courante, qui ne doit pas être modifiée
+     * @param cellIndex : la cellule de l'embranchement
+     * @param orderedCandidates : un tableau d'au moins 9 cases qui reçoit les masques (à un seul bit) des candidats
+     * @return int : le nombre de candidats rangés dans orderedCandidates
+     */
+    int orderCandidates(short[] cellMasks, int cellIndex, int[] orderedCandidates);
+
+    /**
+     * Range les candidats de la cellule du plus petit au plus grand
+     * @param cellMasks
+     * @param cellIndex
+     * @param orderedCandidates : reçoit les masques (à un seul bit) des candidats
+     * @return int : le nombre de candidats
+     */
+    static int listCandidates(short[] cellMasks, int cellIndex, int[] orderedCandidates) {
+        int remainingMask = cellMasks[cellIndex];
+        int nbCandidates = 0;
+        while (remainingMask != 0) {
+            orderedCandidates[nbCandidates] = remainingMask & -remainingMask; // isole le bit le plus faible
+            remainingMask &= remainingMask - 1;
+            nbCandidates++;
+        }
+        return nbCandidates;
+    }
+
+    /**
+     * Trie les candidats par score croissant (tri par insertion stable, il y a au plus 9 candidats)
+     * @param candidates
+     * @param scores : le score de chaque candidat, trié en même temps
+     * @param nbCandidates
+     */
+    static void sortByScore(int[] candidates, int[] scores, int nbCandidates) {
+        for (int index = 1; index < nbCandidates; index++) {
+            int candidate = candidates[index];
+            int score = scores[index];
+            int insertIndex = index;
+            while (insertIndex > 0 && scores[insertIndex - 1] > score) {
+                candidates[insertIndex] = candidates[insertIndex - 1];
+                scores[insertIndex] = scores[insertIndex - 1];
+                insertIndex--;
+            }
+            candidates[insertIndex] = candidate;
+            scores[insertIndex] = score;
+        }
+    }
+}
+
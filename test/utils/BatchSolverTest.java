@@ -0,0 +1,172 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests du mode batch (BatchSolver) : lignes de résultat et statistiques cumulées d'un petit lot
+ */
+public class BatchSolverTest {
+
+    /**
+     * Crée un dossier de lot : un fichier multi-grilles (une grille à une solution, une grille avec doublons,
+     * une grille sans solution), un fichier sans grille et un fichier à plusieurs solutions
+     * @return Path : le dossier, supprimé à la fin de la JVM
+     * @throws IOException
+     */
+    private static Path createBatchFolder() throws IOException {
+        Path folder = Files.createTempDirectory("lot");
+        String multiGridContent = "# grilles du lot\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks(TestGrids.MAGAZINE_FILE)) + "\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks("data\\test_grille_06.txt")) + "\n"
+                + new String(Files.readAllBytes(Paths.get("data\\test_grille_09.txt")), StandardCharsets.UTF_8);
+        Files.write(folder.resolve("grilles.txt"), multiGridContent.getBytes(StandardCharsets.UTF_8));
+        Files.copy(Paths.get("data\\test_grille_01.txt"), folder.resolve("test_grille_01.txt"));
+        Files.copy(Paths.get("data\\test_grille_04.txt"), folder.resolve("test_grille_04.txt"));
+        for (Path filePath : List.of(folder, folder.resolve("grilles.txt"), folder.resolve("test_grille_01.txt"),
+                folder.resolve("test_grille_04.txt"))) {
+            filePath.toFile().deleteOnExit();
+        }
+        return folder;
+    }
+
+    /**
+     * Résout un lot et renvoie ses lignes de résultat, sans la durée de résolution de chaque grille
+     * @param arguments
+     * @param pathName
+     * @param batchStats : reçoit les statistiques cumulées du lot
+     * @return List<String>
+     */
+    private static List<String> solveBatch(Arguments arguments, String pathName, List<BatchStats> batchStats) {
+        StringWriter output = new StringWriter();
+        batchStats.add(new BatchSolver(arguments, new PrintWriter(output)).solvePath(pathName));
+        List<String> resultLines = new ArrayList<>();
+        for (String outputLine : output.toString().split("\\R")) {
+            if (outputLine.contains("#")) {
+                resultLines.add(outputLine.replaceFirst(", [0-9.,]+ ms", ""));
+            }
+        }
+        return resultLines;
+    }
+
+    /**
+     * Construit la ligne de résultat attendue d'une grille valide, résolue directement par le moteur des options
+     * @param gridName
+     * @param cellMasks
+     * @param arguments
+     * @return String
+     */
+    private static String solveDirectly(String gridName, short[] cellMasks, Arguments arguments) {
+        SolveResult result = new SolveResult(new PassResult(cellMasks), arguments.getNbMaxSolutions());
+        arguments.applyTo(result);
+        arguments.getEngine().createSolver().solve(result);
+        String resultLine = gridName + " : " + result.getNbSolutions() + " solution(s), "
+                + result.getNbRecursions() + " embranchement(s)";
+        if (result.getNbSolutions() > 0) {
+            resultLine += ", " + MaskGrid.toCompactString(result.getSolutionMasks(0));
+        }
+        return resultLine;
+    }
+
+    @Test
+    public void testSolvePath_resultLinesAndStats() throws IOException {
+        Path folder = createBatchFolder();
+        Arguments arguments = Arguments.parseArguments(new String[] { folder.toString(), "--batch" });
+        List<BatchStats> batchStats = new ArrayList<>();
+        List<String> resultLines = solveBatch(arguments, folder.toString(), batchStats);
+
+        String multiGridName = folder.resolve("grilles.txt").toString();
+        String multiSolutionName = folder.resolve("test_grille_04.txt").toString();
+        List<String> expectedLines = List.of(
+                solveDirectly(multiGridName + "#1", TestGrids.readMasks(TestGrids.MAGAZINE_FILE), arguments),
+                multiGridName + "#2 : grille invalide (doublons)",
+                solveDirectly(multiGridName + "#3", TestGrids.readMasks("data\\test_grille_09.txt"), arguments),
+                // test_grille_01.txt, sans grille, n'a pas de ligne de résultat
+                solveDirectly(multiSolutionName + "#1", TestGrids.readMasks("data\\test_grille_04.txt"), arguments));
+        Assert.assertEquals(expectedLines, resultLines);
+        Assert.assertEquals(multiGridName + "#1 : 1 solution(s), 0 embranchement(s), "
+                + MaskGrid.toCompactString(TestGrids.readMasks(TestGrids.MAGAZINE_SOLUTION_FILE)), resultLines.get(0));
+        Assert.assertTrue(resultLines.get(2).startsWith(multiGridName + "#3 : 0 solution(s)"));
+        Assert.assertTrue(resultLines.get(3).startsWith(multiSolutionName + "#1 : 2 solution(s)"));
+
+        BatchStats stats = batchStats.get(0);
+        Assert.assertEquals(5, stats.getNbGrids());
+        // la grille avec doublons et le fichier sans grille
+        Assert.assertEquals(2, stats.getNbInvalidGrids());
+        Assert.assertEquals(3, stats.getNbSolutions());
+        Assert.assertEquals(3, stats.getLatencyHistogram().getTotalCount());
+        Assert.assertEquals(3, stats.getRecursionsHistogram().getTotalCount());
+        Assert.assertEquals(stats.getRecursionsHistogram().getMaxValue(), stats.getNbRecursions());
+    }
+
+    @Test
+    public void testSolvePath_sameOutputWithThreads() throws IOException {
+        Path folder = createBatchFolder();
+        // assez de grilles pour dépasser la limite de grilles en cours du pool
+        Path corpusPath = folder.resolve("grilles_multiples.txt");
+        corpusPath.toFile().deleteOnExit();
+        String gridLines = MaskGrid.toCompactString(TestGrids.readMasks(TestGrids.INKALA_FILE)) + "\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks("data\\test_grille_04.txt")) + "\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks("data\\test_grille_06.txt")) + "\n";
+        int nbRepeats = 2 * 4 * BatchSolver.MAX_PENDING_GRIDS_PER_THREAD / 3 + 1;
+        Files.write(corpusPath, gridLines.repeat(nbRepeats).getBytes(StandardCharsets.UTF_8));
+
+        List<BatchStats> batchStats = new ArrayList<>();
+        List<String> sequentialLines = solveBatch(
+                Arguments.parseArguments(new String[] { folder.toString(), "--batch" }), folder.toString(), batchStats);
+        List<String> parallelLines = solveBatch(
+                Arguments.parseArguments(new String[] { folder.toString(), "--batch", "--threads=4" }), folder.toString(), batchStats);
+
+        Assert.assertEquals(4 + 3 * nbRepeats, sequentialLines.size());
+        Assert.assertEquals(sequentialLines, parallelLines);
+        BatchStats sequentialStats = batchStats.get(0);
+        BatchStats parallelStats = batchStats.get(1);
+        Assert.assertEquals(sequentialStats.getNbGrids(), parallelStats.getNbGrids());
+        Assert.assertEquals(sequentialStats.getNbInvalidGrids(), parallelStats.getNbInvalidGrids());
+        Assert.assertEquals(sequentialStats.getNbSolutions(), parallelStats.getNbSolutions());
+        Assert.assertEquals(sequentialStats.getNbRecursions(), parallelStats.getNbRecursions());
+        Assert.assertEquals(sequentialStats.getLatencyHistogram().getTotalCount(), parallelStats.getLatencyHistogram().getTotalCount());
+        ValueHistogram sequentialRecursions = sequentialStats.getRecursionsHistogram();
+        ValueHistogram parallelRecursions = parallelStats.getRecursionsHistogram();
+        for (double percentile : new double[] { 50, 90, 99, 100 }) {
+            Assert.assertEquals(sequentialRecursions.getValueAtPercentile(percentile), parallelRecursions.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    public void testSolvePath_corpusFile() throws IOException {
+        Path corpusPath = Files.createTempFile("recueil", ".txt");
+        corpusPath.toFile().deleteOnExit();
+        String corpusContent = "# une grille par ligne\r\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks(TestGrids.INKALA_FILE)) + "\r\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks("data\\test_grille_06.txt")).replace('.', '0') + "\n\n"
+                + MaskGrid.toCompactString(TestGrids.readMasks("data\\test_grille_04.txt")) + "\n";
+        Files.write(corpusPath, corpusContent.repeat(100).getBytes(StandardCharsets.UTF_8));
+
+        // mêmes lignes de résultat et mêmes statistiques que par GridFileParser, en séquentiel comme en parallèle
+        List<BatchStats> batchStats = new ArrayList<>();
+        List<String> expectedLines = solveBatch(
+                Arguments.parseArguments(new String[] { corpusPath.toString(), "--batch" }), corpusPath.toString(), batchStats);
+        Assert.assertEquals(300, expectedLines.size());
+        for (String threadsOption : new String[] { "--threads=1", "--threads=4" }) {
+            String[] args = new String[] { corpusPath.toString(), "--batch", "--corpus", threadsOption };
+            List<String> corpusLines = solveBatch(Arguments.parseArguments(args), corpusPath.toString(), batchStats);
+            Assert.assertEquals(expectedLines, corpusLines);
+            BatchStats corpusStats = batchStats.get(batchStats.size() - 1);
+            Assert.assertEquals(batchStats.get(0).getNbGrids(), corpusStats.getNbGrids());
+            Assert.assertEquals(batchStats.get(0).getNbInvalidGrids(), corpusStats.getNbInvalidGrids());
+            Assert.assertEquals(batchStats.get(0).getNbSolutions(), corpusStats.getNbSolutions());
+            Assert.assertEquals(batchStats.get(0).getNbRecursions(), corpusStats.getNbRecursions());
+        }
+    }
+}
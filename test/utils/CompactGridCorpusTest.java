@@ -0,0 +1,81 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Tests de CompactGridCorpus : mêmes grilles dans le même ordre en lecture séquentielle, parallèle ou par plages,
+ * quelle que soit la taille des fenêtres de projection
+ */
+public class CompactGridCorpusTest {
+
+    private static final String GRID = MaskGrid.toCompactString(TestGrids.readMasks(TestGrids.INKALA_FILE));
+    private static final int NB_GRIDS = 30000;
+
+    /**
+     * Écrit un recueil de NB_GRIDS grilles toutes différentes, avec des fins de ligne Windows et Unix,
+     * des commentaires, des lignes vides, des lignes trop longues et des grilles notées avec des '0'
+     * @return Path : le fichier temporaire, supprimé à la fin de la JVM
+     * @throws IOException
+     */
+    private static Path createCorpusFile() throws IOException {
+        Path corpusPath = Files.createTempFile("corpus", ".txt");
+        corpusPath.toFile().deleteOnExit();
+        try (Writer writer = Files.newBufferedWriter(corpusPath, StandardCharsets.US_ASCII)) {
+            for (int gridIndex = 0; gridIndex < NB_GRIDS; gridIndex++) {
+                if (gridIndex % 1000 == 0) {
+                    writer.write("# commentaire\n\n");
+                }
+                if (gridIndex % 777 == 0) {
+                    writer.write(GRID + GRID + "\n");
+                }
+                // la dernière cellule vide prend la valeur du numéro de grille, pour les distinguer
+                String grid = GRID.substring(0, 72) + String.format("%09d", gridIndex).replace('0', '.');
+                writer.write(gridIndex % 3 == 0 ? grid.replace('.', '0') : grid);
+                writer.write(gridIndex % 2 == 0 ? "\r\n" : "\n");
+            }
+        }
+        return corpusPath;
+    }
+
+    @Test
+    public void testGrids_sameOrderWhateverTheReading() throws IOException {
+        Path corpusPath = createCorpusFile();
+        List<String> expectedGrids;
+        try (CompactGridCorpus corpus = new CompactGridCorpus(corpusPath.toString())) {
+            expectedGrids = corpus.grids(false).map(MaskGrid::toCompactString).collect(Collectors.toList());
+            // 30 commentaires et 39 lignes trop longues, les lignes vides ne sont pas comptées
+            Assert.assertEquals(30 + 39, corpus.getNbSkippedLines());
+        }
+        Assert.assertEquals(NB_GRIDS, expectedGrids.size());
+        Assert.assertEquals(NB_GRIDS, expectedGrids.stream().distinct().count());
+
+        for (int mappingSize : new int[] { 1000, 65536, CompactGridCorpus.MAPPING_SIZE }) {
+            try (CompactGridCorpus corpus = new CompactGridCorpus(corpusPath.toString(), mappingSize)) {
+                Assert.assertEquals(expectedGrids,
+                        corpus.grids(true).map(MaskGrid::toCompactString).collect(Collectors.toList()));
+
+                long[] boundaries = corpus.getRangeBoundaries(7);
+                Assert.assertEquals(0, boundaries[0]);
+                Assert.assertEquals(corpus.getFileSize(), boundaries[7]);
+                List<String> rangeGrids = new ArrayList<>();
+                for (int rangeIndex = 0; rangeIndex < 7; rangeIndex++) {
+                    StreamSupport.stream(corpus.spliterator(boundaries[rangeIndex], boundaries[rangeIndex + 1]), false)
+                            .map(MaskGrid::toCompactString)
+                            .forEach(rangeGrids::add);
+                }
+                Assert.assertEquals(expectedGrids, rangeGrids);
+            }
+        }
+    }
+}
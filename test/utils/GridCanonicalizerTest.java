@@ -0,0 +1,147 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.util.Random;
+
+/**
+ * Tests de la forme canonique des grilles (GridCanonicalizer, GridTransform) et du cache de solutions (CachingSolver)
+ */
+public class GridCanonicalizerTest {
+
+    /**
+     * Applique à une grille une transformation aléatoire qui conserve les règles du sudoku :
+     * renommage des chiffres, permutations des bandes, des piles, des lignes et des colonnes, transposition
+     * @param cellMasks
+     * @param random
+     * @return short[] : une nouvelle grille
+     */
+    private static short[] randomTransform(short[] cellMasks, Random random) {
+        int[] digitMap = randomPermutation(9, random);
+        int[] rowOrder = randomLineOrder(random);
+        int[] columnOrder = randomLineOrder(random);
+        boolean isTransposed = random.nextBoolean();
+        short[] transformedMasks = new short[MaskGrid.NB_CELLS];
+        for (int row = 0; row < 9; row++) {
+            for (int column = 0; column < 9; column++) {
+                int cellIndex = isTransposed ? columnOrder[column] * 9 + rowOrder[row] : rowOrder[row] * 9 + columnOrder[column];
+                int mask = cellMasks[cellIndex];
+                transformedMasks[row * 9 + column] = MaskGrid.isSingle(mask)
+                        ? MaskGrid.digitToMask(digitMap[MaskGrid.maskToDigit(mask) - 1] + 1) : (short) mask;
+            }
+        }
+        return transformedMasks;
+    }
+
+    /**
+     * Tire un ordre des 9 lignes (ou colonnes) qui garde chaque bande (ou pile) d'un seul tenant
+     * @param random
+     * @return int[]
+     */
+    private static int[] randomLineOrder(Random random) {
+        int[] bandOrder = randomPermutation(3, random);
+        int[] lineOrder = new int[9];
+        for (int band = 0; band < 3; band++) {
+            int[] lineInBandOrder = randomPermutation(3, random);
+            for (int line = 0; line < 3; line++) {
+                lineOrder[3 * band + line] = 3 * bandOrder[band] + lineInBandOrder[line];
+            }
+        }
+        return lineOrder;
+    }
+
+    /**
+     * Tire une permutation de 0..size-1
+     * @param size
+     * @param random
+     * @return int[]
+     */
+    private static int[] randomPermutation(int size, Random random) {
+        int[] permutation = new int[size];
+        for (int index = 0; index < size; index++) {
+            int swapIndex = random.nextInt(index + 1);
+            permutation[index] = permutation[swapIndex];
+            permutation[swapIndex] = index;
+        }
+        return permutation;
+    }
+
+    @Test
+    public void testCanonicalize_sameFormForTransformedGrids() {
+        GridCanonicalizer canonicalizer = new GridCanonicalizer();
+        short[] cellMasks = TestGrids.readMasks(TestGrids.INKALA_FILE);
+        GridTransform transform = canonicalizer.canonicalize(cellMasks);
+        Assert.assertNotNull(transform);
+        String canonicalGrid = MaskGrid.toCompactString(transform.getCanonicalGrid());
+        // la transformation et son inverse
+        Assert.assertArrayEquals(cellMasks, transform.fromCanonical(transform.getCanonicalGrid()));
+        Assert.assertArrayEquals(transform.getCanonicalGrid(), transform.toCanonical(cellMasks));
+
+        Random random = new Random(25);
+        for (int iteration = 0; iteration < 50; iteration++) {
+            GridTransform otherTransform = canonicalizer.canonicalize(randomTransform(cellMasks, random));
+            Assert.assertEquals(canonicalGrid, MaskGrid.toCompactString(otherTransform.getCanonicalGrid()));
+            Assert.assertEquals(transform.getCanonicalKey(), otherTransform.getCanonicalKey());
+        }
+    }
+
+    @Test
+    public void testCanonicalize_bypassedGrids() {
+        GridCanonicalizer canonicalizer = new GridCanonicalizer();
+        // une grille vide est bien trop symétrique
+        Assert.assertNull(canonicalizer.canonicalize(TestGrids.readMasks("data\\test_grille_vide.txt")));
+        // une cellule partiellement contrainte
+        short[] cellMasks = TestGrids.readMasks(TestGrids.INKALA_FILE);
+        cellMasks[1] = (short) (MaskGrid.digitToMask(1) | MaskGrid.digitToMask(2));
+        Assert.assertNull(canonicalizer.canonicalize(cellMasks));
+    }
+
+    @Test
+    public void testCachingSolver_hitMapsSolutionBack() {
+        SolutionCache cache = new SolutionCache(10);
+        Solver solver = new CachingSolver(Arguments.Engine.RECURSIVE.createSolver(), cache);
+        short[] cellMasks = TestGrids.readMasks(TestGrids.MAGAZINE_FILE);
+        SolveResult firstResult = new SolveResult(new PassResult(cellMasks), 2);
+        solver.solve(firstResult);
+        Assert.assertEquals(1, firstResult.getNbSolutions());
+        Assert.assertArrayEquals(TestGrids.readMasks(TestGrids.MAGAZINE_SOLUTION_FILE), firstResult.getSolutionMasks(0));
+
+        short[] transformedGrid = randomTransform(cellMasks, new Random(7));
+        SolveResult secondResult = new SolveResult(new PassResult(transformedGrid), 2);
+        solver.solve(secondResult);
+        Assert.assertEquals(1, cache.getNbHits());
+        Assert.assertEquals(1, secondResult.getNbSolutions());
+        Assert.assertEquals(0, secondResult.getNbRecursions());
+        // la solution venue du cache est celle que donne une vraie recherche
+        SolveResult expectedResult = new SolveResult(new PassResult(transformedGrid), 2);
+        Arguments.Engine.RECURSIVE.createSolver().solve(expectedResult);
+        Assert.assertArrayEquals(expectedResult.getSolutionMasks(0), secondResult.getSolutionMasks(0));
+    }
+
+    @Test
+    public void testCachingSolver_countOnlyHit() {
+        // en mode comptage, le nb de solutions en cache est ajouté d'un coup, dans la limite du quota
+        SolutionCache cache = new SolutionCache(10);
+        Solver solver = new CachingSolver(Arguments.Engine.RECURSIVE.createSolver(), cache);
+        short[] cellMasks = TestGrids.readMasks("data\\test_grille_04.txt");
+        SolveResult firstResult = new SolveResult(new PassResult(cellMasks), SolveResult.ALL_SOLUTIONS);
+        firstResult.setCountOnly(true);
+        solver.solve(firstResult);
+        Assert.assertEquals(2032, firstResult.getNbSolutions());
+
+        short[] transformedGrid = randomTransform(cellMasks, new Random(3));
+        SolveResult allResult = new SolveResult(new PassResult(transformedGrid), SolveResult.ALL_SOLUTIONS);
+        allResult.setCountOnly(true);
+        solver.solve(allResult);
+        Assert.assertEquals(2032, allResult.getNbSolutions());
+        Assert.assertEquals(0, allResult.getNbRecursions());
+
+        SolveResult quotaResult = new SolveResult(new PassResult(transformedGrid), 100);
+        quotaResult.setCountOnly(true);
+        solver.solve(quotaResult);
+        Assert.assertEquals(100, quotaResult.getNbSolutions());
+        Assert.assertTrue(quotaResult.isFull());
+        Assert.assertEquals(2, cache.getNbHits());
+    }
+}
@@ -0,0 +1,151 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+/**
+ * Tests de la lecture des fichiers grilles octet par octet (GridFileParser) : mêmes grilles que l'ancienne lecture
+ * de Grid.parseFileGrid par Scanner et expression régulière, quelles que soient les fins de ligne
+ */
+public class GridFileParserTest {
+
+    // les 9 lignes de la grille d'Arto Inkala
+    private static final String[] GRID_LINES = {
+        "8........", "..36.....", ".7..9.2..", ".5...7...", "....457..", "...1...3.", "..1....68", "..85...1.", ".9....4.."
+    };
+
+    /**
+     * Écrit un fichier temporaire, supprimé à la fin de la JVM
+     * @param content
+     * @return String : le nom du fichier
+     * @throws IOException
+     */
+    private static String createTempFile(String content) throws IOException {
+        Path filePath = Files.createTempFile("grille", ".txt");
+        filePath.toFile().deleteOnExit();
+        Files.write(filePath, content.getBytes(StandardCharsets.UTF_8));
+        return filePath.toString();
+    }
+
+    /**
+     * Lit un fichier d'une seule grille comme le faisait Grid.parseFileGrid avant GridFileParser :
+     * Scanner ligne par ligne, lignes débarrassées de leurs blancs puis filtrées par l'expression "^[1-9.]{9}$"
+     * @param fileName
+     * @return Optional<short[]> : la grille de masques, ou empty() si le fichier n'a pas exactement 9 lignes valides
+     * @throws IOException
+     */
+    private static Optional<short[]> parseWithScanner(String fileName) throws IOException {
+        Pattern fileLinePattern = Pattern.compile("^[1-9.]{9}$");
+        List<String> gridLines = new ArrayList<>();
+        try (Scanner fileScanner = new Scanner(new File(fileName), StandardCharsets.UTF_8)) {
+            while (fileScanner.hasNextLine()) {
+                String fileLine = fileScanner.nextLine().trim();
+                if (fileLinePattern.matcher(fileLine).matches()) {
+                    gridLines.add(fileLine);
+                }
+            }
+        }
+        if (gridLines.size() != 9) {
+            return Optional.empty();
+        }
+        short[] cellMasks = new short[MaskGrid.NB_CELLS];
+        for (int cellIndex = 0; cellIndex < MaskGrid.NB_CELLS; cellIndex++) {
+            char cellChar = gridLines.get(cellIndex / 9).charAt(cellIndex % 9);
+            cellMasks[cellIndex] = cellChar == '.' ? MaskGrid.ALL_CANDIDATES : MaskGrid.digitToMask(cellChar - '0');
+        }
+        return Optional.of(cellMasks);
+    }
+
+    /**
+     * Vérifie que GridFileParser et l'ancienne lecture donnent le même résultat pour un contenu de fichier
+     * @param content
+     * @param isValid : true si le contenu doit donner une grille
+     * @throws IOException
+     */
+    private static void assertSameAsScanner(String content, boolean isValid) throws IOException {
+        String fileName = createTempFile(content);
+        Optional<short[]> expected = parseWithScanner(fileName);
+        Optional<short[]> parsed = new GridFileParser().parseFileGrid(fileName);
+        Assert.assertEquals(isValid, expected.isPresent());
+        Assert.assertEquals(expected.isPresent(), parsed.isPresent());
+        if (expected.isPresent()) {
+            Assert.assertArrayEquals(expected.get(), parsed.get());
+        }
+    }
+
+    @Test
+    public void testParseFileGrid_lineEndings() throws IOException {
+        String[] lineEndings = { "\n", "\r\n", "\r" };
+        for (String lineEnding : lineEndings) {
+            String content = "# commentaire accentué" + lineEnding + String.join(lineEnding, GRID_LINES);
+            assertSameAsScanner(content, true);
+            assertSameAsScanner(content + lineEnding, true);
+        }
+        // des fins de ligne mélangées, et des lignes vides
+        assertSameAsScanner(String.join("\r\n", GRID_LINES).replaceFirst("\r\n", "\r\r\n\n"), true);
+    }
+
+    @Test
+    public void testParseFileGrid_invalidLines() throws IOException {
+        List<String> fileLines = new ArrayList<>(List.of(GRID_LINES));
+        // des blancs autour des lignes valides
+        fileLines.set(0, "  \t" + GRID_LINES[0] + " ");
+        // des lignes trop longues, trop courtes, et des caractères interdits, qui sont ignorées
+        fileLines.add(2, GRID_LINES[2] + "1");
+        fileLines.add(4, GRID_LINES[3].substring(1));
+        fileLines.add(5, "..0......");
+        fileLines.add(6, "..x......");
+        fileLines.add(7, "..é......");
+        fileLines.add(8, GRID_LINES[0].repeat(9));
+        assertSameAsScanner(String.join("\r\n", fileLines), true);
+
+        // plus de 9 lignes valides, ou moins
+        assertSameAsScanner(String.join("\n", GRID_LINES) + "\n" + GRID_LINES[0], false);
+        assertSameAsScanner(String.join("\n", List.of(GRID_LINES).subList(0, 8)), false);
+    }
+
+    @Test
+    public void testParseFileGrid_lineLongerThanBuffer() throws IOException {
+        // une ligne plus longue que le tampon, qui se termine par une ligne de grille apparente
+        String longLine = ".".repeat(GridFileParser.BUFFER_SIZE) + GRID_LINES[0];
+        assertSameAsScanner(longLine + "\n" + String.join("\n", GRID_LINES), true);
+    }
+
+    @Test
+    public void testParseFileGrids_severalGrids() throws IOException {
+        short[] expectedMasks = parseWithScanner(createTempFile(String.join("\n", GRID_LINES))).get();
+        String compactGrid = String.join("", GRID_LINES);
+        String content = String.join("\r\n", GRID_LINES) + "\r\n"
+                + "# une grille par ligne, cellules vides notées '.' ou '0'\r"
+                + compactGrid + "\r"
+                + compactGrid.replace('.', '0') + "\n"
+                + compactGrid.replaceFirst("8", "x") + "\n"
+                + String.join("\n", GRID_LINES);
+        List<short[]> grids = new ArrayList<>();
+        List<Integer> gridNumbers = new ArrayList<>();
+        boolean isValidFile = new GridFileParser().parseFileGrids(createTempFile(content), (cellMasks, gridNumber) -> {
+            grids.add(cellMasks);
+            gridNumbers.add(gridNumber);
+        });
+
+        Assert.assertTrue(isValidFile);
+        Assert.assertEquals(List.of(1, 2, 3, 4), gridNumbers);
+        for (short[] cellMasks : grids) {
+            Assert.assertArrayEquals(expectedMasks, cellMasks);
+        }
+        // une grille incomplète en fin de fichier
+        Assert.assertFalse(new GridFileParser().parseFileGrids(createTempFile(content + "\n" + GRID_LINES[0]),
+                (cellMasks, gridNumber) -> { }));
+    }
+}
@@ -4,10 +4,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.Assert;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
@@ -242,6 +245,186 @@ public class GridTest {
         Assert.assertTrue(Arrays.deepEquals(referenceCellArray.get(), testResult.getSolution(0)));
     }
 
+    @Test
+    void testSolve_techniques() {
+        // les techniques d'inférence ne doivent changer que le travail effectué, jamais la solution
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_10.txt");
+        Optional<int[][][]> referenceCellArray = Grid.parseFileGrid("data\\test_grille_10_soluce.txt");
+        Technique[][] pipelines = {
+            {},
+            { new HiddenSinglesTechnique(), new LockedCandidatesTechnique() },
+            { new NakedSubsetsTechnique(2), new HiddenSubsetsTechnique(2), new NakedSubsetsTechnique(3),
+                new HiddenSubsetsTechnique(3) },
+            { new FishTechnique(2), new FishTechnique(3), new SimpleColoringTechnique() }
+        };
+
+        for (Technique[] pipeline : pipelines) {
+            SolveResult testResult = new SolveResult(testCellArray.get(), 2);
+            testResult.setTechniques(pipeline);
+            Grid.recurseSolve(testResult);
+
+            Assert.assertTrue(testResult.getNbSolutions() == 1);
+            Assert.assertTrue(Arrays.deepEquals(referenceCellArray.get(), testResult.getSolution(0)));
+        }
+    }
+
+    @Test
+    void testSolve_valueOrderings() {
+        // l'ordre des candidats ne change que l'ordre de la recherche, jamais les solutions trouvées
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_10.txt");
+        Optional<int[][][]> referenceCellArray = Grid.parseFileGrid("data\\test_grille_10_soluce.txt");
+        Optional<int[][][]> multipleCellArray = Grid.parseFileGrid("data\\test_grille_04.txt");
+        SolveResult referenceResult = new SolveResult(multipleCellArray.get(), SolveResult.ALL_SOLUTIONS);
+        referenceResult.setCountOnly(true);
+        Grid.recurseSolve(referenceResult);
+        Assert.assertTrue(referenceResult.getNbSolutions() == 2032);
+        ValueOrdering[] valueOrderings = {
+            new NaturalValueOrdering(), new LeastConstrainingValueOrdering(), new DigitFrequencyValueOrdering()
+        };
+        Solver[] solvers = { Grid::recurseSolve, new TrailSolver() };
+
+        for (ValueOrdering valueOrdering : valueOrderings) {
+            for (Solver solver : solvers) {
+                SolveResult testResult = new SolveResult(testCellArray.get(), 2);
+                testResult.setValueOrdering(valueOrdering);
+                solver.solve(testResult);
+                Assert.assertTrue(testResult.getNbSolutions() == 1);
+                Assert.assertTrue(Arrays.deepEquals(referenceCellArray.get(), testResult.getSolution(0)));
+
+                SolveResult countResult = new SolveResult(multipleCellArray.get(), SolveResult.ALL_SOLUTIONS);
+                countResult.setValueOrdering(valueOrdering);
+                countResult.setCountOnly(true);
+                solver.solve(countResult);
+                Assert.assertTrue(countResult.getNbSolutions() == referenceResult.getNbSolutions());
+            }
+        }
+    }
+
+    @Test
+    void testSolve_dancingLinks() {
+        // le moteur DLX doit trouver la même unique solution que Grid.recurseSolve
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_10.txt");
+        SolveResult testResult = new SolveResult(testCellArray.get(), 2);
+        new DancingLinksSolver().solve(testResult);
+
+        Assert.assertTrue(testResult.getNbSolutions() == 1);
+        Optional<int[][][]> referenceCellArray = Grid.parseFileGrid("data\\test_grille_10_soluce.txt");
+        Assert.assertTrue(Arrays.deepEquals(referenceCellArray.get(), testResult.getSolution(0)));
+
+        // et autant de solutions sur une grille qui en a beaucoup
+        testCellArray = Grid.parseFileGrid("data\\test_grille_04.txt");
+        SolveResult recursiveResult = new SolveResult(testCellArray.get(), 5000);
+        Grid.recurseSolve(recursiveResult);
+        SolveResult dancingLinksResult = new SolveResult(testCellArray.get(), 5000);
+        new DancingLinksSolver().solve(dancingLinksResult);
+        Assert.assertTrue(recursiveResult.getNbSolutions() == dancingLinksResult.getNbSolutions());
+    }
+
+    @Test
+    void testSolve_countOnly() {
+        // en mode comptage, chaque moteur trouve autant de solutions qu'en mode normal, sans en conserver aucune
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_04.txt");
+        SolveResult referenceResult = new SolveResult(testCellArray.get(), SolveResult.ALL_SOLUTIONS);
+        Grid.recurseSolve(referenceResult);
+
+        Solver[] solvers = { Grid::recurseSolve, new TrailSolver(), new DancingLinksSolver() };
+        for (Solver solver : solvers) {
+            SolveResult testResult = new SolveResult(testCellArray.get(), SolveResult.ALL_SOLUTIONS);
+            testResult.setCountOnly(true);
+            solver.solve(testResult);
+
+            Assert.assertTrue(testResult.getNbSolutions() == referenceResult.getNbSolutions());
+            Assert.assertNull(testResult.getSolutionMasks(0));
+        }
+    }
+
+    @Test
+    void testSolve_solutionSink() {
+        // chaque solution est transmise au destinataire, qui peut arrêter la recherche en la refusant
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_04.txt");
+        List<short[]> receivedSolutions = new ArrayList<>();
+        SolveResult testResult = new SolveResult(testCellArray.get(), 1000);
+        testResult.setSolutionSink(cellMasks -> {
+            receivedSolutions.add(MaskGrid.copy(cellMasks));
+            return receivedSolutions.size() < 3;
+        });
+        new TrailSolver().solve(testResult);
+
+        Assert.assertTrue(testResult.getNbSolutions() == 3);
+        Assert.assertTrue(receivedSolutions.size() == 3);
+        Assert.assertNull(testResult.getSolutionMasks(0));
+        for (short[] solution : receivedSolutions) {
+            Assert.assertFalse(Grid.hasDuplicates(MaskGrid.toCellArray(solution)));
+        }
+    }
+
+    @Test
+    void testSolve_solutionStream() {
+        // le stream paresseux donne les solutions dans le même ordre que TrailSolver, en séquentiel comme en parallèle
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_04.txt");
+        SolveResult referenceResult = new SolveResult(testCellArray.get(), SolveResult.ALL_SOLUTIONS);
+        new TrailSolver().solve(referenceResult);
+        int[][][][] referenceSolutions = referenceResult.getSolutionsInstance();
+
+        List<int[][][]> firstSolutions = Grid.solutionStream(testCellArray.get()).limit(5).collect(Collectors.toList());
+        Assert.assertTrue(firstSolutions.size() == 5);
+        for (int solutionIndex = 0; solutionIndex < 5; solutionIndex++) {
+            Assert.assertTrue(Arrays.deepEquals(referenceSolutions[solutionIndex], firstSolutions.get(solutionIndex)));
+        }
+
+        List<int[][][]> allSolutions = Grid.solutionStream(testCellArray.get()).parallel().collect(Collectors.toList());
+        Assert.assertTrue(allSolutions.size() == referenceSolutions.length);
+        for (int solutionIndex = 0; solutionIndex < referenceSolutions.length; solutionIndex++) {
+            Assert.assertTrue(Arrays.deepEquals(referenceSolutions[solutionIndex], allSolutions.get(solutionIndex)));
+        }
+    }
+
+    @Test
+    void testSolve_parallelSolver() {
+        // la répartition de l'arbre entre les threads ne change ni le nb ni l'ordre des solutions
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_04.txt");
+        SolveResult referenceResult = new SolveResult(testCellArray.get(), SolveResult.ALL_SOLUTIONS);
+        new TrailSolver().solve(referenceResult);
+        SolveResult parallelResult = new SolveResult(testCellArray.get(), SolveResult.ALL_SOLUTIONS);
+        new ParallelSolver(Arguments.Engine.TRAIL, 4).solve(parallelResult);
+
+        Assert.assertTrue(parallelResult.getNbSolutions() == referenceResult.getNbSolutions());
+        Assert.assertTrue(Arrays.deepEquals(referenceResult.getSolutionsInstance(), parallelResult.getSolutionsInstance()));
+    }
+
+    @Test
+    void testSolve_parallelSolverQuota() {
+        // le quota partagé entre les threads est respecté exactement, par des solutions valides et toutes différentes
+        int nbMaxSolutions = 100;
+        Optional<int[][][]> testCellArray = Grid.parseFileGrid("data\\test_grille_vide.txt");
+        SolveResult testResult = new SolveResult(testCellArray.get(), nbMaxSolutions);
+        new ParallelSolver(Arguments.Engine.TRAIL, 4).solve(testResult);
+
+        Assert.assertTrue(testResult.getNbSolutions() == nbMaxSolutions);
+        int[][][][] solutions = testResult.getSolutionsInstance();
+        Assert.assertTrue(solutions.length == nbMaxSolutions);
+        Set<String> distinctSolutions = new HashSet<>();
+        for (int[][][] solution : solutions) {
+            Assert.assertFalse(Grid.hasDuplicates(solution));
+            Assert.assertTrue(distinctSolutions.add(Arrays.deepToString(solution)));
+        }
+    }
+
+    @Test
+    void testUniquenessChecker() {
+        // une même instance vérifie successivement des grilles à 1, plusieurs et 0 solutions
+        UniquenessChecker checker = new UniquenessChecker();
+        Assert.assertTrue(checker.check(Grid.parseFileGrid("data\\test_grille_10.txt").get())
+                == UniquenessChecker.Uniqueness.UNIQUE);
+        Assert.assertTrue(checker.check(Grid.parseFileGrid("data\\test_grille_04.txt").get())
+                == UniquenessChecker.Uniqueness.MULTIPLE);
+        Assert.assertTrue(checker.check(Grid.parseFileGrid("data\\test_grille_05.txt").get())
+                == UniquenessChecker.Uniqueness.NO_SOLUTION);
+        Assert.assertTrue(checker.check(Grid.parseFileGrid("data\\grille_inkala.txt").get())
+                == UniquenessChecker.Uniqueness.UNIQUE);
+        Assert.assertTrue(checker.getNbRecursions() > 0);
+    }
+
     /**
      * Ce test vérifie que la fonction recurseSolve gère correctement les grilles a solutions multiples
      * <p>
@@ -0,0 +1,72 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests du rendu des grilles en octets (GridWriter) : mêmes octets que les rendus par String qu'il remplace
+ */
+public class GridWriterTest {
+
+    @Test
+    public void testWriteGrid_sameBytesAsStrings() throws IOException {
+        short[] gridMasks = TestGrids.readMasks(TestGrids.MAGAZINE_FILE);
+        short[] solutionMasks = TestGrids.readMasks(TestGrids.MAGAZINE_SOLUTION_FILE);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GridWriter writer = new GridWriter(Channels.newChannel(output), true, StandardCharsets.US_ASCII)) {
+            writer.writeGrid(gridMasks, GridWriter.Layout.BOXED);
+            writer.writeGrid(solutionMasks, GridWriter.Layout.COMPACT);
+            writer.writeText("Solution numero ");
+            writer.writeNumber(1234567890123L);
+        }
+
+        String expected = Grid.cellArrayToString(MaskGrid.toCellArray(gridMasks))
+                + MaskGrid.toCompactString(solutionMasks) + "\n"
+                + "Solution numero 1234567890123";
+        Assert.assertEquals(expected, output.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testWriteGrid_beyondBufferSize() throws IOException {
+        short[] solutionMasks = TestGrids.readMasks(TestGrids.MAGAZINE_SOLUTION_FILE);
+        String boxedSolution = Grid.cellArrayToString(MaskGrid.toCellArray(solutionMasks));
+        String compactSolution = MaskGrid.toCompactString(solutionMasks) + "\n";
+        // assez de grilles pour vider plusieurs fois le tampon, à des positions qui ne tombent pas entre deux grilles
+        int nbGrids = 2 * GridWriter.BUFFER_SIZE / (boxedSolution.length() + compactSolution.length()) + 1;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GridWriter writer = new GridWriter(Channels.newChannel(output), true, StandardCharsets.US_ASCII)) {
+            for (int gridIndex = 0; gridIndex < nbGrids; gridIndex++) {
+                writer.writeGrid(solutionMasks, GridWriter.Layout.BOXED);
+                writer.writeGrid(solutionMasks, GridWriter.Layout.COMPACT);
+            }
+        }
+
+        Assert.assertTrue(output.size() > 2 * GridWriter.BUFFER_SIZE);
+        Assert.assertEquals((boxedSolution + compactSolution).repeat(nbGrids), output.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testToStandardOutput_redirectedOutput() throws IOException {
+        short[] solutionMasks = TestGrids.readMasks(TestGrids.MAGAZINE_SOLUTION_FILE);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream standardOutput = System.out;
+        System.setOut(new PrintStream(output, false, StandardCharsets.US_ASCII));
+        try (GridWriter writer = GridWriter.toStandardOutput()) {
+            System.out.print("avant ");
+            writer.writeText("Solution ");
+            writer.writeGrid(solutionMasks, GridWriter.Layout.COMPACT);
+            writer.flush();
+            // rien n'est gardé dans le tampon de System.out
+            Assert.assertEquals("avant Solution " + MaskGrid.toCompactString(solutionMasks) + "\n",
+                    output.toString(StandardCharsets.US_ASCII));
+        } finally {
+            System.setOut(standardOutput);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Tests du format binaire compact : écriture puis relecture en accès direct (PackedGridWriter, PackedGridReader)
+ */
+public class PackedGridTest {
+
+    private static final short[] GRID = TestGrids.readMasks(TestGrids.MAGAZINE_FILE);
+    private static final short[] SOLUTION = TestGrids.readMasks(TestGrids.MAGAZINE_SOLUTION_FILE);
+
+    /**
+     * Crée un fichier temporaire, supprimé à la fin de la JVM
+     * @return String : le nom du fichier
+     * @throws IOException
+     */
+    private static String createTempFileName() throws IOException {
+        Path packPath = Files.createTempFile("archive", ".sdkp");
+        packPath.toFile().deleteOnExit();
+        return packPath.toString();
+    }
+
+    @Test
+    public void testWriteRead_withSolutions() throws IOException {
+        String fileName = createTempFileName();
+        try (PackedGridWriter writer = new PackedGridWriter(fileName, true)) {
+            Assert.assertTrue(writer.write(GRID, SOLUTION));
+            // une grille sans solution
+            Assert.assertTrue(writer.write(SOLUTION, (short[]) null));
+        }
+        Assert.assertEquals(PackedGridFormat.HEADER_SIZE + 2 * 2 * 41, Files.size(Path.of(fileName)));
+        Assert.assertTrue(PackedGridFormat.isPackedFile(fileName));
+
+        try (PackedGridReader reader = new PackedGridReader(fileName)) {
+            Assert.assertTrue(reader.hasSolutions());
+            Assert.assertEquals(2, reader.getNbRecords());
+            // accès direct, dans le désordre
+            Assert.assertArrayEquals(SOLUTION, reader.readGrid(1));
+            Assert.assertNull(reader.readSolution(1));
+            // les cellules vides reçoivent tous les candidats, comme avec Grid.parseFileGrid
+            Assert.assertArrayEquals(GRID, reader.readGrid(0));
+            Assert.assertArrayEquals(SOLUTION, reader.readSolution(0));
+        }
+    }
+
+    @Test
+    public void testRead_gridsOnlyAndTruncatedRecord() throws IOException {
+        String fileName = createTempFileName();
+        try (PackedGridWriter writer = new PackedGridWriter(fileName, false)) {
+            for (int gridIndex = 0; gridIndex < 1000; gridIndex++) {
+                writer.write(GRID, SOLUTION);
+            }
+        }
+        // une écriture interrompue au milieu d'un enregistrement
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+            file.setLength(file.length() - 20);
+        }
+
+        try (PackedGridReader reader = new PackedGridReader(fileName)) {
+            Assert.assertFalse(reader.hasSolutions());
+            Assert.assertEquals(999, reader.getNbRecords());
+            Assert.assertNull(reader.readSolution(0));
+            Assert.assertEquals(999, reader.grids(true).filter(cellMasks -> Arrays.equals(GRID, cellMasks)).count());
+        }
+    }
+
+    @Test
+    public void testIsPackedFile_textGrid() {
+        Assert.assertFalse(PackedGridFormat.isPackedFile("data\\grille_inkala.txt"));
+        Assert.assertFalse(PackedGridFormat.isPackedFile("fichier_inexistant.sdkp"));
+    }
+}
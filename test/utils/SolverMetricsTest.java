@@ -0,0 +1,118 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests des métriques JMX (SolverMetrics, cumulées par InstrumentedSolver) : compteurs et histogramme des latences
+ * d'un lot connu, enregistré depuis plusieurs threads
+ */
+public class SolverMetricsTest {
+
+    private static final String[] GRID_FILES = {
+        TestGrids.INKALA_FILE, TestGrids.MAGAZINE_FILE, "data\\test_grille_04.txt", "data\\test_grille_09.txt"
+    };
+
+    @Test
+    public void testRecord_sameAsSingleHistogram() throws InterruptedException {
+        List<SolveResult> solveResults = new ArrayList<>();
+        for (String gridFile : GRID_FILES) {
+            SolveResult solveResult = new SolveResult(new PassResult(TestGrids.readMasks(gridFile)), 2);
+            Grid.recurseSolve(solveResult);
+            solveResults.add(solveResult);
+        }
+        SolverMetrics metrics = SolverMetrics.getInstance();
+        metrics.reset();
+
+        // chaque thread enregistre toutes les grilles, avec des latences qui lui sont propres
+        int nbThreads = 4;
+        int nbSolvesPerGrid = 250;
+        Thread[] threads = new Thread[nbThreads];
+        for (int threadIndex = 0; threadIndex < nbThreads; threadIndex++) {
+            int firstLatency = threadIndex;
+            threads[threadIndex] = new Thread(() -> {
+                for (int solveIndex = 0; solveIndex < nbSolvesPerGrid; solveIndex++) {
+                    for (int gridIndex = 0; gridIndex < solveResults.size(); gridIndex++) {
+                        metrics.record(solveResults.get(gridIndex), (firstLatency + nbThreads * solveIndex) * 1000L + gridIndex);
+                    }
+                }
+            });
+            threads[threadIndex].start();
+        }
+        // la lecture pendant l'enregistrement ne perd aucune valeur
+        metrics.getLatencyP50MicroSeconds();
+        ValueHistogram expectedHistogram = new ValueHistogram();
+        for (int solveIndex = 0; solveIndex < nbThreads * nbSolvesPerGrid; solveIndex++) {
+            for (int gridIndex = 0; gridIndex < solveResults.size(); gridIndex++) {
+                expectedHistogram.recordValue(solveIndex * 1000L + gridIndex);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long nbSolves = (long) nbThreads * nbSolvesPerGrid;
+        Assert.assertEquals(nbSolves * GRID_FILES.length, metrics.getNbSolves());
+        long nbSolutions = 0;
+        long nbRecursions = 0;
+        for (SolveResult solveResult : solveResults) {
+            nbSolutions += solveResult.getNbSolutions();
+            nbRecursions += solveResult.getNbRecursions();
+        }
+        Assert.assertEquals(nbSolves * nbSolutions, metrics.getNbSolutions());
+        Assert.assertEquals(nbSolves * nbRecursions, metrics.getNbRecursions());
+        Assert.assertEquals(expectedHistogram.getMaxValue(), metrics.getMaxNanoSeconds());
+
+        // les histogrammes des threads, terminés, donnent les mêmes percentiles qu'un histogramme unique
+        ValueHistogram latencyHistogram = metrics.getLatencyHistogram();
+        Assert.assertEquals(expectedHistogram.getTotalCount(), latencyHistogram.getTotalCount());
+        Assert.assertEquals(expectedHistogram.getMaxValue(), latencyHistogram.getMaxValue());
+        Assert.assertEquals(expectedHistogram.getValueAtPercentile(50) / 1000.0, metrics.getLatencyP50MicroSeconds(), 0);
+        Assert.assertEquals(expectedHistogram.getValueAtPercentile(90) / 1000.0, metrics.getLatencyP90MicroSeconds(), 0);
+        Assert.assertEquals(expectedHistogram.getValueAtPercentile(99) / 1000.0, metrics.getLatencyP99MicroSeconds(), 0);
+        Assert.assertEquals(expectedHistogram.getValueAtPercentile(99.9) / 1000.0, metrics.getLatencyP999MicroSeconds(), 0);
+        Assert.assertEquals(expectedHistogram.getMean() / 1000.0, metrics.getMeanMicroSeconds(), 1e-6);
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getNbSolves());
+        Assert.assertEquals(0, metrics.getLatencyHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testRecord_parallelBatch() throws IOException {
+        Path corpusPath = Files.createTempFile("recueil", ".txt");
+        corpusPath.toFile().deleteOnExit();
+        StringBuilder corpusContent = new StringBuilder();
+        for (String gridFile : GRID_FILES) {
+            corpusContent.append(MaskGrid.toCompactString(TestGrids.readMasks(gridFile))).append('\n');
+        }
+        Files.write(corpusPath, corpusContent.toString().repeat(50).getBytes(StandardCharsets.UTF_8));
+
+        SolverMetrics metrics = SolverMetrics.getInstance();
+        metrics.reset();
+        String[] args = { corpusPath.toString(), "--batch", "--threads=4" };
+        BatchStats batchStats = new BatchSolver(Arguments.parseArguments(args), new PrintWriter(new StringWriter()))
+                .solvePath(corpusPath.toString());
+
+        // une résolution instrumentée par grille valide, quel que soit le thread du pool qui l'a résolue
+        long nbSolves = batchStats.getNbGrids() - batchStats.getNbInvalidGrids();
+        Assert.assertEquals(4 * 50, nbSolves);
+        Assert.assertEquals(nbSolves, metrics.getNbSolves());
+        Assert.assertEquals(batchStats.getNbSolutions(), metrics.getNbSolutions());
+        Assert.assertEquals(batchStats.getNbRecursions(), metrics.getNbRecursions());
+        ValueHistogram latencyHistogram = metrics.getLatencyHistogram();
+        Assert.assertEquals(nbSolves, latencyHistogram.getTotalCount());
+        Assert.assertEquals(metrics.getMaxNanoSeconds(), latencyHistogram.getMaxValue());
+        Assert.assertTrue(metrics.getLatencyP50MicroSeconds() <= metrics.getLatencyP99MicroSeconds());
+        metrics.reset();
+    }
+}
@@ -0,0 +1,30 @@
+package utils;
+
+/**
+ * Grilles de data\ partagées par les tests, lues comme par le mode normal (cf Grid.parseFileGrid)
+ */
+final class TestGrids {
+
+    /**
+     * La grille d'Arto Inkala, à une solution
+     */
+    static final String INKALA_FILE = "data\\grille_inkala.txt";
+
+    /**
+     * Une grille de magazine à une solution, et sa solution
+     */
+    static final String MAGAZINE_FILE = "data\\test_grille_10.txt";
+    static final String MAGAZINE_SOLUTION_FILE = "data\\test_grille_10_soluce.txt";
+
+    private TestGrids() {
+    }
+
+    /**
+     * Lit une grille de test sous forme de grille de masques
+     * @param fileName
+     * @return short[] : les cellules vides reçoivent tous les candidats
+     */
+    static short[] readMasks(String fileName) {
+        return MaskGrid.fromCellArray(Grid.parseFileGrid(fileName).get());
+    }
+}
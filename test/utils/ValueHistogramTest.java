@@ -0,0 +1,81 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests de ValueHistogram : précision des percentiles et fusion d'histogrammes
+ */
+public class ValueHistogramTest {
+
+    private static final double[] PERCENTILES = { 0, 10, 50, 90, 99, 99.9, 100 };
+
+    /**
+     * Des valeurs réparties sur 13 ordres de grandeur, tirées avec une graine fixe
+     * @return long[]
+     */
+    private static long[] createValues() {
+        Random random = new Random(1);
+        long[] values = new long[100000];
+        for (int valueIndex = 0; valueIndex < values.length; valueIndex++) {
+            values[valueIndex] = (long) Math.exp(random.nextDouble() * 30);
+        }
+        return values;
+    }
+
+    @Test
+    public void testValueAtPercentile_relativeError() {
+        long[] values = createValues();
+        ValueHistogram histogram = new ValueHistogram();
+        for (long value : values) {
+            histogram.recordValue(value);
+        }
+        Arrays.sort(values);
+
+        Assert.assertEquals(values.length, histogram.getTotalCount());
+        Assert.assertEquals(values[0], histogram.getMinValue());
+        Assert.assertEquals(values[values.length - 1], histogram.getMaxValue());
+        for (double percentile : PERCENTILES) {
+            long exactValue = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long histogramValue = histogram.getValueAtPercentile(percentile);
+            // jamais en dessous de la valeur exacte, et au plus une tranche au-dessus
+            Assert.assertTrue(histogramValue >= exactValue);
+            Assert.assertTrue(histogramValue - exactValue <= exactValue / ValueHistogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void testAdd_sameAsSingleHistogram() {
+        long[] values = createValues();
+        ValueHistogram singleHistogram = new ValueHistogram();
+        ValueHistogram[] threadHistograms = { new ValueHistogram(), new ValueHistogram(), new ValueHistogram() };
+        for (int valueIndex = 0; valueIndex < values.length; valueIndex++) {
+            singleHistogram.recordValue(values[valueIndex]);
+            threadHistograms[valueIndex % threadHistograms.length].recordValue(values[valueIndex]);
+        }
+        ValueHistogram mergedHistogram = new ValueHistogram();
+        for (ValueHistogram threadHistogram : threadHistograms) {
+            mergedHistogram.add(threadHistogram);
+        }
+
+        Assert.assertEquals(singleHistogram.getTotalCount(), mergedHistogram.getTotalCount());
+        Assert.assertEquals(singleHistogram.getMaxValue(), mergedHistogram.getMaxValue());
+        Assert.assertEquals(singleHistogram.getMean(), mergedHistogram.getMean(), 1e-6 * singleHistogram.getMean());
+        for (double percentile : PERCENTILES) {
+            Assert.assertEquals(singleHistogram.getValueAtPercentile(percentile),
+                    mergedHistogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        ValueHistogram histogram = new ValueHistogram();
+        Assert.assertEquals(0, histogram.getTotalCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(0, histogram.getMinValue());
+        Assert.assertEquals(0.0, histogram.getMean(), 0.0);
+    }
+}
@@ -0,0 +1,121 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.Assert;
+
+import java.io.File;
+import java.text.MessageFormat;
+import java.util.Optional;
+
+/**
+ * Tests de non-régression du travail de recherche sur les grilles de data\
+ * <p>
+ * Contrairement aux benchmarks, les compteurs de SolveResult (passes, embranchements, grilles impossibles
+ * et cellules examinées) ne dépendent pas de la machine : ils sont identiques d'une exécution à l'autre.<br>
+ * Chaque test résout les grilles valides de data\ (2 solutions demandées) et vérifie que le nb de solutions
+ * est exact, et que chaque compteur reste à moins de TOLERANCE de sa valeur de référence, dans un sens ou dans l'autre.
+ * <p>
+ * Une modification de createFork, des politiques d'embranchement, du Propagator ou des techniques
+ * qui augmente ou diminue sensiblement le travail fait donc échouer ces tests : si le changement est voulu,
+ * il faut mettre à jour les valeurs de référence, pour que la prochaine régression soit mesurée depuis le nouveau niveau.
+ */
+public class WorkCounterTest {
+
+    /**
+     * L'écart toléré de chaque compteur par rapport à sa valeur de référence, en hausse comme en baisse
+     */
+    private static final double TOLERANCE = 0.05;
+
+    private static final String[] GRID_NAMES = {
+        "grille_commerce_01.txt", "grille_commerce_02.txt", "grille_commerce_03.txt", "grille_inkala.txt",
+        "test_grille_04.txt", "test_grille_09.txt", "test_grille_10.txt", "test_grille_vide.txt"
+    };
+
+    private static final String[] COUNTER_NAMES = {
+        "solutions", "passes", "embranchements", "grilles impossibles", "cellules examinees"
+    };
+
+    // les valeurs de référence de chaque grille, dans l'ordre de COUNTER_NAMES
+    private static final long[][] RECURSIVE_BASELINES = {
+        { 1, 8, 0, 0, 1620 },
+        { 1, 6, 0, 0, 1620 },
+        { 1, 12, 0, 0, 1620 },
+        { 1, 2849, 558, 279, 180031 },
+        { 2, 43, 12, 1, 4189 },
+        { 0, 1, 0, 1, 201 },
+        { 1, 12, 0, 0, 1620 },
+        { 2, 111, 76, 15, 5712 }
+    };
+
+    private static final long[][] TRAIL_MRV_BASELINES = {
+        { 1, 8, 0, 0, 1620 },
+        { 1, 6, 0, 0, 1620 },
+        { 1, 12, 0, 0, 1620 },
+        { 1, 604, 122, 61, 38939 },
+        { 2, 36, 11, 0, 3780 },
+        { 0, 1, 0, 1, 201 },
+        { 1, 12, 0, 0, 1620 },
+        { 2, 80, 47, 0, 4694 }
+    };
+
+    /**
+     * Ce test vérifie le travail de Grid.recurseSolve avec les options par défaut
+     * (embranchement binaire sur la première cellule, hidden singles et locked candidates)
+     */
+    @Test
+    public void testWork_recurseSolve() {
+        for (int gridIndex = 0; gridIndex < GRID_NAMES.length; gridIndex++) {
+            SolveResult solveResult = new SolveResult(loadGrid(GRID_NAMES[gridIndex]), 2);
+            Grid.recurseSolve(solveResult);
+            assertWork(GRID_NAMES[gridIndex], RECURSIVE_BASELINES[gridIndex], solveResult);
+        }
+    }
+
+    /**
+     * Ce test vérifie le travail de TrailSolver avec la politique d'embranchement mrv
+     */
+    @Test
+    public void testWork_trailSolverMrv() {
+        for (int gridIndex = 0; gridIndex < GRID_NAMES.length; gridIndex++) {
+            SolveResult solveResult = new SolveResult(loadGrid(GRID_NAMES[gridIndex]), 2);
+            solveResult.setBranchingPolicy(new MinimumRemainingValuesBranching());
+            new TrailSolver().solve(solveResult);
+            assertWork(GRID_NAMES[gridIndex], TRAIL_MRV_BASELINES[gridIndex], solveResult);
+        }
+    }
+
+    /**
+     * Lit une grille de data\
+     * @param gridName
+     * @return int[][][]
+     */
+    private static int[][][] loadGrid(String gridName) {
+        Optional<int[][][]> cellArray = Grid.parseFileGrid(new File("data", gridName).getPath());
+        Assert.assertTrue(gridName, cellArray.isPresent());
+        return cellArray.get();
+    }
+
+    /**
+     * Vérifie le nb de solutions, et que chaque compteur reste dans la tolérance de sa valeur de référence
+     * @param gridName
+     * @param baseline
+     * @param solveResult
+     */
+    private static void assertWork(String gridName, long[] baseline, SolveResult solveResult) {
+        long[] counters = {
+            solveResult.getNbSolutions(),
+            solveResult.getNbPasses(),
+            solveResult.getNbRecursions(),
+            solveResult.getNbUnsolvableGrids(),
+            solveResult.getNbExaminedCells()
+        };
+        Assert.assertEquals(gridName + " : solutions", baseline[0], counters[0]);
+        for (int counterIndex = 1; counterIndex < counters.length; counterIndex++) {
+            long maxValue = baseline[counterIndex] + (long) (baseline[counterIndex] * TOLERANCE);
+            long minValue = baseline[counterIndex] - (long) (baseline[counterIndex] * TOLERANCE);
+            Assert.assertTrue(MessageFormat.format("{0} : {1} est passe de {2} a {3}",
+                    gridName, COUNTER_NAMES[counterIndex], baseline[counterIndex], counters[counterIndex]),
+                    counters[counterIndex] >= minValue && counters[counterIndex] <= maxValue);
+        }
+    }
+}